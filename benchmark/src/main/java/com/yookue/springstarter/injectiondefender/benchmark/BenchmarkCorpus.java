@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.benchmark;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Corpus of request values for benchmarks
+ * <p>
+ * Values are generated with a fixed seed, so every fork measures the same input
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public enum BenchmarkCorpus {
+    /**
+     * Plain ids, numbers, uuids and words
+     */
+    BENIGN(new String[] {
+        "42", "1024", "550e8400-e29b-41d4-a716-446655440000", "john.doe@example.com", "Shanghai", "2022-10-17T08:00:00Z", "page", "desc", "en_US", "Lorem ipsum dolor sit amet, consectetur adipiscing elit"
+    }),
+
+    /**
+     * Values that contain trigger characters but are not injections
+     */
+    BORDERLINE(new String[] {
+        "O'Reilly", "don't order pizza", "say \"hello\" world", "1 < 2 and 3 > 2", "<b>bold</b> and <i>italic</i>", "<p class=\"lead\">Intro</p>", "a<scripts/>b", "x' y", "she said 'or else'", "<a href=\"https://yookue.com\">link</a>"
+    }),
+
+    /**
+     * Sql and xss injections
+     */
+    MALICIOUS(new String[] {
+        "-1' union select 1,2,3 --+", "1' or show database();", "admin' or create table --", "admin-777' or drop table --", "x\" /* comment */", "<script>alert(1)</script>", "<iframe src=\"javascript:alert(1)\"></iframe>", "foo<SCRIPT src=//evil.example/x.js>", "1') or ('1'='1", "<img src=x onerror=alert(1)><script>alert(2)</script>"
+    });
+
+    private final String[] samples;
+
+    BenchmarkCorpus(@Nonnull String[] samples) {
+        this.samples = samples;
+    }
+
+    /**
+     * Returns the values of the given count, sampled with a fixed seed
+     */
+    @Nonnull
+    public String[] values(int count) {
+        Random random = new Random(count);
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = samples[random.nextInt(samples.length)];
+        }
+        return result;
+    }
+
+    /**
+     * Returns a parameter map of the given size, each parameter holds one or two values
+     */
+    @Nonnull
+    public Map<String, String[]> parameters(int size) {
+        Random random = new Random(size);
+        String[] values = values(size * 2);
+        Map<String, String[]> result = new LinkedHashMap<>(size);
+        for (int i = 0; i < size; i++) {
+            result.put("param" + i, random.nextBoolean() ? new String[] {values[i * 2]} : new String[] {values[i * 2], values[i * 2 + 1]});    // $NON-NLS-1$
+        }
+        return result;
+    }
+
+    /**
+     * Returns a json array of objects, each object holds some string fields
+     */
+    @Nonnull
+    public String json(int objects) {
+        String[] values = values(objects * 4);
+        StringBuilder builder = new StringBuilder(objects * 160).append('[');
+        for (int i = 0; i < objects; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"id\":").append(i);    // $NON-NLS-1$
+            builder.append(",\"name\":\"").append(escape(values[i * 4])).append('"');    // $NON-NLS-1$
+            builder.append(",\"title\":\"").append(escape(values[i * 4 + 1])).append('"');    // $NON-NLS-1$
+            builder.append(",\"content\":\"").append(escape(values[i * 4 + 2])).append('"');    // $NON-NLS-1$
+            builder.append(",\"remark\":\"").append(escape(values[i * 4 + 3])).append("\"}");    // $NON-NLS-1$
+        }
+        return builder.append(']').toString();
+    }
+
+    private static String escape(@Nonnull String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");    // $NON-NLS-1$
+    }
+}
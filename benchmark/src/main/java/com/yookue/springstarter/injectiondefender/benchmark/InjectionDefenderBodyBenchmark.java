@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.benchmark;
+
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+import com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import com.yookue.springstarter.injectiondefender.scanner.JsonStreamScanner;
+
+
+/**
+ * Benchmarks for the body inspection of {@link com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter}
+ * <p>
+ * The chain drains the body, so bodies beyond the buffer size are measured while being streamed
+ * <br>
+ * Each invocation gets a fresh request, as a body can be read only once
+ *
+ * @author David Hsing
+ */
+@BenchmarkMode(value = {Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(value = Scope.Thread)
+@SuppressWarnings("unused")
+public class InjectionDefenderBodyBenchmark {
+    @Param(value = {"BENIGN", "BORDERLINE", "MALICIOUS"})
+    private BenchmarkCorpus corpus;
+
+    @Param(value = {"100", "5000"})
+    private int objectCount;
+
+    @Param(value = {"application/json", "text/plain"})
+    private String contentType;
+
+    @Param(value = {"false", "true"})
+    private boolean bodyInspection;
+
+    private InjectionDefenderFilter filter;
+    private byte[] payload;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() {
+        InjectionDefenderProperties properties = new InjectionDefenderProperties();
+        properties.getSqlProtection().setThrowsException(false);
+        properties.getXssProtection().setThrowsException(false);
+        properties.getBodyInspection().setEnabled(bodyInspection);
+        properties.getBodyInspection().setMaxBufferSize(DataSize.ofKilobytes(64));
+        filter = new InjectionDefenderFilter(properties);
+        filter.setJsonStreamScanner(new JsonStreamScanner());
+        payload = corpus.json(objectCount).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(value = Level.Invocation)
+    public void prepareRequest() {
+        request = new MockHttpServletRequest("POST", "/benchmark/body");    // $NON-NLS-1$ // $NON-NLS-2$
+        request.setContentType(contentType);
+        request.setContent(payload);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public void doFilter(Blackhole blackhole) throws ServletException, IOException {
+        FilterChain chain = (req, res) -> blackhole.consume(StreamUtils.drain(req.getInputStream()));
+        filter.doFilter(request, response, chain);
+    }
+}
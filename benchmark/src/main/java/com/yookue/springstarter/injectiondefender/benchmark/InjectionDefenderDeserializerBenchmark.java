@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.benchmark;
+
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.yookue.springstarter.injectiondefender.jackson.InjectionDefenderDeserializer;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+
+
+/**
+ * Benchmarks for {@link com.yookue.springstarter.injectiondefender.jackson.InjectionDefenderDeserializer}
+ * <p>
+ * Exceptions are turned off, so that malicious payloads are measured through the whole deserialization
+ * <br>
+ * Each invocation binds a fresh request, so the defender context is resolved every time
+ *
+ * @author David Hsing
+ */
+@BenchmarkMode(value = {Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(value = Scope.Thread)
+@SuppressWarnings("unused")
+public class InjectionDefenderDeserializerBenchmark {
+    private static final TypeReference<List<Article>> ARTICLES = new TypeReference<>() {
+    };
+
+    @Param(value = {"BENIGN", "BORDERLINE", "MALICIOUS"})
+    private BenchmarkCorpus corpus;
+
+    @Param(value = {"100", "5000"})
+    private int objectCount;
+
+    private ObjectMapper plainMapper;
+    private ObjectMapper defenderMapper;
+    private byte[] payload;
+
+    @Setup
+    public void setup() {
+        InjectionDefenderProperties properties = new InjectionDefenderProperties();
+        properties.getSqlProtection().setThrowsException(false);
+        properties.getXssProtection().setThrowsException(false);
+        SimpleModule module = new SimpleModule();
+        module.addDeserializer(String.class, new InjectionDefenderDeserializer(properties));
+        plainMapper = new ObjectMapper();
+        defenderMapper = new ObjectMapper().registerModule(module);
+        payload = corpus.json(objectCount).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(value = Level.Invocation)
+    public void prepareRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest("POST", "/benchmark/json")));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @TearDown(value = Level.Invocation)
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public List<Article> baseline() throws IOException {
+        return plainMapper.readValue(payload, ARTICLES);
+    }
+
+    @Benchmark
+    public List<Article> deserialize() throws IOException {
+        return defenderMapper.readValue(payload, ARTICLES);
+    }
+
+
+    public static class Article {
+        public long id;
+        public String name;
+        public String title;
+        public String content;
+        public String remark;
+    }
+}
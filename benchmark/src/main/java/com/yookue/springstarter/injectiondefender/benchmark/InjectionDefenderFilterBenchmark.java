@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.benchmark;
+
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.method.HandlerMethod;
+import com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter;
+import com.yookue.springstarter.injectiondefender.filter.InspectionMode;
+import com.yookue.springstarter.injectiondefender.interceptor.HandlerInspectionInterceptor;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import com.yookue.springstarter.injectiondefender.sanitizer.JsoupHtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.sanitizer.SanitizerType;
+import com.yookue.springstarter.injectiondefender.sanitizer.StreamingHtmlSanitizer;
+
+
+/**
+ * Benchmarks for {@link com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter}
+ * <p>
+ * Exceptions are turned off, so that malicious requests are measured through the whole filter
+ * <br>
+ * Each invocation gets a fresh request, so the per-request resolution cached in the request attributes is measured every time
+ * <br>
+ * In {@code HANDLER} mode, the chain runs {@link com.yookue.springstarter.injectiondefender.interceptor.HandlerInspectionInterceptor} for a handler that binds two of the parameters
+ *
+ * @author David Hsing
+ */
+@BenchmarkMode(value = {Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(value = TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(value = Scope.Thread)
+@SuppressWarnings("unused")
+public class InjectionDefenderFilterBenchmark {
+    @Param(value = {"BENIGN", "BORDERLINE", "MALICIOUS"})
+    private BenchmarkCorpus corpus;
+
+    @Param(value = {"20", "500"})
+    private int parameterCount;
+
+    @Param(value = {"EAGER", "LAZY", "HANDLER"})
+    private InspectionMode inspectionMode;
+
+    @Param(value = {"JSOUP", "STREAMING"})
+    private SanitizerType sanitizerType;
+
+    private InjectionDefenderFilter filter;
+    private HandlerInspectionInterceptor interceptor;
+    private HandlerMethod handlerMethod;
+    private Map<String, String[]> parameters;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        InjectionDefenderProperties properties = new InjectionDefenderProperties();
+        properties.getSqlProtection().setThrowsException(false);
+        properties.getXssProtection().setThrowsException(false);
+        properties.getDefenderFilter().setInspectionMode(inspectionMode);
+        filter = new InjectionDefenderFilter(properties);
+        filter.setHtmlSanitizer((sanitizerType == SanitizerType.STREAMING) ? new StreamingHtmlSanitizer() : new JsoupHtmlSanitizer());
+        interceptor = new HandlerInspectionInterceptor();
+        filter.setHandlerInspection(true);
+        handlerMethod = new HandlerMethod(new SearchController(), SearchController.class.getMethod("search", String.class, String.class));    // $NON-NLS-1$
+        interceptor.planOf(handlerMethod);
+        parameters = corpus.parameters(parameterCount);
+    }
+
+    @Setup(value = Level.Invocation)
+    public void prepareRequest() {
+        request = new MockHttpServletRequest("GET", "/benchmark/filter");    // $NON-NLS-1$ // $NON-NLS-2$
+        request.setParameters(parameters);
+        response = new MockHttpServletResponse();
+    }
+
+    @Benchmark
+    public void doFilter(Blackhole blackhole) throws ServletException, IOException {
+        FilterChain chain = (req, res) -> {
+            if (inspectionMode == InspectionMode.HANDLER) {
+                try {
+                    interceptor.preHandle((HttpServletRequest) req, (HttpServletResponse) res, handlerMethod);
+                } catch (Exception ex) {
+                    throw new ServletException(ex);
+                }
+            }
+            blackhole.consume(req.getParameterMap());
+        };
+        filter.doFilter(request, response, chain);
+    }
+
+
+    public static class SearchController {
+        public String search(@RequestParam(name = "param0") String keyword, @RequestParam(name = "param1") String category) {
+            return keyword + category;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.benchmark;
+
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.yookue.springstarter.injectiondefender.util.InjectionDefenderUtils;
+
+
+/**
+ * Benchmarks for {@link com.yookue.springstarter.injectiondefender.util.InjectionDefenderUtils}
+ *
+ * @author David Hsing
+ */
+@BenchmarkMode(value = {Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(value = TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1)
+@State(value = Scope.Thread)
+@SuppressWarnings("unused")
+public class InjectionDefenderUtilsBenchmark {
+    @Param(value = {"BENIGN", "BORDERLINE", "MALICIOUS"})
+    private BenchmarkCorpus corpus;
+
+    private String[] values;
+
+    @Setup
+    public void setup() {
+        values = corpus.values(1000);
+    }
+
+    @Benchmark
+    public void maybeSqlInjection(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(InjectionDefenderUtils.maybeSqlInjection(value));
+        }
+    }
+
+    @Benchmark
+    public void maybeXssInjection(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(InjectionDefenderUtils.maybeXssInjection(value));
+        }
+    }
+
+    @Benchmark
+    public void maybeBothInjections(Blackhole blackhole) {
+        for (String value : values) {
+            blackhole.consume(InjectionDefenderUtils.maybeSqlInjection(value) || InjectionDefenderUtils.maybeXssInjection(value));
+        }
+    }
+}
@@ -17,9 +17,12 @@
 package com.yookue.springstarter.injectiondefender.config;
 
 
+import java.time.Duration;
 import java.util.Optional;
 import jakarta.annotation.Nonnull;
 import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -30,6 +33,7 @@ import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.annotation.Order;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -40,8 +44,18 @@ import com.yookue.commonplexus.springutil.jackson.deserializer.StringTrimmerDese
 import com.yookue.springstarter.injectiondefender.advice.StringTrimmerEmptyAdvice;
 import com.yookue.springstarter.injectiondefender.advice.StringTrimmerNullAdvice;
 import com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter;
+import com.yookue.springstarter.injectiondefender.interceptor.HandlerInspectionInterceptor;
 import com.yookue.springstarter.injectiondefender.jackson.InjectionDefenderDeserializer;
+import com.yookue.springstarter.injectiondefender.metrics.DefenderMetrics;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicyHolder;
 import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import com.yookue.springstarter.injectiondefender.publisher.AsyncEventPublisher;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager;
+import com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.scanner.JsonStreamScanner;
+import com.yookue.springstarter.injectiondefender.scanner.ParallelScanner;
+import com.yookue.springstarter.injectiondefender.support.DefenderContextResolver;
+import com.yookue.springstarter.injectiondefender.tracker.OffenderTracker;
 
 
 /**
@@ -53,17 +67,45 @@ import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProp
 @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
 @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableConfigurationProperties(value = InjectionDefenderProperties.class)
+@Import(value = InjectionDefenderCoreConfiguration.class)
 public class InjectionDefenderAutoConfiguration implements WebMvcConfigurer {
     public static final String PROPERTIES_PREFIX = "spring.injection-defender";    // $NON-NLS-1$
     public static final String STRING_TRIMMER_EMPTY_ADVICE = "stringTrimmerEmptyAdvice";    // $NON-NLS-1$
     public static final String STRING_TRIMMER_NULL_ADVICE = "stringTrimmerNullAdvice";    // $NON-NLS-1$
     public static final String JACKSON_STRING_TRIMMER_CUSTOMIZER = "jacksonStringTrimmerCustomizer";    // $NON-NLS-1$
     public static final String JACKSON_INJECTION_DEFENDER_CUSTOMIZER = "jacksonInjectionDefenderCustomizer";    // $NON-NLS-1$
+    public static final String XSS_HTML_SANITIZER = "injectionDefenderHtmlSanitizer";    // $NON-NLS-1$
+    public static final String DEFENDER_CONTEXT_RESOLVER = "injectionDefenderContextResolver";    // $NON-NLS-1$
+    public static final String DEFENDER_POLICY_HOLDER = "injectionDefenderPolicyHolder";    // $NON-NLS-1$
+    public static final String DEFENDER_POLICY_REFRESHER = "injectionDefenderPolicyRefresher";    // $NON-NLS-1$
+    public static final String JSON_STREAM_SCANNER = "injectionDefenderJsonStreamScanner";    // $NON-NLS-1$
+    public static final String ASYNC_EVENT_PUBLISHER = "injectionDefenderAsyncEventPublisher";    // $NON-NLS-1$
+    public static final String OFFENDER_TRACKER = "injectionDefenderOffenderTracker";    // $NON-NLS-1$
+    public static final String PARALLEL_SCANNER = "injectionDefenderParallelScanner";    // $NON-NLS-1$
+    public static final String HANDLER_INSPECTION_INTERCEPTOR = "injectionDefenderHandlerInspectionInterceptor";    // $NON-NLS-1$
+    public static final String DETECTION_RULE_MANAGER = "injectionDefenderDetectionRuleManager";    // $NON-NLS-1$
+    public static final String DEFENDER_METRICS = "injectionDefenderMetrics";    // $NON-NLS-1$
+    public static final String DEFENDER_METER_BINDER = "injectionDefenderMeterBinder";    // $NON-NLS-1$
+
+    @Bean(name = DEFENDER_CONTEXT_RESOLVER)
+    @ConditionalOnMissingBean(name = DEFENDER_CONTEXT_RESOLVER)
+    public DefenderContextResolver injectionDefenderContextResolver(@Nonnull DefenderPolicyHolder policyHolder, @Nonnull ObjectProvider<DetectionRuleManager> ruleManagers) {
+        DefenderContextResolver resolver = new DefenderContextResolver(policyHolder);
+        resolver.setRuleManager(ruleManagers.getIfAvailable());
+        return resolver;
+    }
 
     @Bean
     @ConditionalOnMissingBean(value = InjectionDefenderFilter.class, parameterizedContainer = FilterRegistrationBean.class)
-    public FilterRegistrationBean<InjectionDefenderFilter> injectionDefenderFilterRegistration(@Nonnull InjectionDefenderProperties properties, @Nonnull ApplicationEventPublisher publisher) {
-        InjectionDefenderFilter filter = new InjectionDefenderFilter(properties, publisher);
+    public FilterRegistrationBean<InjectionDefenderFilter> injectionDefenderFilterRegistration(@Nonnull InjectionDefenderProperties properties, @Nonnull ApplicationEventPublisher publisher, @Nonnull ObjectProvider<AsyncEventPublisher> asyncPublishers, @Nonnull ObjectProvider<DefenderContextResolver> resolvers, @Nonnull ObjectProvider<HtmlSanitizer> sanitizers, @Nonnull ObjectProvider<JsonStreamScanner> scanners, @Nonnull ObjectProvider<DefenderMetrics> metrics, @Nonnull ObjectProvider<OffenderTracker> trackers, @Nonnull ObjectProvider<ParallelScanner> parallelScanners, @Nonnull ObjectProvider<HandlerInspectionInterceptor> interceptors) {
+        InjectionDefenderFilter filter = new InjectionDefenderFilter(properties, ObjectUtils.defaultIfNull(asyncPublishers.getIfAvailable(), publisher));
+        resolvers.ifAvailable(filter::setContextResolver);
+        metrics.ifAvailable(filter::setMetrics);
+        filter.setHtmlSanitizer(sanitizers.getIfAvailable());
+        filter.setJsonStreamScanner(scanners.getIfAvailable());
+        filter.setOffenderTracker(trackers.getIfAvailable());
+        filter.setParallelScanner(parallelScanners.getIfAvailable());
+        filter.setHandlerInspection(interceptors.getIfAvailable() != null);
         FilterRegistrationBean<InjectionDefenderFilter> result = new FilterRegistrationBean<>(filter);
         InjectionDefenderProperties.DefenderFilter props = properties.getDefenderFilter();
         Optional.ofNullable(props.getFilerOrder()).ifPresent(result::setOrder);
@@ -72,6 +114,23 @@ public class InjectionDefenderAutoConfiguration implements WebMvcConfigurer {
         return result;
     }
 
+    @Bean(name = OFFENDER_TRACKER)
+    @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".offender-tracking", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean(name = OFFENDER_TRACKER)
+    public OffenderTracker injectionDefenderOffenderTracker(@Nonnull InjectionDefenderProperties properties) {
+        InjectionDefenderProperties.OffenderTracking props = properties.getOffenderTracking();
+        int threshold = Optional.ofNullable(props.getThreshold()).orElse(5), maxClients = Optional.ofNullable(props.getMaxClients()).orElse(10000), blockStatus = Optional.ofNullable(props.getBlockStatus()).orElse(429);
+        Duration window = Optional.ofNullable(props.getWindow()).orElse(Duration.ofMinutes(1)), blockDuration = Optional.ofNullable(props.getBlockDuration()).orElse(Duration.ofMinutes(10));
+        return new OffenderTracker(threshold, window, blockDuration, maxClients, props.getClientHeader(), blockStatus);
+    }
+
+    @Bean(name = HANDLER_INSPECTION_INTERCEPTOR)
+    @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".defender-filter", name = "inspection-mode", havingValue = "handler")
+    @ConditionalOnMissingBean(name = HANDLER_INSPECTION_INTERCEPTOR)
+    public HandlerInspectionInterceptor injectionDefenderHandlerInspectionInterceptor() {
+        return new HandlerInspectionInterceptor();
+    }
+
     @Bean(name = STRING_TRIMMER_EMPTY_ADVICE)
     @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX, name = "trim-params", havingValue = "false", matchIfMissing = true)
     @ConditionalOnMissingBean(name = STRING_TRIMMER_EMPTY_ADVICE)
@@ -86,16 +145,6 @@ public class InjectionDefenderAutoConfiguration implements WebMvcConfigurer {
         return new StringTrimmerNullAdvice();
     }
 
-    @Bean(name = JACKSON_STRING_TRIMMER_CUSTOMIZER)
-    @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX, name = "trim-params", havingValue = "true")
-    @ConditionalOnClass(value = ObjectMapper.class)
-    @ConditionalOnMissingBean(name = JACKSON_STRING_TRIMMER_CUSTOMIZER)
-    @Order(value = 200)
-    public Jackson2ObjectMapperBuilderCustomizer jacksonStringTrimmerCustomizer(@Nonnull InjectionDefenderProperties properties) {
-        StringTrimmerDeserializer deserializer = new StringTrimmerDeserializer(BooleanUtils.isTrue(properties.getTrimToNull()));
-        return builder -> builder.deserializerByType(String.class, deserializer);
-    }
-
     @Bean(name = JACKSON_INJECTION_DEFENDER_CUSTOMIZER)
     @ConditionalOnAnyProperties(value = {
         @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".sql-protection", name = "enabled", havingValue = "true", matchIfMissing = true),
@@ -104,8 +153,24 @@ public class InjectionDefenderAutoConfiguration implements WebMvcConfigurer {
     @ConditionalOnClass(value = ObjectMapper.class)
     @ConditionalOnMissingBean(name = JACKSON_INJECTION_DEFENDER_CUSTOMIZER)
     @Order(value = 300)
-    public Jackson2ObjectMapperBuilderCustomizer jacksonInjectionDefenderCustomizer(@Nonnull InjectionDefenderProperties properties, @Nonnull ApplicationEventPublisher publisher) {
-        InjectionDefenderDeserializer deserializer = new InjectionDefenderDeserializer(properties, publisher);
+    public Jackson2ObjectMapperBuilderCustomizer jacksonInjectionDefenderCustomizer(@Nonnull InjectionDefenderProperties properties, @Nonnull ApplicationEventPublisher publisher, @Nonnull ObjectProvider<AsyncEventPublisher> asyncPublishers, @Nonnull ObjectProvider<DefenderContextResolver> resolvers, @Nonnull ObjectProvider<HtmlSanitizer> sanitizers, @Nonnull ObjectProvider<DefenderMetrics> metrics) {
+        InjectionDefenderDeserializer deserializer = new InjectionDefenderDeserializer(properties, ObjectUtils.defaultIfNull(asyncPublishers.getIfAvailable(), publisher));
+        resolvers.ifAvailable(deserializer::setContextResolver);
+        metrics.ifAvailable(deserializer::setMetrics);
+        deserializer.setHtmlSanitizer(sanitizers.getIfAvailable());
+        return builder -> builder.deserializerByType(String.class, deserializer);
+    }
+
+    /**
+     * Registered only without the injection defender deserializer, which trims the strings itself, as both are registered for {@link String}
+     */
+    @Bean(name = JACKSON_STRING_TRIMMER_CUSTOMIZER)
+    @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX, name = "trim-params", havingValue = "true")
+    @ConditionalOnClass(value = ObjectMapper.class)
+    @ConditionalOnMissingBean(name = {JACKSON_STRING_TRIMMER_CUSTOMIZER, JACKSON_INJECTION_DEFENDER_CUSTOMIZER})
+    @Order(value = 200)
+    public Jackson2ObjectMapperBuilderCustomizer jacksonStringTrimmerCustomizer(@Nonnull InjectionDefenderProperties properties) {
+        StringTrimmerDeserializer deserializer = new StringTrimmerDeserializer(BooleanUtils.isTrue(properties.getTrimToNull()));
         return builder -> builder.deserializerByType(String.class, deserializer);
     }
 }
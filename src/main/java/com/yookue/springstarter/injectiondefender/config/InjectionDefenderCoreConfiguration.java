@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.config;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.BooleanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.ClassUtils;
+import com.yookue.springstarter.injectiondefender.metrics.DefenderMeterBinder;
+import com.yookue.springstarter.injectiondefender.metrics.DefenderMetrics;
+import com.yookue.springstarter.injectiondefender.metrics.MicrometerDefenderMetrics;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicyHolder;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicyRefresher;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import com.yookue.springstarter.injectiondefender.publisher.AsyncEventPublisher;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager;
+import com.yookue.springstarter.injectiondefender.rule.ResourceRuleProvider;
+import com.yookue.springstarter.injectiondefender.rule.RuleProvider;
+import com.yookue.springstarter.injectiondefender.sanitizer.CachingHtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.sanitizer.JsoupHtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.sanitizer.SanitizerType;
+import com.yookue.springstarter.injectiondefender.sanitizer.StreamingHtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.scanner.JsonStreamScanner;
+import com.yookue.springstarter.injectiondefender.scanner.ParallelScanner;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.observation.ObservationRegistry;
+
+
+/**
+ * Configuration of injection defender that shared by the servlet and the reactive web applications
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.config.InjectionDefenderAutoConfiguration
+ * @see com.yookue.springstarter.injectiondefender.config.ReactiveInjectionDefenderAutoConfiguration
+ */
+@Configuration(proxyBeanMethods = false)
+public class InjectionDefenderCoreConfiguration {
+    private static final String CAFFEINE_CLASS = "com.github.benmanes.caffeine.cache.Caffeine";    // $NON-NLS-1$
+
+    @Bean(name = InjectionDefenderAutoConfiguration.XSS_HTML_SANITIZER)
+    @ConditionalOnMissingBean(name = InjectionDefenderAutoConfiguration.XSS_HTML_SANITIZER)
+    public HtmlSanitizer injectionDefenderHtmlSanitizer(@Nonnull InjectionDefenderProperties properties) {
+        InjectionDefenderProperties.XssProtection xssProps = properties.getXssProtection();
+        HtmlSanitizer sanitizer = (xssProps.getSanitizerType() == SanitizerType.STREAMING) ? new StreamingHtmlSanitizer() : new JsoupHtmlSanitizer();
+        InjectionDefenderProperties.SanitizeCache cacheProps = xssProps.getCache();
+        if (BooleanUtils.isTrue(cacheProps.getEnabled()) && ClassUtils.isPresent(CAFFEINE_CLASS, null)) {
+            long maximumWeight = Optional.ofNullable(cacheProps.getMaximumWeight()).orElse(4_194_304L);
+            int maxValueLength = Optional.ofNullable(cacheProps.getMaxValueLength()).orElse(8192);
+            return new CachingHtmlSanitizer(sanitizer, maximumWeight, maxValueLength, cacheProps.getExpireAfterAccess(), BooleanUtils.isTrue(cacheProps.getRecordStats()));
+        }
+        return sanitizer;
+    }
+
+    @Bean(name = InjectionDefenderAutoConfiguration.ASYNC_EVENT_PUBLISHER)
+    @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".event-publisher", name = "async", havingValue = "true")
+    @ConditionalOnMissingBean(name = InjectionDefenderAutoConfiguration.ASYNC_EVENT_PUBLISHER)
+    public AsyncEventPublisher injectionDefenderAsyncEventPublisher(@Nonnull InjectionDefenderProperties properties, @Nonnull ApplicationEventPublisher publisher) {
+        InjectionDefenderProperties.EventPublisher props = properties.getEventPublisher();
+        int bufferSize = Optional.ofNullable(props.getBufferSize()).orElse(8192), batchSize = Optional.ofNullable(props.getBatchSize()).orElse(256), sampleRate = Optional.ofNullable(props.getSampleRate()).orElse(10);
+        return new AsyncEventPublisher(publisher, bufferSize, batchSize, props.getFlushInterval(), props.getOverflowPolicy(), sampleRate);
+    }
+
+    @Bean(name = InjectionDefenderAutoConfiguration.PARALLEL_SCANNER)
+    @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".parallel-scanning", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean(name = InjectionDefenderAutoConfiguration.PARALLEL_SCANNER)
+    public ParallelScanner injectionDefenderParallelScanner(@Nonnull InjectionDefenderProperties properties) {
+        InjectionDefenderProperties.ParallelScanning props = properties.getParallelScanning();
+        int threshold = Optional.ofNullable(props.getThreshold()).orElse(1000), sliceSize = Optional.ofNullable(props.getSliceSize()).orElse(64);
+        int parallelism = Optional.ofNullable(props.getParallelism()).orElseGet(Runtime.getRuntime()::availableProcessors);
+        return new ParallelScanner(threshold, parallelism, sliceSize);
+    }
+
+    @Bean(name = InjectionDefenderAutoConfiguration.DETECTION_RULE_MANAGER)
+    @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".custom-rules", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean(name = InjectionDefenderAutoConfiguration.DETECTION_RULE_MANAGER)
+    public DetectionRuleManager injectionDefenderDetectionRuleManager(@Nonnull InjectionDefenderProperties properties, @Nonnull ResourceLoader resourceLoader, @Nonnull ObjectProvider<RuleProvider> ruleProviders) {
+        InjectionDefenderProperties.CustomRules props = properties.getCustomRules();
+        List<RuleProvider> providers = new ArrayList<>(ruleProviders.orderedStream().toList());
+        if (props.getLocations() != null) {
+            boolean hotReload = BooleanUtils.isTrue(props.getHotReload());
+            props.getLocations().forEach(location -> providers.add(new ResourceRuleProvider(resourceLoader.getResource(location), hotReload)));
+        }
+        DetectionRuleManager manager = new DetectionRuleManager(providers, props.getCategories());
+        Optional.ofNullable(props.getQuietPeriod()).ifPresent(period -> manager.setQuietMillis(period.toMillis()));
+        return manager;
+    }
+
+    @Bean(name = InjectionDefenderAutoConfiguration.DEFENDER_POLICY_HOLDER)
+    @ConditionalOnMissingBean(name = InjectionDefenderAutoConfiguration.DEFENDER_POLICY_HOLDER)
+    public DefenderPolicyHolder injectionDefenderPolicyHolder(@Nonnull InjectionDefenderProperties properties) {
+        return new DefenderPolicyHolder(properties);
+    }
+
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "com.fasterxml.jackson.core.JsonFactory")
+    static class JsonStreamScannerConfiguration {
+        @Bean(name = InjectionDefenderAutoConfiguration.JSON_STREAM_SCANNER)
+        @ConditionalOnMissingBean(name = InjectionDefenderAutoConfiguration.JSON_STREAM_SCANNER)
+        public JsonStreamScanner injectionDefenderJsonStreamScanner() {
+            return new JsonStreamScanner();
+        }
+    }
+
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.cloud.context.environment.EnvironmentChangeEvent")
+    static class PolicyRefresherConfiguration {
+        @Bean(name = InjectionDefenderAutoConfiguration.DEFENDER_POLICY_REFRESHER)
+        @ConditionalOnMissingBean(name = InjectionDefenderAutoConfiguration.DEFENDER_POLICY_REFRESHER)
+        public DefenderPolicyRefresher injectionDefenderPolicyRefresher(@Nonnull DefenderPolicyHolder policyHolder) {
+            return new DefenderPolicyRefresher(policyHolder);
+        }
+    }
+
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".metrics", name = "enabled", havingValue = "true")
+    static class MetricsConfiguration {
+        @Bean(name = InjectionDefenderAutoConfiguration.DEFENDER_METRICS)
+        @ConditionalOnMissingBean(name = InjectionDefenderAutoConfiguration.DEFENDER_METRICS)
+        public DefenderMetrics injectionDefenderMetrics(@Nonnull ObjectProvider<MeterRegistry> meterRegistries, @Nonnull ObjectProvider<ObservationRegistry> observationRegistries) {
+            return new MicrometerDefenderMetrics(meterRegistries.getIfUnique(() -> Metrics.globalRegistry), observationRegistries.getIfUnique());
+        }
+
+        @Bean(name = InjectionDefenderAutoConfiguration.DEFENDER_METER_BINDER)
+        @ConditionalOnMissingBean(name = InjectionDefenderAutoConfiguration.DEFENDER_METER_BINDER)
+        public MeterBinder injectionDefenderMeterBinder(@Nonnull ObjectProvider<AsyncEventPublisher> asyncPublishers, @Nonnull ObjectProvider<HtmlSanitizer> sanitizers, @Nonnull ObjectProvider<DetectionRuleManager> ruleManagers) {
+            return new DefenderMeterBinder(asyncPublishers.getIfAvailable(), sanitizers.getIfAvailable(), ruleManagers.getIfAvailable());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.config;
+
+
+import java.util.Optional;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.ObjectUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import com.yookue.springstarter.injectiondefender.filter.ReactiveInjectionDefenderFilter;
+import com.yookue.springstarter.injectiondefender.metrics.DefenderMetrics;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicyHolder;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import com.yookue.springstarter.injectiondefender.publisher.AsyncEventPublisher;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager;
+import com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.scanner.JsonStreamScanner;
+
+
+/**
+ * Configuration of injection defender for reactive web applications
+ *
+ * @author David Hsing
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@EnableConfigurationProperties(value = InjectionDefenderProperties.class)
+@Import(value = InjectionDefenderCoreConfiguration.class)
+public class ReactiveInjectionDefenderAutoConfiguration {
+    public static final String REACTIVE_DEFENDER_FILTER = "reactiveInjectionDefenderFilter";    // $NON-NLS-1$
+
+    @Bean(name = REACTIVE_DEFENDER_FILTER)
+    @ConditionalOnMissingBean(name = REACTIVE_DEFENDER_FILTER)
+    public ReactiveInjectionDefenderFilter reactiveInjectionDefenderFilter(@Nonnull InjectionDefenderProperties properties, @Nonnull DefenderPolicyHolder policyHolder, @Nonnull ApplicationEventPublisher publisher, @Nonnull ObjectProvider<AsyncEventPublisher> asyncPublishers, @Nonnull ObjectProvider<HtmlSanitizer> sanitizers, @Nonnull ObjectProvider<JsonStreamScanner> scanners, @Nonnull ObjectProvider<DetectionRuleManager> ruleManagers, @Nonnull ObjectProvider<DefenderMetrics> metrics) {
+        ReactiveInjectionDefenderFilter result = new ReactiveInjectionDefenderFilter(policyHolder);
+        result.setApplicationEventPublisher(ObjectUtils.defaultIfNull(asyncPublishers.getIfAvailable(), publisher));
+        result.setHtmlSanitizer(sanitizers.getIfAvailable());
+        result.setJsonStreamScanner(scanners.getIfAvailable());
+        result.setRuleManager(ruleManagers.getIfAvailable());
+        metrics.ifAvailable(result::setMetrics);
+        Optional.ofNullable(properties.getDefenderFilter().getFilerOrder()).ifPresent(result::setOrder);
+        return result;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.event;
+
+
+import java.io.Serializable;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Immutable snapshot of a malicious access, which is safe to be queued and processed off the request thread
+ * <p>
+ * Only the leading characters of the value are copied, the full value is walked once to compute its length and hash, so the snapshot never pins the request or a large payload
+ *
+ * @author David Hsing
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+@EqualsAndHashCode
+@ToString
+@SuppressWarnings("unused")
+public final class MaliciousAccessSnapshot implements Serializable {
+    public static final int DEFAULT_VALUE_LENGTH = 256;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String method;
+    private final String path;
+    private final String remoteAddress;
+    private final String paramName;
+
+    /**
+     * The leading characters of the value, multiple values are joined with commas
+     */
+    private final String value;
+
+    /**
+     * The total length of the value, including the commas between multiple values
+     */
+    private final int valueLength;
+
+    /**
+     * The 64-bit FNV-1a hash over the full value
+     */
+    private final long valueHash;
+
+    /**
+     * Returns the snapshot of the given request and parameter
+     *
+     * @param request the request that the parameter came from
+     * @param paramName the parameter name
+     * @param paramValue the parameter value, may be a {@link java.lang.CharSequence}, an array of them, or any other object
+     * @param maxValueLength the maximum count of the characters to copy from the value
+     *
+     * @return the snapshot of the given request and parameter
+     */
+    @Nonnull
+    public static MaliciousAccessSnapshot of(@Nonnull HttpServletRequest request, @Nullable String paramName, @Nullable Object paramValue, int maxValueLength) {
+        return of(request.getMethod(), request.getRequestURI(), request.getRemoteAddr(), paramName, paramValue, maxValueLength);
+    }
+
+    /**
+     * Returns the snapshot of the given request attributes and parameter
+     *
+     * @param method the request method
+     * @param path the request path, without the query string
+     * @param remoteAddress the address of the client
+     * @param paramName the parameter name
+     * @param paramValue the parameter value, may be a {@link java.lang.CharSequence}, an array of them, or any other object
+     * @param maxValueLength the maximum count of the characters to copy from the value
+     *
+     * @return the snapshot of the given request attributes and parameter
+     */
+    @Nonnull
+    public static MaliciousAccessSnapshot of(@Nullable String method, @Nullable String path, @Nullable String remoteAddress, @Nullable String paramName, @Nullable Object paramValue, int maxValueLength) {
+        if (paramValue == null) {
+            return new MaliciousAccessSnapshot(method, path, remoteAddress, paramName, null, 0, FNV_OFFSET_BASIS);
+        }
+        int limit = Math.max(maxValueLength, 0);
+        StringBuilder builder = new StringBuilder(Math.min(limit, 64));
+        long hash = FNV_OFFSET_BASIS;
+        int length = 0;
+        if (paramValue instanceof Object[] values) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    hash = (hash ^ ',') * FNV_PRIME;
+                    length = append(builder, ',', length, limit);
+                }
+                CharSequence sequence = toSequence(values[i]);
+                for (int j = 0; j < sequence.length(); j++) {
+                    char ch = sequence.charAt(j);
+                    hash = (hash ^ ch) * FNV_PRIME;
+                    length = append(builder, ch, length, limit);
+                }
+            }
+        } else {
+            CharSequence sequence = toSequence(paramValue);
+            for (int j = 0; j < sequence.length(); j++) {
+                char ch = sequence.charAt(j);
+                hash = (hash ^ ch) * FNV_PRIME;
+                length = append(builder, ch, length, limit);
+            }
+        }
+        if (length > builder.length() && !builder.isEmpty() && Character.isHighSurrogate(builder.charAt(builder.length() - 1))) {
+            builder.setLength(builder.length() - 1);
+        }
+        return new MaliciousAccessSnapshot(method, path, remoteAddress, paramName, builder.toString(), length, hash);
+    }
+
+    /**
+     * Returns whether the value has been truncated or not
+     */
+    public boolean isTruncated() {
+        return value != null && valueLength > value.length();
+    }
+
+    @Nonnull
+    private static CharSequence toSequence(@Nullable Object value) {
+        if (value == null) {
+            return "";    // $NON-NLS-1$
+        }
+        return (value instanceof CharSequence sequence) ? sequence : value.toString();
+    }
+
+    private static int append(@Nonnull StringBuilder builder, char ch, int length, int limit) {
+        if (length < limit) {
+            builder.append(ch);
+        }
+        return length == Integer.MAX_VALUE ? length : length + 1;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.event;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.context.ApplicationEvent;
+import com.yookue.springstarter.injectiondefender.rule.RuleCategory;
+import lombok.Getter;
+
+
+/**
+ * Event when an injection of the custom rules be intercepted, such as path traversal or command injection
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.rule.RuleCategory
+ * @see com.yookue.springstarter.injectiondefender.exception.MaliciousRuleException
+ */
+@Getter
+@SuppressWarnings("unused")
+public class MaliciousRuleEvent extends ApplicationEvent {
+    private RuleCategory category;
+    private String paramName;
+    private Object paramValue;
+
+    /**
+     * Constructs the event with the object which initially occurred
+     * <p>
+     * If thrown by filter, this may be a {@link jakarta.servlet.http.HttpServletRequest}
+     * <br>
+     * If thrown by jackson, this may be a {@link com.fasterxml.jackson.core.JsonParser}
+     */
+    public MaliciousRuleEvent(@Nonnull Object source, @Nullable RuleCategory category) {
+        super(source);
+        this.category = category;
+    }
+
+    public MaliciousRuleEvent(@Nonnull Object source, @Nullable RuleCategory category, @Nullable String paramName, @Nullable Object paramValue) {
+        super(source);
+        this.category = category;
+        this.paramName = paramName;
+        this.paramValue = paramValue;
+    }
+
+    /**
+     * Constructs the event with the snapshot of the request
+     * <p>
+     * The parameter value of the event is the truncated value of the snapshot, so the event never pins the request or a large payload
+     */
+    public MaliciousRuleEvent(@Nonnull MaliciousAccessSnapshot snapshot, @Nullable RuleCategory category) {
+        super(snapshot);
+        this.category = category;
+        this.paramName = snapshot.getParamName();
+        this.paramValue = snapshot.getValue();
+    }
+
+    /**
+     * Returns the snapshot of the request, if the event is constructed with a snapshot
+     */
+    @Nullable
+    public MaliciousAccessSnapshot getSnapshot() {
+        return (source instanceof MaliciousAccessSnapshot snapshot) ? snapshot : null;
+    }
+}
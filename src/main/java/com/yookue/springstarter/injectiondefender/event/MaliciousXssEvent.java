@@ -52,4 +52,23 @@ public class MaliciousXssEvent extends ApplicationEvent {
         this.paramName = paramName;
         this.paramValue = paramValue;
     }
+
+    /**
+     * Constructs the event with the snapshot of the request
+     * <p>
+     * The parameter value of the event is the truncated value of the snapshot, so the event never pins the request or a large payload
+     */
+    public MaliciousXssEvent(@Nonnull MaliciousAccessSnapshot snapshot) {
+        super(snapshot);
+        this.paramName = snapshot.getParamName();
+        this.paramValue = snapshot.getValue();
+    }
+
+    /**
+     * Returns the snapshot of the request, if the event is constructed with a snapshot
+     */
+    @Nullable
+    public MaliciousAccessSnapshot getSnapshot() {
+        return (source instanceof MaliciousAccessSnapshot snapshot) ? snapshot : null;
+    }
 }
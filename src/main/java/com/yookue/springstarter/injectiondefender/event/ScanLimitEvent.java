@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.event;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.context.ApplicationEvent;
+import lombok.Getter;
+
+
+/**
+ * Event when a value or a request that exceeds a scan limit be skipped, or a value be truncated for cleaning
+ * <p>
+ * The snapshot holds the leading chars of the value only, so its value length is not the length of the full value
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.support.ScanBudget
+ */
+@Getter
+@SuppressWarnings("unused")
+public class ScanLimitEvent extends ApplicationEvent {
+    private final String limit;
+    private final String paramName;
+
+    public ScanLimitEvent(@Nonnull MaliciousAccessSnapshot snapshot, @Nullable String limit) {
+        super(snapshot);
+        this.limit = limit;
+        this.paramName = snapshot.getParamName();
+    }
+
+    @Nonnull
+    public MaliciousAccessSnapshot getSnapshot() {
+        return (MaliciousAccessSnapshot) source;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.exception;
+
+
+import jakarta.annotation.Nullable;
+import com.yookue.commonplexus.javaseutil.exception.MaliciousAccessException;
+import com.yookue.springstarter.injectiondefender.rule.RuleCategory;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.experimental.StandardException;
+
+
+/**
+ * Checked exception thrown that may be an injection of the custom rules, such as path traversal or command injection
+ *
+ * @author David Hsing
+ */
+@NoArgsConstructor
+@Getter
+@StandardException
+@SuppressWarnings("unused")
+public class MaliciousRuleException extends MaliciousAccessException {
+    private RuleCategory category;
+    private String paramName;
+    private Object paramValue;
+
+    public MaliciousRuleException(@Nullable String message, @Nullable RuleCategory category, @Nullable String paramName, @Nullable Object paramValue) {
+        super(message);
+        this.category = category;
+        this.paramName = paramName;
+        this.paramValue = paramValue;
+    }
+
+    public MaliciousRuleException(@Nullable String message, @Nullable Throwable cause, @Nullable RuleCategory category, @Nullable String paramName, @Nullable Object paramValue) {
+        super(message, cause);
+        this.category = category;
+        this.paramName = paramName;
+        this.paramValue = paramValue;
+    }
+
+    public MaliciousRuleException(@Nullable Throwable cause, @Nullable RuleCategory category, @Nullable String paramName, @Nullable Object paramValue) {
+        super(cause);
+        this.category = category;
+        this.paramName = paramName;
+        this.paramValue = paramValue;
+    }
+}
@@ -18,30 +18,54 @@ package com.yookue.springstarter.injectiondefender.filter;
 
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Map;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.apache.commons.lang3.BooleanUtils;
+import jakarta.servlet.http.Part;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.FastByteArrayOutputStream;
 import org.springframework.web.filter.OncePerRequestFilter;
-import com.yookue.commonplexus.javaseutil.util.BooleanUtilsWraps;
-import com.yookue.commonplexus.javaseutil.util.JsoupParserWraps;
-import com.yookue.commonplexus.springutil.util.AntPathWraps;
-import com.yookue.commonplexus.springutil.util.UriUtilsWraps;
+import com.yookue.springstarter.injectiondefender.event.MaliciousAccessSnapshot;
+import com.yookue.springstarter.injectiondefender.event.MaliciousRuleEvent;
 import com.yookue.springstarter.injectiondefender.event.MaliciousSqlEvent;
 import com.yookue.springstarter.injectiondefender.event.MaliciousXssEvent;
+import com.yookue.springstarter.injectiondefender.event.ScanLimitEvent;
+import com.yookue.springstarter.injectiondefender.exception.MaliciousRuleException;
 import com.yookue.springstarter.injectiondefender.exception.MaliciousSqlException;
 import com.yookue.springstarter.injectiondefender.exception.MaliciousXssException;
+import com.yookue.springstarter.injectiondefender.metrics.DefenderMetrics;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicy;
 import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import com.yookue.springstarter.injectiondefender.rule.RuleCategory;
+import com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.scanner.ByteInjectionScanner;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionListener;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import com.yookue.springstarter.injectiondefender.scanner.JsonStreamScanner;
+import com.yookue.springstarter.injectiondefender.scanner.ParallelScanner;
+import com.yookue.springstarter.injectiondefender.scanner.ScanSession;
+import com.yookue.springstarter.injectiondefender.support.DefenderContext;
+import com.yookue.springstarter.injectiondefender.support.DefenderContextResolver;
 import com.yookue.springstarter.injectiondefender.support.InjectionDefenderRequestWrapper;
-import com.yookue.springstarter.injectiondefender.util.InjectionDefenderUtils;
-import lombok.AllArgsConstructor;
-import lombok.RequiredArgsConstructor;
+import com.yookue.springstarter.injectiondefender.support.InspectedBodyRequestWrapper;
+import com.yookue.springstarter.injectiondefender.support.LazyInspectionRequestWrapper;
+import com.yookue.springstarter.injectiondefender.support.ParameterInspector;
+import com.yookue.springstarter.injectiondefender.support.ScanBudget;
+import com.yookue.springstarter.injectiondefender.tracker.OffenderTracker;
 import lombok.Setter;
 
 
@@ -51,61 +75,355 @@ import lombok.Setter;
  * @author David Hsing
  * @see org.springframework.web.filter.OncePerRequestFilter
  */
-@RequiredArgsConstructor
-@AllArgsConstructor
 @SuppressWarnings("unused")
 public class InjectionDefenderFilter extends OncePerRequestFilter implements ApplicationEventPublisherAware {
+    private static final String OFFENSE_ATTRIBUTE = OffenderTracker.class.getName() + ".OFFENDED";    // $NON-NLS-1$
     private final InjectionDefenderProperties properties;
 
     @Setter
     private ApplicationEventPublisher applicationEventPublisher;
 
+    @Setter
+    private DefenderContextResolver contextResolver;
+
+    @Setter
+    private HtmlSanitizer htmlSanitizer;
+
+    @Setter
+    private JsonStreamScanner jsonStreamScanner;
+
+    @Setter
+    private OffenderTracker offenderTracker;
+
+    @Setter
+    private ParallelScanner parallelScanner;
+
+    /**
+     * Whether a {@link com.yookue.springstarter.injectiondefender.interceptor.HandlerInspectionInterceptor} is registered, otherwise {@link com.yookue.springstarter.injectiondefender.filter.InspectionMode#HANDLER} inspects the parameters eagerly
+     */
+    @Setter
+    private boolean handlerInspection;
+
+    private DefenderMetrics metrics = DefenderMetrics.NOOP;
+
+    public InjectionDefenderFilter(@Nonnull InjectionDefenderProperties properties) {
+        this.properties = properties;
+        this.contextResolver = new DefenderContextResolver(properties);
+    }
+
+    public InjectionDefenderFilter(@Nonnull InjectionDefenderProperties properties, @Nullable ApplicationEventPublisher applicationEventPublisher) {
+        this(properties);
+        this.applicationEventPublisher = applicationEventPublisher;
+    }
+
+    public void setMetrics(@Nullable DefenderMetrics metrics) {
+        this.metrics = (metrics == null) ? DefenderMetrics.NOOP : metrics;
+    }
+
     @Override
     protected void doFilterInternal(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull FilterChain chain) throws ServletException, IOException {
-        InjectionDefenderProperties.SqlProtection sqlProps = properties.getSqlProtection();
-        InjectionDefenderProperties.XssProtection xssProps = properties.getXssProtection();
-        boolean sqlValidate = BooleanUtils.isTrue(sqlProps.getEnabled()), xssValidate = BooleanUtils.isTrue(xssProps.getEnabled());
-        Map<String, String[]> parameters = request.getParameterMap();
-        if (!CollectionUtils.isEmpty(parameters)) {
-            for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
-                if (sqlValidate && InjectionDefenderUtils.maybeSqlInjection(entry.getValue())) {
-                    if (applicationEventPublisher != null) {
-                        applicationEventPublisher.publishEvent(new MaliciousSqlEvent(request, entry.getKey(), entry.getValue()));
-                    }
-                    if (BooleanUtils.isTrue(sqlProps.getThrowsException())) {
-                        throw new MaliciousSqlException("Request may be a malicious access", entry.getKey(), entry.getValue());
-                    }
-                }
-                if (xssValidate && InjectionDefenderUtils.maybeXssInjection(entry.getValue())) {
-                    if (applicationEventPublisher != null) {
-                        applicationEventPublisher.publishEvent(new MaliciousXssEvent(request, entry.getKey(), entry.getValue()));
-                    }
-                    if (BooleanUtils.isTrue(xssProps.getThrowsException())) {
-                        throw new MaliciousXssException("Request may be a malicious access", entry.getKey(), entry.getValue());
-                    }
-                }
+        if (offenderTracker != null && offenderTracker.isBlocked(offenderTracker.resolveClient(request))) {
+            rejectOffender(response);
+            return;
+        }
+        DefenderContext defender = contextResolver.resolve(request);
+        ScanBudget budget = new ScanBudget(defender.getPolicy(), defender.getRules(), (limit, name, value) -> publishLimit(defender, limit, name, value));
+        request.setAttribute(ScanBudget.BUDGET_ATTRIBUTE, budget);
+        HttpServletRequest inspected;
+        DefenderMetrics.Scope scope = metrics.start(DefenderMetrics.SOURCE_FILTER, request.getRequestURI());
+        try {
+            if (defender.getPolicy().isMultipartInspection() && StringUtils.startsWithIgnoreCase(request.getContentType(), "multipart/")) {    // $NON-NLS-1$
+                inspected = inspectParts(request, defender, budget);
+            } else if (defender.getPolicy().getInspectionMode() == InspectionMode.LAZY) {
+                inspected = new LazyInspectionRequestWrapper(inspectBody(request, defender), (name, values, mask) -> inspectParameter(request, defender, budget, name, values, mask));
+            } else if (defender.getPolicy().getInspectionMode() == InspectionMode.HANDLER && handlerInspection) {
+                request.setAttribute(ParameterInspector.INSPECTOR_ATTRIBUTE, (ParameterInspector) (name, values, mask) -> inspectParameter(request, defender, budget, name, request.getParameterValues(name), mask));
+                inspected = inspectBody(request, defender);
+            } else {
+                inspectParameters(request, defender, budget);
+                inspected = inspectBody(request, defender);
             }
+        } catch (IOException | RuntimeException ex) {
+            scope.error(ex);
+            throw ex;
+        } finally {
+            scope.close();
         }
-        if (xssValidate && BooleanUtils.isTrue(xssProps.getCleanParams())) {
-            InjectionDefenderRequestWrapper wrapper = new InjectionDefenderRequestWrapper(request, true, JsoupParserWraps.getSafelist(xssProps.getWhitelistType()));
+        if (defender.isXssValidate() && defender.isXssClean()) {
+            InjectionDefenderRequestWrapper wrapper = (htmlSanitizer != null) ? new InjectionDefenderRequestWrapper(inspected, true, defender.getWhitelistType(), htmlSanitizer) : new InjectionDefenderRequestWrapper(inspected, true, defender.getSafelist());
+            wrapper.setMetrics(metrics);
+            wrapper.setScanBudget(budget);
             chain.doFilter(wrapper, response);
             return;
         }
-        chain.doFilter(request, response);
+        chain.doFilter(inspected, response);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Requests from the blocked clients are always filtered, so they are rejected even on the excluded paths
+     */
     @Override
     protected boolean shouldNotFilter(@Nonnull HttpServletRequest request) throws ServletException {
-        InjectionDefenderProperties.DefenderFilter filterProps = properties.getDefenderFilter();
-        if (!CollectionUtils.isEmpty(filterProps.getExcludePaths())) {
-            String servletPath = UriUtilsWraps.getServletPath(request);
-            return AntPathWraps.matchAnyPatterns(servletPath, filterProps.getExcludePaths());
+        if (offenderTracker != null && offenderTracker.isBlocked(offenderTracker.resolveClient(request))) {
+            return false;
+        }
+        DefenderContext defender = contextResolver.resolve(request);
+        if (defender.isExcluded()) {
+            metrics.recordExcluded(DefenderMetrics.SOURCE_FILTER);
+        }
+        return !defender.isValidate() || super.shouldNotFilter(request);
+    }
+
+    /**
+     * Inspects the parameters before the chain
+     * <p>
+     * Many parameters are scanned by the parallel scanner first, when no scan limit is configured, and only the parameters with injections are inspected again one by one, to report them in order
+     */
+    private void inspectParameters(@Nonnull HttpServletRequest request, @Nonnull DefenderContext defender, @Nonnull ScanBudget budget) throws IOException {
+        Map<String, String[]> parameters = request.getParameterMap();
+        if (CollectionUtils.isEmpty(parameters)) {
+            return;
+        }
+        int scanMask = defender.getScanMask();
+        boolean measured = metrics.isEnabled();
+        long start = metrics.tick(), scanned = 0L;
+        if (parallelScanner != null && budget.isUnlimited() && parallelScanner.isParallel(parameters.size()) && parallelScanner.scanGroups(new ArrayList<>(parameters.values()), scanMask, defender.getRules()) == InjectionScanner.NONE) {
+            if (measured) {
+                for (String[] values : parameters.values()) {
+                    scanned += lengthOf(values);
+                }
+            }
+            metrics.recordScan(DefenderMetrics.SOURCE_FILTER, start, scanned);
+            return;
+        }
+        for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
+            int detected = budget.scan(entry.getKey(), entry.getValue(), scanMask);
+            if (measured) {
+                scanned += lengthOf(entry.getValue());
+            }
+            if (detected != InjectionScanner.NONE) {
+                handleInjection(request, defender, detected, entry.getKey(), entry.getValue());
+            }
+        }
+        metrics.recordScan(DefenderMetrics.SOURCE_FILTER, start, scanned);
+    }
+
+    /**
+     * Inspects a parameter when the application first reads it, for {@link com.yookue.springstarter.injectiondefender.filter.InspectionMode#LAZY}, or when the handler method binds it, for {@link com.yookue.springstarter.injectiondefender.filter.InspectionMode#HANDLER}
+     */
+    private void inspectParameter(@Nonnull HttpServletRequest request, @Nonnull DefenderContext defender, @Nonnull ScanBudget budget, @Nonnull String name, @Nullable String[] values, int mask) throws IOException {
+        long start = metrics.tick();
+        int detected = budget.scan(name, values, defender.getScanMask() & mask);
+        metrics.recordScan(DefenderMetrics.SOURCE_FILTER, start, metrics.isEnabled() ? lengthOf(values) : 0L);
+        if (detected != InjectionScanner.NONE) {
+            handleInjection(request, defender, detected, name, values);
+        }
+    }
+
+    /**
+     * Returns the request that replays the body, after the body has been inspected
+     * <p>
+     * The body is inspected chunk by chunk, up to the max buffer size before the chain, and the remaining bytes are inspected while being read
+     * <br>
+     * Url-encoded forms and multipart bodies are left to the container, as they are inspected as parameters
+     */
+    @Nonnull
+    private HttpServletRequest inspectBody(@Nonnull HttpServletRequest request, @Nonnull DefenderContext defender) throws IOException {
+        long contentLength = request.getContentLengthLong();
+        if (!defender.isBodyInspection() || contentLength == 0L) {
+            return request;
+        }
+        ScanSession session = newBodySession(request, defender);
+        if (session == null) {
+            return request;
         }
-        InjectionDefenderProperties.SqlProtection sqlProps = properties.getSqlProtection();
-        InjectionDefenderProperties.XssProtection xssProps = properties.getXssProtection();
-        if (BooleanUtilsWraps.allNotTrue(sqlProps.getEnabled(), xssProps.getEnabled())) {
-            return true;
+        session = metrics.decorate(session);
+        DefenderPolicy policy = defender.getPolicy();
+        int maxBufferSize = policy.getMaxBufferSize();
+        FastByteArrayOutputStream head = new FastByteArrayOutputStream((contentLength > 0L && contentLength <= maxBufferSize) ? (int) contentLength : Math.max(Math.min(maxBufferSize, policy.getChunkSize()), 1));
+        ServletInputStream input = request.getInputStream();
+        byte[] chunk = new byte[(int) Math.min(policy.getChunkSize(), (contentLength > 0L) ? contentLength : Integer.MAX_VALUE)];
+        boolean finished = false;
+        while (head.size() < maxBufferSize) {
+            int count = input.read(chunk, 0, Math.min(chunk.length, maxBufferSize - head.size()));
+            if (count == -1) {
+                finished = true;
+                break;
+            }
+            head.write(chunk, 0, count);
+            session.feed(chunk, 0, count);
+        }
+        if (finished || head.size() == contentLength) {
+            session.endOfInput();
+            return new InspectedBodyRequestWrapper(request, head.getInputStream(), null, null);
+        }
+        return new InspectedBodyRequestWrapper(request, head.getInputStream(), input, session);
+    }
+
+    @Nullable
+    private ScanSession newBodySession(@Nonnull HttpServletRequest request, @Nonnull DefenderContext defender) throws IOException {
+        InjectionListener listener = (flags, name, value) -> handleInjection(request, defender, flags, name, (value == null) ? null : new String[]{value});
+        return newSession(request.getContentType(), defender, listener);
+    }
+
+    /**
+     * Returns the session that scans a body or a part of the given content type, or {@code null} if the content type is not textual
+     */
+    @Nullable
+    private ScanSession newSession(@Nullable String contentType, @Nonnull DefenderContext defender, @Nonnull InjectionListener listener) throws IOException {
+        if (StringUtils.isBlank(contentType)) {
+            return null;
+        }
+        if (StringUtils.containsIgnoreCase(contentType, "json")) {    // $NON-NLS-1$
+            return (jsonStreamScanner == null) ? null : jsonStreamScanner.newSession(defender.getScanMask(), defender.getRules(), listener);
+        }
+        if (StringUtils.containsIgnoreCase(contentType, "xml") || StringUtils.containsIgnoreCase(contentType, "html")) {    // $NON-NLS-1$ // $NON-NLS-2$
+            return ByteInjectionScanner.newSession(defender.getScanMask(), ByteInjectionScanner.Mode.MARKUP, listener);
+        }
+        if (StringUtils.startsWithIgnoreCase(contentType, "text/")) {    // $NON-NLS-1$
+            return ByteInjectionScanner.newSession(defender.getScanMask(), ByteInjectionScanner.Mode.TEXT, listener);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the request after its query string and parts have been inspected, instead of the parameter map
+     * <p>
+     * Form fields and textual files within the max file size are streamed through a scanning session chunk by chunk, within the scan limits, other files are never read
+     * <br>
+     * Form fields are scanned as plain text whatever their declared content types, since the container exposes every part without a file name as a parameter
+     * <br>
+     * The parts are parsed by the container before any is inspected, so every part, binary files included, is still buffered in memory or on disk as its multipart config allows
+     * <br>
+     * Falls back to the parameter map if the parts are unavailable, such as the servlet has no multipart config
+     */
+    @Nonnull
+    private HttpServletRequest inspectParts(@Nonnull HttpServletRequest request, @Nonnull DefenderContext defender, @Nonnull ScanBudget budget) throws IOException {
+        Collection<Part> parts;
+        try {
+            parts = request.getParts();
+        } catch (ServletException | IllegalStateException ignored) {
+            inspectParameters(request, defender, budget);
+            return request;
+        }
+        String queryString = request.getQueryString();
+        if (StringUtils.isNotEmpty(queryString)) {
+            InjectionListener listener = (flags, name, value) -> handleInjection(request, defender, flags, name, (value == null) ? null : new String[]{value});
+            byte[] bytes = queryString.getBytes(StandardCharsets.UTF_8);
+            ScanSession session = ByteInjectionScanner.newSession(defender.getScanMask(), ByteInjectionScanner.Mode.FORM, listener);
+            try (ScanSession measured = metrics.decorate(session)) {
+                ScanSession budgeted = budget.stream(null, measured);
+                if (budgeted != null) {
+                    budgeted.feed(bytes, 0, bytes.length);
+                    budgeted.endOfInput();
+                }
+            }
+        }
+        if (CollectionUtils.isEmpty(parts)) {
+            return request;
+        }
+        DefenderPolicy policy = defender.getPolicy();
+        byte[] chunk = null;
+        for (Part part : parts) {
+            boolean file = part.getSubmittedFileName() != null;
+            if (file && (!policy.isMultipartFileInspection() || part.getSize() > policy.getMaxPartFileSize())) {
+                continue;
+            }
+            String partName = part.getName();
+            InjectionListener listener = (flags, name, value) -> handleInjection(request, defender, flags, partName, (value == null) ? null : new String[]{value});
+            ScanSession session = file ? newSession(part.getContentType(), defender, listener) : ByteInjectionScanner.newSession(defender.getScanMask(), ByteInjectionScanner.Mode.TEXT, listener);
+            if (session == null) {
+                continue;
+            }
+            try (ScanSession measured = metrics.decorate(session)) {
+                ScanSession budgeted = budget.stream(partName, measured);
+                if (budgeted == null) {
+                    continue;
+                }
+                if (chunk == null) {
+                    chunk = new byte[policy.getChunkSize()];
+                }
+                try (InputStream input = part.getInputStream()) {
+                    int count;
+                    while (!budgeted.isFinished() && (count = input.read(chunk)) != -1) {
+                        budgeted.feed(chunk, 0, count);
+                    }
+                }
+                budgeted.endOfInput();
+            }
+        }
+        return request;
+    }
+
+    private void handleInjection(@Nonnull HttpServletRequest request, @Nonnull DefenderContext defender, int detected, @Nullable String name, @Nullable String[] values) throws IOException {
+        MaliciousAccessSnapshot snapshot = (applicationEventPublisher == null) ? null : defender.snapshotOf(name, values);
+        // Records one offense per request, no matter how many parameters are malicious
+        if (offenderTracker != null && request.getAttribute(OFFENSE_ATTRIBUTE) == null) {
+            request.setAttribute(OFFENSE_ATTRIBUTE, Boolean.TRUE);
+            offenderTracker.recordOffense(offenderTracker.resolveClient(request));
+        }
+        if (InjectionScanner.hasSqlInjection(detected)) {
+            metrics.recordHit(DefenderMetrics.TYPE_SQL, defender.getRoute());
+            if (snapshot != null) {
+                long start = metrics.tick();
+                applicationEventPublisher.publishEvent(new MaliciousSqlEvent(snapshot));
+                metrics.recordPublish(DefenderMetrics.TYPE_SQL, start);
+            }
+            if (defender.isSqlThrows()) {
+                throw new MaliciousSqlException("Request may be a malicious access", name, values);
+            }
+        }
+        if (InjectionScanner.hasXssInjection(detected)) {
+            metrics.recordHit(DefenderMetrics.TYPE_XSS, defender.getRoute());
+            if (snapshot != null) {
+                long start = metrics.tick();
+                applicationEventPublisher.publishEvent(new MaliciousXssEvent(snapshot));
+                metrics.recordPublish(DefenderMetrics.TYPE_XSS, start);
+            }
+            if (defender.isXssThrows()) {
+                throw new MaliciousXssException("Request may be a malicious access", name, values);
+            }
+        }
+        for (RuleCategory category : RuleCategory.customOf(detected)) {
+            metrics.recordHit(category.getType(), defender.getRoute());
+            if (snapshot != null) {
+                long start = metrics.tick();
+                applicationEventPublisher.publishEvent(new MaliciousRuleEvent(snapshot, category));
+                metrics.recordPublish(category.getType(), start);
+            }
+            if (defender.isRuleThrows()) {
+                throw new MaliciousRuleException("Request may be a malicious access", category, name, values);
+            }
+        }
+    }
+
+    private void publishLimit(@Nonnull DefenderContext defender, @Nonnull String limit, @Nullable String name, @Nullable String value) {
+        if (applicationEventPublisher != null) {
+            applicationEventPublisher.publishEvent(new ScanLimitEvent(defender.snapshotOf(name, value), limit));
+        }
+    }
+
+    /**
+     * Rejects the request from a blocked client, before any parameter is parsed
+     */
+    private void rejectOffender(@Nonnull HttpServletResponse response) {
+        metrics.recordBlocked(DefenderMetrics.SOURCE_FILTER);
+        int status = offenderTracker.getBlockStatus();
+        response.setStatus(status);
+        if (status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(offenderTracker.getBlockDuration().toSeconds(), 1L)));
+        }
+    }
+
+    private static long lengthOf(@Nullable String[] values) {
+        long result = 0L;
+        if (values != null) {
+            for (String value : values) {
+                result += (value == null) ? 0 : value.length();
+            }
         }
-        return super.shouldNotFilter(request);
+        return result;
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.filter;
+
+
+/**
+ * Modes of inspecting the request parameters in {@link com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter}
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public enum InspectionMode {
+    /**
+     * Inspects all the parameters before the chain, which parses the whole parameter map up front
+     */
+    EAGER,
+
+    /**
+     * Inspects each parameter when the application first reads it, so the parameters are never parsed if the application never reads them
+     */
+    LAZY,
+
+    /**
+     * Inspects the parameters that the handler method binds only, in a {@link org.springframework.web.servlet.HandlerInterceptor}, so the parameters that no controller reads are never scanned
+     * <p>
+     * Falls back to {@link #EAGER} if the interceptor is not registered, such as the mode is switched to this by a refresh after startup
+     */
+    HANDLER
+}
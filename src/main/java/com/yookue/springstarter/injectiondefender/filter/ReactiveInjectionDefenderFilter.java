@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.filter;
+
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.jsoup.Jsoup;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import com.yookue.springstarter.injectiondefender.event.MaliciousAccessSnapshot;
+import com.yookue.springstarter.injectiondefender.event.MaliciousRuleEvent;
+import com.yookue.springstarter.injectiondefender.event.MaliciousSqlEvent;
+import com.yookue.springstarter.injectiondefender.event.MaliciousXssEvent;
+import com.yookue.springstarter.injectiondefender.event.ScanLimitEvent;
+import com.yookue.springstarter.injectiondefender.exception.MaliciousRuleException;
+import com.yookue.springstarter.injectiondefender.exception.MaliciousSqlException;
+import com.yookue.springstarter.injectiondefender.exception.MaliciousXssException;
+import com.yookue.springstarter.injectiondefender.metrics.DefenderMetrics;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicy;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicyHolder;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import com.yookue.springstarter.injectiondefender.publisher.AsyncEventPublisher;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager;
+import com.yookue.springstarter.injectiondefender.rule.RuleCategory;
+import com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.scanner.ByteInjectionScanner;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionListener;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import com.yookue.springstarter.injectiondefender.scanner.JsonStreamScanner;
+import com.yookue.springstarter.injectiondefender.scanner.RuleMatcher;
+import com.yookue.springstarter.injectiondefender.scanner.ScanSession;
+import com.yookue.springstarter.injectiondefender.support.ScanBudget;
+import lombok.Getter;
+import lombok.Setter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+
+/**
+ * {@link org.springframework.web.server.WebFilter} for injection defender
+ * <p>
+ * Query parameters and form data are inspected as strings, json, xml and text bodies are inspected as their {@link org.springframework.core.io.buffer.DataBuffer}s stream through, without buffering
+ * <br>
+ * Nothing blocks the event loop, xss cleaning and event delivery are offloaded to bounded {@link reactor.core.scheduler.Scheduler}s
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter
+ */
+@SuppressWarnings("unused")
+public class ReactiveInjectionDefenderFilter implements WebFilter, Ordered {
+    private final DefenderPolicyHolder policyHolder;
+
+    @Setter
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Setter
+    private HtmlSanitizer htmlSanitizer;
+
+    @Setter
+    private JsonStreamScanner jsonStreamScanner;
+
+    @Setter
+    private DetectionRuleManager ruleManager;
+
+    @Setter
+    private Scheduler cleanScheduler = Schedulers.boundedElastic();
+
+    /**
+     * The scheduler to deliver events on, listeners of a synchronous publisher never run on the event loop
+     */
+    @Setter
+    private Scheduler eventScheduler = Schedulers.boundedElastic();
+
+    private DefenderMetrics metrics = DefenderMetrics.NOOP;
+
+    @Getter
+    @Setter
+    private int order = Ordered.HIGHEST_PRECEDENCE + 100;
+
+    public ReactiveInjectionDefenderFilter(@Nonnull InjectionDefenderProperties properties) {
+        this(new DefenderPolicyHolder(properties));
+    }
+
+    public ReactiveInjectionDefenderFilter(@Nonnull DefenderPolicyHolder policyHolder) {
+        this.policyHolder = policyHolder;
+    }
+
+    public void setMetrics(@Nullable DefenderMetrics metrics) {
+        this.metrics = (metrics == null) ? DefenderMetrics.NOOP : metrics;
+    }
+
+    @Override
+    @Nonnull
+    public Mono<Void> filter(@Nonnull ServerWebExchange exchange, @Nonnull WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+        DefenderPolicy policy = policyHolder.get().routeOf(path);
+        RuleMatcher rules = (ruleManager == null) ? null : ruleManager.getMatcher();
+        int ruleMask = (rules == null) ? InjectionScanner.NONE : (rules.getFlags() & ~InjectionScanner.BUILTIN_INJECTIONS);
+        if (!policy.isEnabled() && ruleMask == InjectionScanner.NONE) {
+            return chain.filter(exchange);
+        }
+        if (policy.getExcludePathMatcher().matches(path)) {
+            metrics.recordExcluded(DefenderMetrics.SOURCE_REACTIVE);
+            return chain.filter(exchange);
+        }
+        int scanMask = (policy.isSqlEnabled() ? InjectionScanner.SQL_INJECTION : InjectionScanner.NONE) | (policy.isXssEnabled() ? InjectionScanner.XSS_INJECTION : InjectionScanner.NONE) | ruleMask;
+        boolean xssClean = policy.isXssEnabled() && policy.isXssClean();
+        ScanBudget budget = new ScanBudget(policy, rules, (limit, name, value) -> publishLimit(request, policy, limit, name, value));
+        ServerWebExchange inspected;
+        try {
+            inspectValues(request, policy, budget, request.getQueryParams(), scanMask);
+            inspected = inspectBody(exchange, policy, scanMask, rules);
+        } catch (IOException | RuntimeException ex) {
+            return Mono.error(ex);
+        }
+        MediaType contentType = request.getHeaders().getContentType();
+        if (contentType != null && MediaType.APPLICATION_FORM_URLENCODED.isCompatibleWith(contentType)) {
+            return exchange.getFormData().flatMap(formData -> {
+                try {
+                    inspectValues(request, policy, budget, formData, scanMask);
+                } catch (IOException | RuntimeException ex) {
+                    return Mono.error(ex);
+                }
+                return xssClean ? cleanExchange(inspected, policy, budget, formData) : Mono.just(inspected);
+            }).flatMap(chain::filter);
+        }
+        return xssClean ? cleanExchange(inspected, policy, budget, null).flatMap(chain::filter) : chain.filter(inspected);
+    }
+
+    private void inspectValues(@Nonnull ServerHttpRequest request, @Nonnull DefenderPolicy policy, @Nonnull ScanBudget budget, @Nullable MultiValueMap<String, String> values, int scanMask) throws IOException {
+        if (CollectionUtils.isEmpty(values)) {
+            return;
+        }
+        boolean measured = metrics.isEnabled();
+        long start = metrics.tick(), scanned = 0L;
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            int detected = InjectionScanner.NONE;
+            for (String value : entry.getValue()) {
+                detected |= budget.scan(entry.getKey(), value, scanMask & ~detected);
+                if (measured && value != null) {
+                    scanned += value.length();
+                }
+            }
+            if (detected != InjectionScanner.NONE) {
+                handleInjection(request, policy, detected, entry.getKey(), entry.getValue().toArray(String[]::new));
+            }
+        }
+        metrics.recordScan(DefenderMetrics.SOURCE_REACTIVE, start, scanned);
+    }
+
+    /**
+     * Returns the exchange whose body is inspected as it streams through
+     * <p>
+     * An injection is signalled as an error of the body, so the handler fails before the body is bound
+     */
+    @Nonnull
+    private ServerWebExchange inspectBody(@Nonnull ServerWebExchange exchange, @Nonnull DefenderPolicy policy, int scanMask, @Nullable RuleMatcher rules) throws IOException {
+        ServerHttpRequest request = exchange.getRequest();
+        ScanSession created = newBodySession(request, policy, scanMask, rules);
+        if (created == null) {
+            return exchange;
+        }
+        ScanSession session = metrics.decorate(created);
+        ServerHttpRequest decorated = new ServerHttpRequestDecorator(request) {
+            @Override
+            @Nonnull
+            public Flux<DataBuffer> getBody() {
+                return super.getBody().<DataBuffer>handle((buffer, sink) -> {
+                    try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                        while (iterator.hasNext() && !session.isFinished()) {
+                            session.feed(iterator.next());
+                        }
+                    } catch (IOException | RuntimeException ex) {
+                        DataBufferUtils.release(buffer);
+                        sink.error(ex);
+                        return;
+                    }
+                    sink.next(buffer);
+                }).concatWith(Mono.defer(() -> {
+                    try {
+                        session.endOfInput();
+                    } catch (IOException | RuntimeException ex) {
+                        return Mono.error(ex);
+                    }
+                    return Mono.empty();
+                }));
+            }
+        };
+        return exchange.mutate().request(decorated).build();
+    }
+
+    @Nullable
+    private ScanSession newBodySession(@Nonnull ServerHttpRequest request, @Nonnull DefenderPolicy policy, int scanMask, @Nullable RuleMatcher rules) throws IOException {
+        MediaType contentType = request.getHeaders().getContentType();
+        if (contentType == null) {
+            return null;
+        }
+        InjectionListener listener = (flags, name, value) -> handleInjection(request, policy, flags, name, (value == null) ? null : new String[]{value});
+        String subtype = contentType.getSubtype();
+        if (StringUtils.containsIgnoreCase(subtype, "json")) {    // $NON-NLS-1$
+            return (jsonStreamScanner == null) ? null : jsonStreamScanner.newSession(scanMask, rules, listener);
+        }
+        if (StringUtils.containsIgnoreCase(subtype, "xml") || StringUtils.containsIgnoreCase(subtype, "html")) {    // $NON-NLS-1$ // $NON-NLS-2$
+            return ByteInjectionScanner.newSession(scanMask, ByteInjectionScanner.Mode.MARKUP, listener);
+        }
+        if (StringUtils.equalsIgnoreCase(contentType.getType(), "text")) {    // $NON-NLS-1$
+            return ByteInjectionScanner.newSession(scanMask, ByteInjectionScanner.Mode.TEXT, listener);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the exchange with the cleaned query parameters and form data, cleaned on the clean scheduler
+     */
+    @Nonnull
+    private Mono<ServerWebExchange> cleanExchange(@Nonnull ServerWebExchange exchange, @Nonnull DefenderPolicy policy, @Nonnull ScanBudget budget, @Nullable MultiValueMap<String, String> formData) {
+        MultiValueMap<String, String> queryParams = exchange.getRequest().getQueryParams();
+        boolean cleanQuery = containsMarkup(queryParams), cleanForm = containsMarkup(formData);
+        if (!cleanQuery && !cleanForm) {
+            return Mono.just(exchange);
+        }
+        return Mono.fromCallable(() -> {
+            ServerWebExchange result = exchange;
+            if (cleanQuery) {
+                MultiValueMap<String, String> encoded = new LinkedMultiValueMap<>(queryParams.size());
+                cleanValues(queryParams, policy, budget).forEach((key, values) -> values.forEach(value -> encoded.add(UriUtils.encodeQueryParam(key, StandardCharsets.UTF_8), (value == null) ? null : UriUtils.encodeQueryParam(value, StandardCharsets.UTF_8))));
+                URI uri = UriComponentsBuilder.fromUri(exchange.getRequest().getURI()).replaceQueryParams(encoded).build(true).toUri();
+                result = result.mutate().request(builder -> builder.uri(uri)).build();
+            }
+            if (cleanForm) {
+                Mono<MultiValueMap<String, String>> cleaned = Mono.just(cleanValues(formData, policy, budget));
+                result = new ServerWebExchangeDecorator(result) {
+                    @Override
+                    @Nonnull
+                    public Mono<MultiValueMap<String, String>> getFormData() {
+                        return cleaned;
+                    }
+                };
+            }
+            return result;
+        }).subscribeOn(cleanScheduler);
+    }
+
+    @Nonnull
+    private MultiValueMap<String, String> cleanValues(@Nonnull MultiValueMap<String, String> values, @Nonnull DefenderPolicy policy, @Nonnull ScanBudget budget) throws IOException {
+        MultiValueMap<String, String> result = new LinkedMultiValueMap<>(values.size());
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            for (String value : entry.getValue()) {
+                result.add(entry.getKey(), cleanValue(entry.getKey(), value, policy, budget));
+            }
+        }
+        return result;
+    }
+
+    private String cleanValue(@Nonnull String name, @Nullable String value, @Nonnull DefenderPolicy policy, @Nonnull ScanBudget budget) throws IOException {
+        if (!StringUtils.containsAny(value, '<', '>')) {
+            return value;
+        }
+        long start = metrics.tick();
+        String result = budget.clean(name, value, content -> (htmlSanitizer != null) ? htmlSanitizer.sanitize(content, policy.getWhitelistType()) : Jsoup.clean(content, policy.getSafelist()));
+        metrics.recordClean(DefenderMetrics.SOURCE_REACTIVE, start);
+        return result;
+    }
+
+    private boolean containsMarkup(@Nullable MultiValueMap<String, String> values) {
+        if (CollectionUtils.isEmpty(values)) {
+            return false;
+        }
+        for (List<String> list : values.values()) {
+            for (String value : list) {
+                if (StringUtils.containsAny(value, '<', '>')) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void handleInjection(@Nonnull ServerHttpRequest request, @Nonnull DefenderPolicy policy, int detected, @Nullable String name, @Nullable String[] values) throws IOException {
+        MaliciousAccessSnapshot snapshot = (applicationEventPublisher == null) ? null : snapshotOf(request, policy, name, values);
+        if (InjectionScanner.hasSqlInjection(detected)) {
+            metrics.recordHit(DefenderMetrics.TYPE_SQL, policy.getRoutePrefix());
+            if (snapshot != null) {
+                publishEvent(new MaliciousSqlEvent(snapshot), DefenderMetrics.TYPE_SQL);
+            }
+            if (policy.isSqlThrows()) {
+                throw new MaliciousSqlException("Request may be a malicious access", name, values);
+            }
+        }
+        if (InjectionScanner.hasXssInjection(detected)) {
+            metrics.recordHit(DefenderMetrics.TYPE_XSS, policy.getRoutePrefix());
+            if (snapshot != null) {
+                publishEvent(new MaliciousXssEvent(snapshot), DefenderMetrics.TYPE_XSS);
+            }
+            if (policy.isXssThrows()) {
+                throw new MaliciousXssException("Request may be a malicious access", name, values);
+            }
+        }
+        for (RuleCategory category : RuleCategory.customOf(detected)) {
+            metrics.recordHit(category.getType(), policy.getRoutePrefix());
+            if (snapshot != null) {
+                publishEvent(new MaliciousRuleEvent(snapshot, category), category.getType());
+            }
+            if (policy.isRuleThrows()) {
+                throw new MaliciousRuleException("Request may be a malicious access", category, name, values);
+            }
+        }
+    }
+
+    private void publishLimit(@Nonnull ServerHttpRequest request, @Nonnull DefenderPolicy policy, @Nonnull String limit, @Nullable String name, @Nullable String value) {
+        if (applicationEventPublisher != null) {
+            publishEvent(new ScanLimitEvent(snapshotOf(request, policy, name, (value == null) ? null : new String[]{value}), limit), null);
+        }
+    }
+
+    /**
+     * Publishes the given event, an {@link com.yookue.springstarter.injectiondefender.publisher.AsyncEventPublisher} only enqueues it, others are called on the event scheduler
+     */
+    private void publishEvent(@Nonnull Object event, @Nullable String type) {
+        ApplicationEventPublisher publisher = applicationEventPublisher;
+        if (publisher instanceof AsyncEventPublisher) {
+            long start = metrics.tick();
+            publisher.publishEvent(event);
+            if (type != null) {
+                metrics.recordPublish(type, start);
+            }
+            return;
+        }
+        eventScheduler.schedule(() -> {
+            long start = metrics.tick();
+            publisher.publishEvent(event);
+            if (type != null) {
+                metrics.recordPublish(type, start);
+            }
+        });
+    }
+
+    private MaliciousAccessSnapshot snapshotOf(@Nonnull ServerHttpRequest request, @Nonnull DefenderPolicy policy, @Nullable String name, @Nullable String[] values) {
+        InetSocketAddress address = request.getRemoteAddress();
+        String remoteAddress = (address == null) ? null : ((address.getAddress() != null) ? address.getAddress().getHostAddress() : address.getHostString());
+        return MaliciousAccessSnapshot.of(request.getMethod().name(), request.getPath().value(), remoteAddress, name, values, policy.getEventValueLength());
+    }
+}
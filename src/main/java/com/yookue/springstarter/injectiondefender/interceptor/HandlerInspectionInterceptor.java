@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.interceptor;
+
+
+import java.beans.PropertyDescriptor;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.CookieValue;
+import org.springframework.web.bind.annotation.MatrixVariable;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.SessionAttribute;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import com.yookue.springstarter.injectiondefender.annotation.AllowHtml;
+import com.yookue.springstarter.injectiondefender.annotation.SkipInjectionCheck;
+import com.yookue.springstarter.injectiondefender.annotation.SqlCheckOnly;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import com.yookue.springstarter.injectiondefender.support.ParameterInspector;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * {@link org.springframework.web.servlet.HandlerInterceptor} that inspects the request parameters that the handler method binds only, for {@link com.yookue.springstarter.injectiondefender.filter.InspectionMode#HANDLER}
+ * <p>
+ * A {@link com.yookue.springstarter.injectiondefender.interceptor.HandlerInspectionPlan} is precomputed for each handler method on startup, from the {@code @RequestParam} names, the simple parameters, the properties of the model attributes, and the {@link com.yookue.springstarter.injectiondefender.annotation.SkipInjectionCheck}, {@link com.yookue.springstarter.injectiondefender.annotation.SqlCheckOnly} or {@link com.yookue.springstarter.injectiondefender.annotation.AllowHtml} on the parameters, the methods or the controllers
+ * <br>
+ * The parameters are inspected by the {@link com.yookue.springstarter.injectiondefender.support.ParameterInspector} that the filter leaves in the request, so the events, the metrics and the offender tracking stay in the filter
+ * <br>
+ * The handler methods that take the raw request, or a map of the request parameters, inspect all the parameters
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter
+ */
+@SuppressWarnings("unused")
+public class HandlerInspectionInterceptor implements HandlerInterceptor, WebMvcConfigurer, ApplicationContextAware, SmartInitializingSingleton {
+    private static final Set<Class<? extends Annotation>> UNBOUND_ANNOTATIONS = Set.of(RequestBody.class, RequestPart.class, PathVariable.class, RequestHeader.class, CookieValue.class, MatrixVariable.class, RequestAttribute.class, SessionAttribute.class);
+
+    private final Map<Method, HandlerInspectionPlan> plans = new ConcurrentHashMap<>();
+    private final ParameterNameDiscoverer nameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    @Setter
+    private ApplicationContext applicationContext;
+
+    @Getter
+    @Setter
+    private int order;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (applicationContext == null) {
+            return;
+        }
+        for (RequestMappingHandlerMapping mapping : applicationContext.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+            mapping.getHandlerMethods().values().forEach(this::planOf);
+        }
+    }
+
+    @Override
+    public void addInterceptors(@Nonnull InterceptorRegistry registry) {
+        registry.addInterceptor(this).order(order);
+    }
+
+    @Override
+    public boolean preHandle(@Nonnull HttpServletRequest request, @Nonnull HttpServletResponse response, @Nonnull Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod handlerMethod) || !(request.getAttribute(ParameterInspector.INSPECTOR_ATTRIBUTE) instanceof ParameterInspector inspector)) {
+            return true;
+        }
+        // Inspected once, even if the request is dispatched again
+        request.removeAttribute(ParameterInspector.INSPECTOR_ATTRIBUTE);
+        HandlerInspectionPlan plan = planOf(handlerMethod);
+        if (plan.isEmpty()) {
+            return true;
+        }
+        if (plan.isIterating()) {
+            for (Map.Entry<String, String[]> entry : request.getParameterMap().entrySet()) {
+                int mask = plan.maskOf(entry.getKey());
+                if (mask != InjectionScanner.NONE) {
+                    inspector.inspect(entry.getKey(), entry.getValue(), mask);
+                }
+            }
+            return true;
+        }
+        for (Map.Entry<String, Integer> entry : plan.getMasks().entrySet()) {
+            String[] values = request.getParameterValues(entry.getKey());
+            if (values != null && entry.getValue() != InjectionScanner.NONE) {
+                inspector.inspect(entry.getKey(), values, entry.getValue());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the plan of the given handler method, which is computed once
+     */
+    @Nonnull
+    public HandlerInspectionPlan planOf(@Nonnull HandlerMethod handlerMethod) {
+        return plans.computeIfAbsent(handlerMethod.getMethod(), method -> compile(handlerMethod));
+    }
+
+    @Nonnull
+    private HandlerInspectionPlan compile(@Nonnull HandlerMethod handlerMethod) {
+        Integer typeMask = maskOf(handlerMethod.getBeanType());
+        Integer methodMask = maskOf(handlerMethod.getMethod());
+        int handlerMask = (methodMask != null) ? methodMask : ((typeMask != null) ? typeMask : InjectionScanner.ALL_INJECTIONS);
+        Map<String, Integer> masks = new HashMap<>();
+        boolean rooted = false;
+        for (MethodParameter parameter : handlerMethod.getMethodParameters()) {
+            parameter.initParameterNameDiscovery(nameDiscoverer);
+            Integer parameterMask = maskOf(parameter);
+            int mask = (parameterMask != null) ? parameterMask : handlerMask;
+            Class<?> type = parameter.getNestedParameterType();
+            RequestParam requestParam = parameter.getParameterAnnotation(RequestParam.class);
+            if (requestParam != null) {
+                String name = StringUtils.hasText(requestParam.name()) ? requestParam.name() : parameter.getParameterName();
+                if ((Map.class.isAssignableFrom(type) && !StringUtils.hasText(requestParam.name())) || name == null) {
+                    return new HandlerInspectionPlan(Map.of(), true, handlerMask);
+                }
+                masks.merge(name, mask, (left, right) -> left | right);
+                continue;
+            }
+            if (UNBOUND_ANNOTATIONS.stream().anyMatch(parameter::hasParameterAnnotation)) {
+                continue;
+            }
+            if (ServletRequest.class.isAssignableFrom(type) || WebRequest.class.isAssignableFrom(type)) {
+                return new HandlerInspectionPlan(Map.of(), true, handlerMask);
+            }
+            if (BeanUtils.isSimpleProperty(type)) {
+                String name = parameter.getParameterName();
+                if (name == null) {
+                    return new HandlerInspectionPlan(Map.of(), true, handlerMask);
+                }
+                masks.merge(name, mask, (left, right) -> left | right);
+                continue;
+            }
+            if (!type.isInterface() && !Map.class.isAssignableFrom(type) && collectProperties(type, mask, masks)) {
+                rooted = true;
+            }
+        }
+        if (rooted) {
+            Map<String, Integer> roots = new HashMap<>(masks.size());
+            masks.forEach((name, mask) -> roots.merge(HandlerInspectionPlan.rootOf(name), mask, (left, right) -> left | right));
+            masks = roots;
+        }
+        masks.values().removeIf(mask -> mask == InjectionScanner.NONE);
+        return new HandlerInspectionPlan(Map.copyOf(masks), rooted, InjectionScanner.NONE);
+    }
+
+    /**
+     * Collects the bindable properties of a model attribute, from the setters, or the constructor parameters for the immutable types
+     */
+    private boolean collectProperties(@Nonnull Class<?> type, int mask, @Nonnull Map<String, Integer> masks) {
+        boolean result = false;
+        for (PropertyDescriptor descriptor : BeanUtils.getPropertyDescriptors(type)) {
+            if (descriptor.getWriteMethod() != null) {
+                Integer propertyMask = maskOf(ReflectionUtils.findField(type, descriptor.getName()));
+                masks.merge(descriptor.getName(), (propertyMask != null) ? propertyMask : mask, (left, right) -> left | right);
+                result = true;
+            }
+        }
+        if (result) {
+            return true;
+        }
+        try {
+            Constructor<?> constructor = BeanUtils.getResolvableConstructor(type);
+            String[] names = BeanUtils.getParameterNames(constructor);
+            for (int i = 0; i < names.length; i++) {
+                Integer propertyMask = maskOf(MethodParameter.forExecutable(constructor, i).getParameter());
+                masks.merge(names[i], (propertyMask != null) ? propertyMask : mask, (left, right) -> left | right);
+                result = true;
+            }
+        } catch (IllegalStateException ignored) {
+        }
+        return result;
+    }
+
+    @Nullable
+    private static Integer maskOf(@Nonnull MethodParameter parameter) {
+        if (parameter.hasParameterAnnotation(SkipInjectionCheck.class)) {
+            return InjectionScanner.NONE;
+        }
+        if (parameter.hasParameterAnnotation(SqlCheckOnly.class) || parameter.hasParameterAnnotation(AllowHtml.class)) {
+            return InjectionScanner.NON_XSS_INJECTIONS;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Integer maskOf(@Nullable AnnotatedElement element) {
+        if (element == null) {
+            return null;
+        }
+        if (AnnotatedElementUtils.hasAnnotation(element, SkipInjectionCheck.class)) {
+            return InjectionScanner.NONE;
+        }
+        if (AnnotatedElementUtils.hasAnnotation(element, SqlCheckOnly.class) || AnnotatedElementUtils.hasAnnotation(element, AllowHtml.class)) {
+            return InjectionScanner.NON_XSS_INJECTIONS;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.interceptor;
+
+
+import java.util.Collections;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.web.bind.WebDataBinder;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Precomputed plan of the request parameters that a handler method binds, and the injection flags to detect in each of them
+ * <p>
+ * The names of {@code @RequestParam} are matched exactly, and the properties of the model attributes are matched by the root of the parameter names, such as {@code address} of {@code address.city} or {@code items[0]}
+ * <br>
+ * The roots with the default or marker prefix of {@link org.springframework.web.bind.WebDataBinder}, such as {@code !title} or {@code _title}, are matched without the prefix as well, since the binder binds them onto the property
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.interceptor.HandlerInspectionInterceptor
+ */
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@Getter
+@ToString
+@SuppressWarnings("unused")
+public final class HandlerInspectionPlan {
+    /**
+     * The plan that inspects all the parameters, for the handlers that may read any of them
+     */
+    public static final HandlerInspectionPlan ALL = new HandlerInspectionPlan(Collections.emptyMap(), true, InjectionScanner.ALL_INJECTIONS);
+
+    /**
+     * The injection flags of each parameter name, or each root of the parameter names
+     */
+    private final Map<String, Integer> masks;
+
+    /**
+     * Whether the parameters are matched by their roots, so all the parameters of the request are iterated
+     */
+    private final boolean rooted;
+
+    /**
+     * The injection flags of the parameters that are not in the masks, {@code NONE} if they are never bound
+     */
+    private final int defaultMask;
+
+    /**
+     * Returns the injection flags to detect in the given parameter
+     */
+    public int maskOf(@Nullable String name) {
+        if (name == null) {
+            return InjectionScanner.NONE;
+        }
+        if (!rooted) {
+            Integer result = masks.get(name);
+            return (result != null) ? result : defaultMask;
+        }
+        String root = rootOf(name);
+        Integer result = masks.get(root);
+        if (result == null && root.length() > 1 && (root.startsWith(WebDataBinder.DEFAULT_FIELD_DEFAULT_PREFIX) || root.startsWith(WebDataBinder.DEFAULT_FIELD_MARKER_PREFIX))) {
+            result = masks.get(root.substring(1));
+        }
+        return (result != null) ? result : defaultMask;
+    }
+
+    /**
+     * Returns whether all the parameters of the request are iterated, otherwise the names in the masks are looked up
+     */
+    public boolean isIterating() {
+        return rooted || defaultMask != InjectionScanner.NONE;
+    }
+
+    /**
+     * Returns whether no parameter is inspected
+     */
+    public boolean isEmpty() {
+        return masks.isEmpty() && defaultMask == InjectionScanner.NONE;
+    }
+
+    @Nonnull
+    static String rootOf(@Nonnull String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            if (ch == '.' || ch == '[') {
+                return name.substring(0, i);
+            }
+        }
+        return name;
+    }
+}
@@ -18,91 +18,300 @@ package com.yookue.springstarter.injectiondefender.jackson;
 
 
 import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.CharBuffer;
+import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
-import jakarta.servlet.http.HttpServletRequest;
-import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.util.CollectionUtils;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
 import com.yookue.commonplexus.javaseutil.constant.CharVariantConst;
-import com.yookue.commonplexus.javaseutil.util.BooleanUtilsWraps;
 import com.yookue.commonplexus.javaseutil.util.JsoupParserWraps;
-import com.yookue.commonplexus.springutil.util.AntPathWraps;
-import com.yookue.commonplexus.springutil.util.UriUtilsWraps;
 import com.yookue.commonplexus.springutil.util.WebUtilsWraps;
+import com.yookue.springstarter.injectiondefender.annotation.AllowHtml;
+import com.yookue.springstarter.injectiondefender.annotation.SkipInjectionCheck;
+import com.yookue.springstarter.injectiondefender.annotation.SqlCheckOnly;
+import com.yookue.springstarter.injectiondefender.event.MaliciousRuleEvent;
 import com.yookue.springstarter.injectiondefender.event.MaliciousSqlEvent;
 import com.yookue.springstarter.injectiondefender.event.MaliciousXssEvent;
+import com.yookue.springstarter.injectiondefender.event.ScanLimitEvent;
+import com.yookue.springstarter.injectiondefender.exception.MaliciousRuleException;
 import com.yookue.springstarter.injectiondefender.exception.MaliciousSqlException;
 import com.yookue.springstarter.injectiondefender.exception.MaliciousXssException;
+import com.yookue.springstarter.injectiondefender.metrics.DefenderMetrics;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicy;
 import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
-import com.yookue.springstarter.injectiondefender.util.InjectionDefenderUtils;
-import lombok.AllArgsConstructor;
-import lombok.RequiredArgsConstructor;
+import com.yookue.springstarter.injectiondefender.rule.RuleCategory;
+import com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import com.yookue.springstarter.injectiondefender.support.DefenderContext;
+import com.yookue.springstarter.injectiondefender.support.DefenderContextResolver;
+import com.yookue.springstarter.injectiondefender.support.ScanBudget;
+import lombok.Setter;
 
 
 /**
  * {@link com.fasterxml.jackson.databind.JsonDeserializer} for injection defender
+ * <p>
+ * The {@link com.yookue.springstarter.injectiondefender.support.DefenderContext} is resolved on the first string token, and then kept in the attributes of the {@link com.fasterxml.jackson.databind.DeserializationContext}
+ * <br>
+ * The checks of a property are narrowed by {@link com.yookue.springstarter.injectiondefender.annotation.AllowHtml}, {@link com.yookue.springstarter.injectiondefender.annotation.SkipInjectionCheck} and {@link com.yookue.springstarter.injectiondefender.annotation.SqlCheckOnly}, on the property or on the type that declares it
+ * <br>
+ * String tokens are trimmed and scanned in place, over the text characters of the parser, so a benign value allocates its string only once, and the parameters are trimmed here as well, without another deserializer
  *
  * @author David Hsing
  */
-@RequiredArgsConstructor
-@AllArgsConstructor
 @SuppressWarnings("unused")
-public class InjectionDefenderDeserializer extends JsonDeserializer<String> {
-    private final InjectionDefenderProperties properties;
+public class InjectionDefenderDeserializer extends JsonDeserializer<String> implements ContextualDeserializer {
+    /**
+     * The injection flags of the property, within the flags of the policy
+     */
+    private final int propertyMask;
+
+    /**
+     * Whether the property may be cleaned, if the policy cleans xss
+     */
+    private final boolean propertyClean;
+
     private ApplicationEventPublisher publisher;
 
+    @Setter
+    private DefenderContextResolver contextResolver;
+
+    @Setter
+    private HtmlSanitizer htmlSanitizer;
+
+    private DefenderMetrics metrics = DefenderMetrics.NOOP;
+
+    public InjectionDefenderDeserializer(@Nonnull InjectionDefenderProperties properties) {
+        this.contextResolver = new DefenderContextResolver(properties);
+        this.propertyMask = InjectionScanner.ALL_INJECTIONS;
+        this.propertyClean = true;
+    }
+
+    public InjectionDefenderDeserializer(@Nonnull InjectionDefenderProperties properties, @Nullable ApplicationEventPublisher publisher) {
+        this(properties);
+        this.publisher = publisher;
+    }
+
+    protected InjectionDefenderDeserializer(@Nonnull InjectionDefenderDeserializer source, int propertyMask, boolean propertyClean) {
+        this.publisher = source.publisher;
+        this.contextResolver = source.contextResolver;
+        this.htmlSanitizer = source.htmlSanitizer;
+        this.metrics = source.metrics;
+        this.propertyMask = propertyMask;
+        this.propertyClean = propertyClean;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The annotations of the property, or of the type that declares it, are resolved once here, so the tokens are inspected without lookups
+     */
+    @Override
+    public JsonDeserializer<?> createContextual(@Nullable DeserializationContext context, @Nullable BeanProperty property) {
+        if (property == null) {
+            return this;
+        }
+        if (hasAnnotation(property, SkipInjectionCheck.class)) {
+            return derive(InjectionScanner.NONE, false);
+        }
+        if (hasAnnotation(property, SqlCheckOnly.class)) {
+            return derive(InjectionScanner.NON_XSS_INJECTIONS, false);
+        }
+        if (hasAnnotation(property, AllowHtml.class)) {
+            return derive(InjectionScanner.NON_XSS_INJECTIONS, true);
+        }
+        return derive(InjectionScanner.ALL_INJECTIONS, true);
+    }
+
     @Override
     public String deserialize(@Nullable JsonParser parser, @Nullable DeserializationContext context) throws IOException {
         if (parser == null) {
             return null;
         }
+        DefenderContext defender = resolveContext(context);
+        if (!parser.hasToken(JsonToken.VALUE_STRING)) {
+            return deserializeText(parser, context, defender);
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset(), length = parser.getTextLength();
+        DefenderPolicy policy = defender.getPolicy();
+        if (policy.isTrimParams()) {
+            while (length > 0 && chars[offset] <= ' ') {
+                offset++;
+                length--;
+            }
+            while (length > 0 && chars[offset + length - 1] <= ' ') {
+                length--;
+            }
+            if (length == 0) {
+                return policy.isTrimToNull() ? null : StringUtils.EMPTY;
+            }
+        }
+        if (!defender.isValidate() || !isInspected() || isBlank(chars, offset, length)) {
+            if (defender.isExcluded() && defender.getRequest() != null) {
+                metrics.recordExcluded(DefenderMetrics.SOURCE_JACKSON);
+            }
+            return new String(chars, offset, length);
+        }
+        String fieldName = parser.currentName();
+        long start = metrics.tick();
+        ScanBudget budget = resolveBudget(context, defender);
+        int scanMask = defender.getScanMask() & propertyMask;
+        int detected = budget.isUnlimited() ? InjectionScanner.scan(chars, offset, length, scanMask, defender.getRules()) : budget.scan(fieldName, CharBuffer.wrap(chars, offset, length), scanMask);
+        metrics.recordScan(DefenderMetrics.SOURCE_JACKSON, start, length);
+        String fieldValue = new String(chars, offset, length);
+        if (detected == InjectionScanner.NONE && !(propertyClean && defender.isXssValidate() && defender.isXssClean() && containsAngleBracket(chars, offset, length))) {
+            return fieldValue;
+        }
+        return handleValue(defender, budget, fieldName, fieldValue, detected);
+    }
+
+    public void setMetrics(@Nullable DefenderMetrics metrics) {
+        this.metrics = (metrics == null) ? DefenderMetrics.NOOP : metrics;
+    }
+
+    /**
+     * Returns the value of a token other than a string, such as a number that coerced to a string
+     */
+    private String deserializeText(@Nonnull JsonParser parser, @Nullable DeserializationContext context, @Nonnull DefenderContext defender) throws IOException {
         String fieldValue = parser.getText();
-        if (StringUtils.isBlank(fieldValue)) {
-            return trimIfPossible(fieldValue);
-        }
-        HttpServletRequest request = WebUtilsWraps.getContextServletRequest();
-        InjectionDefenderProperties.DefenderFilter filterProps = properties.getDefenderFilter();
-        InjectionDefenderProperties.SqlProtection sqlProps = properties.getSqlProtection();
-        InjectionDefenderProperties.XssProtection xssProps = properties.getXssProtection();
-        if (request == null || BooleanUtilsWraps.allNotTrue(sqlProps.getEnabled(), xssProps.getEnabled())) {
-            return trimIfPossible(fieldValue);
-        }
-        String servletPath = UriUtilsWraps.getServletPath(request);
-        boolean sqlValidate = BooleanUtils.isTrue(sqlProps.getEnabled()) && (CollectionUtils.isEmpty(filterProps.getExcludePaths()) || !AntPathWraps.matchAnyPatterns(servletPath, filterProps.getExcludePaths()));
-        boolean xssValidate = BooleanUtils.isTrue(xssProps.getEnabled()) && (CollectionUtils.isEmpty(filterProps.getExcludePaths()) || !AntPathWraps.matchAnyPatterns(servletPath, filterProps.getExcludePaths()));
-        if (!sqlValidate && !xssValidate) {
-            return trimIfPossible(fieldValue);
+        if (StringUtils.isBlank(fieldValue) || !defender.isValidate() || !isInspected()) {
+            if (defender.isExcluded() && defender.getRequest() != null) {
+                metrics.recordExcluded(DefenderMetrics.SOURCE_JACKSON);
+            }
+            return defender.trimIfPossible(fieldValue);
         }
         String fieldName = parser.currentName();
-        if (sqlValidate && InjectionDefenderUtils.maybeSqlInjection(fieldValue)) {
+        long start = metrics.tick();
+        ScanBudget budget = resolveBudget(context, defender);
+        int detected = budget.scan(fieldName, fieldValue, defender.getScanMask() & propertyMask);
+        metrics.recordScan(DefenderMetrics.SOURCE_JACKSON, start, fieldValue.length());
+        return handleValue(defender, budget, fieldName, fieldValue, detected);
+    }
+
+    /**
+     * Returns the value after the detected injections are handled, and the value is cleaned if necessary
+     */
+    private String handleValue(@Nonnull DefenderContext defender, @Nonnull ScanBudget budget, @Nullable String fieldName, @Nonnull String fieldValue, int detected) throws IOException {
+        long start;
+        if (InjectionScanner.hasSqlInjection(detected)) {
+            metrics.recordHit(DefenderMetrics.TYPE_SQL, defender.getRoute());
             if (publisher != null) {
-                publisher.publishEvent(new MaliciousSqlEvent(request, fieldName, fieldValue));
+                start = metrics.tick();
+                publisher.publishEvent(new MaliciousSqlEvent(defender.snapshotOf(fieldName, fieldValue)));
+                metrics.recordPublish(DefenderMetrics.TYPE_SQL, start);
             }
-            if (BooleanUtils.isTrue(sqlProps.getThrowsException())) {
+            if (defender.isSqlThrows()) {
                 throw new MaliciousSqlException("Request may be a malicious access", fieldName, fieldValue);
             }
         }
-        if (xssValidate) {
-            if (InjectionDefenderUtils.maybeXssInjection(fieldValue)) {
+        for (RuleCategory category : RuleCategory.customOf(detected)) {
+            metrics.recordHit(category.getType(), defender.getRoute());
+            if (publisher != null) {
+                start = metrics.tick();
+                publisher.publishEvent(new MaliciousRuleEvent(defender.snapshotOf(fieldName, fieldValue), category));
+                metrics.recordPublish(category.getType(), start);
+            }
+            if (defender.isRuleThrows()) {
+                throw new MaliciousRuleException("Request may be a malicious access", category, fieldName, fieldValue);
+            }
+        }
+        if (defender.isXssValidate()) {
+            if (InjectionScanner.hasXssInjection(detected)) {
+                metrics.recordHit(DefenderMetrics.TYPE_XSS, defender.getRoute());
                 if (publisher != null) {
-                    publisher.publishEvent(new MaliciousXssEvent(request, fieldName, fieldValue));
+                    start = metrics.tick();
+                    publisher.publishEvent(new MaliciousXssEvent(defender.snapshotOf(fieldName, fieldValue)));
+                    metrics.recordPublish(DefenderMetrics.TYPE_XSS, start);
                 }
-                if (BooleanUtils.isTrue(xssProps.getThrowsException())) {
+                if (defender.isXssThrows()) {
                     throw new MaliciousXssException("Request may be a malicious access", fieldName, fieldValue);
                 }
             }
-            if (BooleanUtils.isTrue(xssProps.getCleanParams()) && StringUtils.containsAny(fieldValue, CharVariantConst.ANGLE_BRACKET_LEFT, CharVariantConst.ANGLE_BRACKET_RIGHT)) {
-                fieldValue = JsoupParserWraps.cleanWith(fieldValue, xssProps.getWhitelistType());
+            if (propertyClean && defender.isXssClean() && StringUtils.containsAny(fieldValue, CharVariantConst.ANGLE_BRACKET_LEFT, CharVariantConst.ANGLE_BRACKET_RIGHT)) {
+                start = metrics.tick();
+                fieldValue = budget.clean(fieldName, fieldValue, value -> (htmlSanitizer != null) ? htmlSanitizer.sanitize(value, defender.getWhitelistType()) : JsoupParserWraps.cleanWith(value, defender.getWhitelistType()));
+                metrics.recordClean(DefenderMetrics.SOURCE_JACKSON, start);
             }
         }
-        return trimIfPossible(fieldValue);
+        return defender.trimIfPossible(fieldValue);
+    }
+
+    private boolean isInspected() {
+        return propertyMask != InjectionScanner.NONE || propertyClean;
+    }
+
+    /**
+     * Returns this deserializer if the given settings are the same, otherwise a copy with them
+     */
+    @Nonnull
+    private InjectionDefenderDeserializer derive(int mask, boolean clean) {
+        return (mask == propertyMask && clean == propertyClean) ? this : new InjectionDefenderDeserializer(this, mask, clean);
+    }
+
+    private static boolean hasAnnotation(@Nonnull BeanProperty property, @Nonnull Class<? extends Annotation> type) {
+        return property.getAnnotation(type) != null || property.getContextAnnotation(type) != null;
     }
 
-    private String trimIfPossible(@Nullable String text) {
-        return BooleanUtils.isTrue(properties.getTrimParams()) ? (BooleanUtils.isTrue(properties.getTrimToNull()) ? StringUtils.trimToNull(text) : StringUtils.trim(text)) : text;
+    private static boolean isBlank(@Nonnull char[] chars, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (!Character.isWhitespace(chars[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsAngleBracket(@Nonnull char[] chars, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (chars[i] == CharVariantConst.ANGLE_BRACKET_LEFT || chars[i] == CharVariantConst.ANGLE_BRACKET_RIGHT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the scan budget of the request, shared with the filter, or a budget of the document without a filtered request, which is kept in the attributes of the {@link com.fasterxml.jackson.databind.DeserializationContext} as well
+     */
+    @Nonnull
+    private ScanBudget resolveBudget(@Nullable DeserializationContext context, @Nonnull DefenderContext defender) {
+        if (context != null && context.getAttribute(ScanBudget.BUDGET_ATTRIBUTE) instanceof ScanBudget cached) {
+            return cached;
+        }
+        if (defender.getRequest() != null && defender.getRequest().getAttribute(ScanBudget.BUDGET_ATTRIBUTE) instanceof ScanBudget shared) {
+            if (context != null) {
+                context.setAttribute(ScanBudget.BUDGET_ATTRIBUTE, shared);
+            }
+            return shared;
+        }
+        ScanBudget result = new ScanBudget(defender.getPolicy(), defender.getRules(), (limit, name, value) -> {
+            if (publisher != null) {
+                publisher.publishEvent(new ScanLimitEvent(defender.snapshotOf(name, value), limit));
+            }
+        });
+        if (context != null) {
+            context.setAttribute(ScanBudget.BUDGET_ATTRIBUTE, result);
+        }
+        return result;
+    }
+
+    @Nonnull
+    private DefenderContext resolveContext(@Nullable DeserializationContext context) {
+        if (context != null && context.getAttribute(DefenderContext.CONTEXT_ATTRIBUTE) instanceof DefenderContext cached) {
+            return cached;
+        }
+        DefenderContext result = contextResolver.resolve(WebUtilsWraps.getContextServletRequest());
+        if (context != null) {
+            context.setAttribute(DefenderContext.CONTEXT_ATTRIBUTE, result);
+        }
+        return result;
     }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.metrics;
+
+
+import java.util.function.ToDoubleFunction;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.util.ClassUtils;
+import com.yookue.springstarter.injectiondefender.publisher.AsyncEventPublisher;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager;
+import com.yookue.springstarter.injectiondefender.sanitizer.CachingHtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+
+/**
+ * {@link io.micrometer.core.instrument.binder.MeterBinder} that exposes the counters that injection defender keeps anyway
+ * <p>
+ * Includes the prefilter counts of {@link com.yookue.springstarter.injectiondefender.scanner.InjectionScanner}, the counters of {@link com.yookue.springstarter.injectiondefender.publisher.AsyncEventPublisher}, the reloads of {@link com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager}, and the statistics of the sanitize cache
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class DefenderMeterBinder implements MeterBinder {
+    public static final String PREFILTER_COUNTER = "injection.defender.prefilter";    // $NON-NLS-1$
+    public static final String EVENT_COUNTER = "injection.defender.events";    // $NON-NLS-1$
+    public static final String EVENT_PENDING_GAUGE = "injection.defender.events.pending";    // $NON-NLS-1$
+    public static final String RULE_RELOAD_COUNTER = "injection.defender.rules.reloads";    // $NON-NLS-1$
+    public static final String RULE_GAUGE = "injection.defender.rules";    // $NON-NLS-1$
+    public static final String SANITIZE_CACHE_NAME = "injection-defender-sanitizer";    // $NON-NLS-1$
+    private static final String CAFFEINE_CLASS = "com.github.benmanes.caffeine.cache.Caffeine";    // $NON-NLS-1$
+
+    private final AsyncEventPublisher eventPublisher;
+    private final HtmlSanitizer htmlSanitizer;
+    private final DetectionRuleManager ruleManager;
+
+    public DefenderMeterBinder(@Nullable AsyncEventPublisher eventPublisher, @Nullable HtmlSanitizer htmlSanitizer) {
+        this(eventPublisher, htmlSanitizer, null);
+    }
+
+    public DefenderMeterBinder(@Nullable AsyncEventPublisher eventPublisher, @Nullable HtmlSanitizer htmlSanitizer, @Nullable DetectionRuleManager ruleManager) {
+        this.eventPublisher = eventPublisher;
+        this.htmlSanitizer = htmlSanitizer;
+        this.ruleManager = ruleManager;
+    }
+
+    @Override
+    public void bindTo(@Nonnull MeterRegistry registry) {
+        FunctionCounter.builder(PREFILTER_COUNTER, InjectionScanner.class, type -> InjectionScanner.getPrefilterSkippedCount()).tag("result", "skipped").description("Values that skipped the full scan").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        FunctionCounter.builder(PREFILTER_COUNTER, InjectionScanner.class, type -> InjectionScanner.getPrefilterPassedCount()).tag("result", "passed").description("Values that passed to the full scan").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        if (eventPublisher != null) {
+            bindEventCounter(registry, "delivered", AsyncEventPublisher::getDeliveredCount);    // $NON-NLS-1$
+            bindEventCounter(registry, "coalesced", AsyncEventPublisher::getCoalescedCount);    // $NON-NLS-1$
+            bindEventCounter(registry, "dropped", AsyncEventPublisher::getDroppedCount);    // $NON-NLS-1$
+            bindEventCounter(registry, "failed", AsyncEventPublisher::getFailedCount);    // $NON-NLS-1$
+            Gauge.builder(EVENT_PENDING_GAUGE, eventPublisher, AsyncEventPublisher::getPendingCount).description("Events waiting to be published").register(registry);    // $NON-NLS-1$
+        }
+        if (ruleManager != null) {
+            FunctionCounter.builder(RULE_RELOAD_COUNTER, ruleManager, DetectionRuleManager::getReloadedCount).tag("result", "reloaded").description("Loads of the custom rules").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+            FunctionCounter.builder(RULE_RELOAD_COUNTER, ruleManager, DetectionRuleManager::getFailedCount).tag("result", "failed").description("Reloads of the custom rules that failed and kept the previous rules").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+            Gauge.builder(RULE_GAUGE, ruleManager, DetectionRuleManager::getRuleCount).description("Custom rules in use").register(registry);    // $NON-NLS-1$
+        }
+        if (htmlSanitizer != null && ClassUtils.isPresent(CAFFEINE_CLASS, null)) {
+            CaffeineBinder.bindTo(registry, htmlSanitizer);
+        }
+    }
+
+    private void bindEventCounter(@Nonnull MeterRegistry registry, @Nonnull String result, @Nonnull ToDoubleFunction<AsyncEventPublisher> function) {
+        FunctionCounter.builder(EVENT_COUNTER, eventPublisher, function).tag("result", result).description("Events handled by the async publisher").register(registry);    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+
+    /**
+     * Isolates the caffeine types, so that the binder loads without caffeine in the classpath
+     */
+    private static abstract class CaffeineBinder {
+        static void bindTo(@Nonnull MeterRegistry registry, @Nonnull HtmlSanitizer htmlSanitizer) {
+            if (htmlSanitizer instanceof CachingHtmlSanitizer caching) {
+                CaffeineCacheMetrics.monitor(registry, caching.getCache(), SANITIZE_CACHE_NAME);
+            }
+        }
+    }
+}
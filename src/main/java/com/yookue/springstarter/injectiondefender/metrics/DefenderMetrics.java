@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.metrics;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import com.yookue.springstarter.injectiondefender.scanner.ScanSession;
+
+
+/**
+ * Instrumentation hooks of injection defender
+ * <p>
+ * All the hooks of {@link #NOOP} do nothing, and its ticks are always zero, so the hot paths cost nothing when the metrics are disabled
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.metrics.MicrometerDefenderMetrics
+ */
+@SuppressWarnings("unused")
+public interface DefenderMetrics {
+    String SOURCE_FILTER = "filter";    // $NON-NLS-1$
+    String SOURCE_JACKSON = "jackson";    // $NON-NLS-1$
+    String SOURCE_REACTIVE = "reactive";    // $NON-NLS-1$
+    String TYPE_SQL = "sql";    // $NON-NLS-1$
+    String TYPE_XSS = "xss";    // $NON-NLS-1$
+    String TYPE_PATH_TRAVERSAL = "path-traversal";    // $NON-NLS-1$
+    String TYPE_COMMAND = "command";    // $NON-NLS-1$
+
+    DefenderMetrics NOOP = new DefenderMetrics() {
+    };
+
+    /**
+     * Returns whether the metrics are recorded or not
+     */
+    default boolean isEnabled() {
+        return false;
+    }
+
+    /**
+     * Returns the start tick of a timing, for the {@code startTick} of the record methods
+     */
+    default long tick() {
+        return 0L;
+    }
+
+    /**
+     * Starts an observation of the defender work for a request, which should be closed before the request proceeds
+     *
+     * @param source the source of the work, such as {@link #SOURCE_FILTER}
+     * @param path the request path
+     *
+     * @return the started observation
+     */
+    @Nonnull
+    default Scope start(@Nonnull String source, @Nullable String path) {
+        return Scope.NOOP;
+    }
+
+    /**
+     * Returns the session that records the scanned bytes and the scanning time of the given session
+     */
+    @Nonnull
+    default ScanSession decorate(@Nonnull ScanSession session) {
+        return session;
+    }
+
+    default void recordScan(@Nonnull String source, long startTick, long chars) {
+    }
+
+    default void recordHit(@Nonnull String type, @Nullable String route) {
+    }
+
+    default void recordExcluded(@Nonnull String source) {
+    }
+
+    default void recordBlocked(@Nonnull String source) {
+    }
+
+    default void recordClean(@Nonnull String source, long startTick) {
+    }
+
+    default void recordPublish(@Nonnull String type, long startTick) {
+    }
+
+
+    /**
+     * Scope of an observation
+     */
+    interface Scope extends AutoCloseable {
+        Scope NOOP = () -> {
+        };
+
+        default void error(@Nonnull Throwable cause) {
+        }
+
+        @Override
+        void close();
+    }
+}
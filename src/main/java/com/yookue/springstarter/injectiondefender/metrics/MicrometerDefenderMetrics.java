@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.metrics;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import com.yookue.springstarter.injectiondefender.scanner.ScanSession;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+
+/**
+ * {@link com.yookue.springstarter.injectiondefender.metrics.DefenderMetrics} that records to micrometer
+ * <p>
+ * The defender work of a request is an {@link io.micrometer.observation.Observation} when an observation registry is available, so it shows up in traces, otherwise a plain timer
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class MicrometerDefenderMetrics implements DefenderMetrics {
+    public static final String OBSERVATION_NAME = "injection.defender";    // $NON-NLS-1$
+    public static final String SCAN_TIMER = "injection.defender.scan";    // $NON-NLS-1$
+    public static final String SCANNED_CHARS = "injection.defender.scanned.chars";    // $NON-NLS-1$
+    public static final String SCANNED_BYTES = "injection.defender.scanned.bytes";    // $NON-NLS-1$
+    public static final String HIT_COUNTER = "injection.defender.hits";    // $NON-NLS-1$
+    public static final String EXCLUDED_COUNTER = "injection.defender.excluded";    // $NON-NLS-1$
+    public static final String BLOCKED_COUNTER = "injection.defender.blocked";    // $NON-NLS-1$
+    public static final String CLEAN_TIMER = "injection.defender.clean";    // $NON-NLS-1$
+    public static final String PUBLISH_TIMER = "injection.defender.publish";    // $NON-NLS-1$
+    public static final String SOURCE_TAG = "source";    // $NON-NLS-1$
+    public static final String TYPE_TAG = "type";    // $NON-NLS-1$
+    public static final String PATH_TAG = "path";    // $NON-NLS-1$
+    public static final String ROUTE_TAG = "route";    // $NON-NLS-1$
+    private static final String ROUTE_OTHER = "other";    // $NON-NLS-1$
+    private static final String SOURCE_BODY = "body";    // $NON-NLS-1$
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    private final Map<String, Timer> observationTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> scanTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> scannedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> excludedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> blockedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> cleanTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> publishTimers = new ConcurrentHashMap<>();
+    private final Timer bodyTimer;
+    private final Counter bodyCounter;
+
+    public MicrometerDefenderMetrics(@Nonnull MeterRegistry meterRegistry) {
+        this(meterRegistry, null);
+    }
+
+    public MicrometerDefenderMetrics(@Nonnull MeterRegistry meterRegistry, @Nullable ObservationRegistry observationRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = (observationRegistry == null || observationRegistry.isNoop()) ? null : observationRegistry;
+        this.bodyTimer = Timer.builder(SCAN_TIMER).tag(SOURCE_TAG, SOURCE_BODY).description("Time spent scanning request bodies").register(meterRegistry);    // $NON-NLS-1$
+        this.bodyCounter = Counter.builder(SCANNED_BYTES).tag(SOURCE_TAG, SOURCE_BODY).baseUnit("bytes").description("Bytes of request bodies scanned").register(meterRegistry);    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public long tick() {
+        return System.nanoTime();
+    }
+
+    @Nonnull
+    @Override
+    public Scope start(@Nonnull String source, @Nullable String path) {
+        if (observationRegistry != null) {
+            Observation observation = Observation.createNotStarted(OBSERVATION_NAME, observationRegistry).lowCardinalityKeyValue(SOURCE_TAG, source).highCardinalityKeyValue(PATH_TAG, StringUtils.defaultString(path)).start();
+            return new ObservationScope(observation, observation.openScope());
+        }
+        Timer timer = observationTimers.computeIfAbsent(source, key -> Timer.builder(OBSERVATION_NAME).tag(SOURCE_TAG, key).register(meterRegistry));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return () -> sample.stop(timer);
+    }
+
+    @Nonnull
+    @Override
+    public ScanSession decorate(@Nonnull ScanSession session) {
+        return new MeasuredSession(session);
+    }
+
+    @Override
+    public void recordScan(@Nonnull String source, long startTick, long chars) {
+        scanTimers.computeIfAbsent(source, key -> Timer.builder(SCAN_TIMER).tag(SOURCE_TAG, key).description("Time spent scanning values").register(meterRegistry)).record(System.nanoTime() - startTick, TimeUnit.NANOSECONDS);    // $NON-NLS-1$
+        scannedCounters.computeIfAbsent(source, key -> Counter.builder(SCANNED_CHARS).tag(SOURCE_TAG, key).baseUnit("chars").description("Chars of values scanned").register(meterRegistry)).increment(chars);    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    /**
+     * Counts a hit by the type and the bounded route, such as the matched handler pattern or the path prefix of a route, never the raw path
+     */
+    @Override
+    public void recordHit(@Nonnull String type, @Nullable String route) {
+        meterRegistry.counter(HIT_COUNTER, TYPE_TAG, type, ROUTE_TAG, StringUtils.defaultIfBlank(route, ROUTE_OTHER)).increment();
+    }
+
+    @Override
+    public void recordExcluded(@Nonnull String source) {
+        excludedCounters.computeIfAbsent(source, key -> Counter.builder(EXCLUDED_COUNTER).tag(SOURCE_TAG, key).description("Values or requests skipped by exclusion").register(meterRegistry)).increment();    // $NON-NLS-1$
+    }
+
+    @Override
+    public void recordBlocked(@Nonnull String source) {
+        blockedCounters.computeIfAbsent(source, key -> Counter.builder(BLOCKED_COUNTER).tag(SOURCE_TAG, key).description("Requests rejected from blocked clients").register(meterRegistry)).increment();    // $NON-NLS-1$
+    }
+
+    @Override
+    public void recordClean(@Nonnull String source, long startTick) {
+        cleanTimers.computeIfAbsent(source, key -> Timer.builder(CLEAN_TIMER).tag(SOURCE_TAG, key).description("Time spent cleaning values").register(meterRegistry)).record(System.nanoTime() - startTick, TimeUnit.NANOSECONDS);    // $NON-NLS-1$
+    }
+
+    @Override
+    public void recordPublish(@Nonnull String type, long startTick) {
+        publishTimers.computeIfAbsent(type, key -> Timer.builder(PUBLISH_TIMER).tag(TYPE_TAG, key).description("Time spent publishing events").register(meterRegistry)).record(System.nanoTime() - startTick, TimeUnit.NANOSECONDS);    // $NON-NLS-1$
+    }
+
+
+    private record ObservationScope(@Nonnull Observation observation, @Nonnull Observation.Scope scope) implements Scope {
+        @Override
+        public void error(@Nonnull Throwable cause) {
+            observation.error(cause);
+        }
+
+        @Override
+        public void close() {
+            scope.close();
+            observation.stop();
+        }
+    }
+
+
+    private class MeasuredSession implements ScanSession {
+        private final ScanSession delegate;
+
+        MeasuredSession(@Nonnull ScanSession delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void feed(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            delegate.feed(bytes, offset, length);
+            bodyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            bodyCounter.increment(length);
+        }
+
+        @Override
+        public void feed(@Nonnull ByteBuffer buffer) throws IOException {
+            int length = buffer.remaining();
+            long start = System.nanoTime();
+            delegate.feed(buffer);
+            bodyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            bodyCounter.increment(length);
+        }
+
+        @Override
+        public void endOfInput() throws IOException {
+            delegate.endOfInput();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
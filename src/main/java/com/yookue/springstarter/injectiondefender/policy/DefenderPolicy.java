@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.policy;
+
+
+import java.time.Duration;
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.jsoup.safety.Safelist;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.unit.DataSize;
+import com.yookue.commonplexus.javaseutil.enumeration.JsoupWhitelistType;
+import com.yookue.commonplexus.javaseutil.util.JsoupParserWraps;
+import com.yookue.springstarter.injectiondefender.event.MaliciousAccessSnapshot;
+import com.yookue.springstarter.injectiondefender.filter.InspectionMode;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import com.yookue.springstarter.injectiondefender.support.ExcludePathMatcher;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Immutable policy of injection defender, compiled from {@link com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties}
+ * <p>
+ * The boxed properties are resolved to primitives, and the exclude paths and the safelist are compiled once, so the hot paths never read the mutable properties
+ * <br>
+ * The routes are compiled into policies of their own, derived from the global one, and looked up by {@link #routeOf(String)}
+ *
+ * @author David Hsing
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Builder(access = AccessLevel.PRIVATE, toBuilder = true)
+@Getter
+@ToString
+@SuppressWarnings("unused")
+public final class DefenderPolicy {
+    private final boolean sqlEnabled;
+    private final boolean sqlThrows;
+    private final boolean xssEnabled;
+    private final boolean xssClean;
+    private final boolean xssThrows;
+    private final boolean ruleThrows;
+    private final JsoupWhitelistType whitelistType;
+
+    @ToString.Exclude
+    private final Safelist safelist;
+
+    private final boolean trimParams;
+    private final boolean trimToNull;
+    private final InspectionMode inspectionMode;
+    private final boolean bodyInspection;
+    private final int maxBufferSize;
+    private final int chunkSize;
+    private final boolean multipartInspection;
+    private final boolean multipartFileInspection;
+    private final long maxPartFileSize;
+    private final int maxValueLength;
+    private final LimitPolicy valueLengthPolicy;
+    private final int maxValues;
+    private final LimitPolicy valuesPolicy;
+    private final int maxCleanLength;
+    private final LimitPolicy cleanLengthPolicy;
+    private final long timeBudgetNanos;
+    private final LimitPolicy timeBudgetPolicy;
+    private final int eventValueLength;
+
+    /**
+     * The path prefix of the route that derived this policy, or {@code null} for the global one
+     */
+    private final String routePrefix;
+
+    @ToString.Exclude
+    private final ExcludePathMatcher excludePathMatcher;
+
+    @ToString.Exclude
+    private final RouteTrie<DefenderPolicy> routeTrie;
+
+    /**
+     * Returns the policy that compiled from the given properties
+     *
+     * @param properties the properties to compile
+     *
+     * @return the policy that compiled from the given properties
+     */
+    @Nonnull
+    public static DefenderPolicy of(@Nonnull InjectionDefenderProperties properties) {
+        InjectionDefenderProperties.DefenderFilter filterProps = properties.getDefenderFilter();
+        InjectionDefenderProperties.SqlProtection sqlProps = properties.getSqlProtection();
+        InjectionDefenderProperties.XssProtection xssProps = properties.getXssProtection();
+        InjectionDefenderProperties.BodyInspection bodyProps = properties.getBodyInspection();
+        InjectionDefenderProperties.MultipartInspection multipartProps = properties.getMultipartInspection();
+        DataSize maxPartFileSize = multipartProps.getMaxFileSize();
+        InjectionDefenderProperties.ScanLimits limitProps = properties.getScanLimits();
+        Duration timeBudget = limitProps.getTimeBudget();
+        Integer eventValueLength = properties.getEventPublisher().getMaxValueLength();
+        int maxBufferSize = toIntBytes(bodyProps.getMaxBufferSize(), 65536), chunkSize = Math.max(toIntBytes(bodyProps.getChunkSize(), 8192), 512);
+        DefenderPolicy result = DefenderPolicy.builder()
+            .sqlEnabled(BooleanUtils.isTrue(sqlProps.getEnabled()))
+            .sqlThrows(BooleanUtils.isTrue(sqlProps.getThrowsException()))
+            .xssEnabled(BooleanUtils.isTrue(xssProps.getEnabled()))
+            .xssClean(BooleanUtils.isTrue(xssProps.getCleanParams()))
+            .xssThrows(BooleanUtils.isTrue(xssProps.getThrowsException()))
+            .ruleThrows(BooleanUtils.isTrue(properties.getCustomRules().getThrowsException()))
+            .whitelistType(xssProps.getWhitelistType())
+            .safelist(JsoupParserWraps.getSafelist(xssProps.getWhitelistType()))
+            .trimParams(BooleanUtils.isTrue(properties.getTrimParams()))
+            .trimToNull(BooleanUtils.isTrue(properties.getTrimToNull()))
+            .inspectionMode(ObjectUtils.defaultIfNull(filterProps.getInspectionMode(), InspectionMode.EAGER))
+            .bodyInspection(BooleanUtils.isTrue(bodyProps.getEnabled()))
+            .maxBufferSize(maxBufferSize)
+            .chunkSize(chunkSize)
+            .multipartInspection(BooleanUtils.isTrue(multipartProps.getEnabled()))
+            .multipartFileInspection(BooleanUtils.isTrue(multipartProps.getFileInspection()))
+            .maxPartFileSize((maxPartFileSize == null || maxPartFileSize.isNegative()) ? 65536L : maxPartFileSize.toBytes())
+            .maxValueLength(toPositive(limitProps.getMaxValueLength()))
+            .valueLengthPolicy(limitProps.getValueLengthPolicy())
+            .maxValues(toPositive(limitProps.getMaxValues()))
+            .valuesPolicy(limitProps.getValuesPolicy())
+            .maxCleanLength(toPositive(limitProps.getMaxCleanLength()))
+            .cleanLengthPolicy(limitProps.getCleanLengthPolicy())
+            .timeBudgetNanos((timeBudget == null || timeBudget.isNegative()) ? 0L : timeBudget.toNanos())
+            .timeBudgetPolicy(limitProps.getTimeBudgetPolicy())
+            .eventValueLength((eventValueLength == null || eventValueLength < 0) ? MaliciousAccessSnapshot.DEFAULT_VALUE_LENGTH : eventValueLength)
+            .excludePathMatcher(new ExcludePathMatcher(filterProps.getExcludePaths()))
+            .build();
+        return result.withRoutes(properties.getRoutes());
+    }
+
+    /**
+     * Returns the policy of the longest route that prefixes the given path
+     *
+     * @param path the path within the application
+     *
+     * @return the policy of the longest route that prefixes the given path, or this policy if no route matches
+     */
+    @Nonnull
+    public DefenderPolicy routeOf(@Nullable String path) {
+        if (routeTrie == null) {
+            return this;
+        }
+        DefenderPolicy result = routeTrie.match(path);
+        return (result == null) ? this : result;
+    }
+
+    /**
+     * Returns whether any protection is enabled or not
+     */
+    public boolean isEnabled() {
+        return sqlEnabled || xssEnabled;
+    }
+
+    @Nonnull
+    private DefenderPolicy withRoutes(@Nullable List<InjectionDefenderProperties.Route> routes) {
+        if (CollectionUtils.isEmpty(routes)) {
+            return this;
+        }
+        RouteTrie<DefenderPolicy> trie = new RouteTrie<>();
+        for (InjectionDefenderProperties.Route route : routes) {
+            if (route != null && StringUtils.isNotBlank(route.getPathPrefix())) {
+                trie.put(route.getPathPrefix(), derive(route));
+            }
+        }
+        return trie.isEmpty() ? this : toBuilder().routeTrie(trie).build();
+    }
+
+    @Nonnull
+    private DefenderPolicy derive(@Nonnull InjectionDefenderProperties.Route route) {
+        JsoupWhitelistType routeWhitelist = ObjectUtils.defaultIfNull(route.getWhitelistType(), whitelistType);
+        Safelist routeSafelist = (routeWhitelist == whitelistType) ? safelist : JsoupParserWraps.getSafelist(routeWhitelist);
+        return toBuilder()
+            .sqlEnabled(BooleanUtils.toBooleanDefaultIfNull(route.getSqlEnabled(), sqlEnabled))
+            .sqlThrows(BooleanUtils.toBooleanDefaultIfNull(route.getSqlThrows(), sqlThrows))
+            .xssEnabled(BooleanUtils.toBooleanDefaultIfNull(route.getXssEnabled(), xssEnabled))
+            .xssClean(BooleanUtils.toBooleanDefaultIfNull(route.getXssClean(), xssClean))
+            .xssThrows(BooleanUtils.toBooleanDefaultIfNull(route.getXssThrows(), xssThrows))
+            .whitelistType(routeWhitelist)
+            .safelist(routeSafelist)
+            .maxBufferSize((route.getMaxBufferSize() == null) ? maxBufferSize : toIntBytes(route.getMaxBufferSize(), maxBufferSize))
+            .maxValueLength((route.getMaxValueLength() == null) ? maxValueLength : toPositive(route.getMaxValueLength()))
+            .maxValues((route.getMaxValues() == null) ? maxValues : toPositive(route.getMaxValues()))
+            .maxCleanLength((route.getMaxCleanLength() == null) ? maxCleanLength : toPositive(route.getMaxCleanLength()))
+            .routePrefix(route.getPathPrefix())
+            .routeTrie(null)
+            .build();
+    }
+
+    private static int toPositive(@Nullable Integer value) {
+        return (value == null || value < 0) ? 0 : value;
+    }
+
+    private static int toIntBytes(@Nullable DataSize size, int defaults) {
+        return (size == null || size.isNegative()) ? defaults : (int) Math.min(size.toBytes(), Integer.MAX_VALUE - 8);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.policy;
+
+
+import java.util.concurrent.atomic.AtomicReference;
+import jakarta.annotation.Nonnull;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+
+
+/**
+ * Holder of the current {@link com.yookue.springstarter.injectiondefender.policy.DefenderPolicy}
+ * <p>
+ * Readers get the policy with a single volatile read, and a refresh replaces it atomically, so the config can be changed without restart or locking
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class DefenderPolicyHolder {
+    private final AtomicReference<DefenderPolicy> policy;
+
+    public DefenderPolicyHolder(@Nonnull InjectionDefenderProperties properties) {
+        this(DefenderPolicy.of(properties));
+    }
+
+    public DefenderPolicyHolder(@Nonnull DefenderPolicy policy) {
+        this.policy = new AtomicReference<>(policy);
+    }
+
+    /**
+     * Returns the current policy
+     */
+    @Nonnull
+    public DefenderPolicy get() {
+        return policy.get();
+    }
+
+    /**
+     * Compiles the given properties, and replaces the current policy with it
+     *
+     * @param properties the properties to compile
+     *
+     * @return the new policy
+     */
+    @Nonnull
+    public DefenderPolicy refresh(@Nonnull InjectionDefenderProperties properties) {
+        DefenderPolicy result = DefenderPolicy.of(properties);
+        policy.set(result);
+        return result;
+    }
+}
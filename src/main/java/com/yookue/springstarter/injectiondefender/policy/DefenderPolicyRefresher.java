@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.policy;
+
+
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import com.yookue.springstarter.injectiondefender.config.InjectionDefenderAutoConfiguration;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+
+/**
+ * {@link org.springframework.context.ApplicationListener} that recompiles the {@link com.yookue.springstarter.injectiondefender.policy.DefenderPolicy} when the environment changes
+ * <p>
+ * The properties are bound freshly from the {@link org.springframework.core.env.Environment}, so the result never depends on the order of the configuration properties rebinder
+ *
+ * @author David Hsing
+ * @see org.springframework.cloud.context.environment.EnvironmentChangeEvent
+ */
+@RequiredArgsConstructor
+@SuppressWarnings("unused")
+public class DefenderPolicyRefresher implements ApplicationListener<EnvironmentChangeEvent>, EnvironmentAware {
+    private final DefenderPolicyHolder policyHolder;
+
+    @Setter
+    private Environment environment;
+
+    @Override
+    public void onApplicationEvent(@Nonnull EnvironmentChangeEvent event) {
+        if (environment == null || event.getKeys().stream().noneMatch(key -> StringUtils.startsWith(key, InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX))) {
+            return;
+        }
+        InjectionDefenderProperties properties = Binder.get(environment).bind(InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX, InjectionDefenderProperties.class).orElseGet(InjectionDefenderProperties::new);
+        policyHolder.refresh(properties);
+    }
+}
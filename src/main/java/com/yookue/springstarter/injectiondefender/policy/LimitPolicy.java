@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.policy;
+
+
+/**
+ * Policies when a scan limit of injection defender is exceeded
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.support.ScanBudget
+ */
+@SuppressWarnings("unused")
+public enum LimitPolicy {
+    /**
+     * Rejects the request with a {@link com.yookue.springstarter.injectiondefender.exception.ScanLimitException}
+     */
+    REJECT,
+
+    /**
+     * Handles the part within the limit only, such as the leading chars of a value, or the leading values of a request
+     * <p>
+     * A value truncated for cleaning loses the rest of its chars, so it publishes a {@link com.yookue.springstarter.injectiondefender.event.ScanLimitEvent} as well
+     */
+    PREFIX,
+
+    /**
+     * Skips the item that exceeds the limit, and publishes a {@link com.yookue.springstarter.injectiondefender.event.ScanLimitEvent}
+     */
+    SKIP
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.policy;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+
+
+/**
+ * Trie of path prefixes, matched by whole path segments
+ * <p>
+ * A lookup walks the segments of a path once, and returns the value of the longest prefix that registered along the way
+ * <br>
+ * Empty segments are ignored, so {@code /api//admin} matches the same prefix as {@code /api/admin}
+ * <br>
+ * The children of a node are kept in an open addressing table, and looked up by the region of the path, so a lookup allocates nothing
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class RouteTrie<T> {
+    private static final String PREFIX_WILDCARD = "/**";    // $NON-NLS-1$
+
+    private final Node<T> root = new Node<>();
+    private int size;
+
+    /**
+     * Registers the value of the given prefix, replacing the previous one of the same prefix
+     *
+     * @param prefix the path prefix, with or without a trailing {@code /**}
+     * @param value the value of the prefix
+     */
+    public void put(@Nonnull String prefix, @Nonnull T value) {
+        String path = StringUtils.removeEnd(prefix.trim(), PREFIX_WILDCARD);
+        Node<T> node = root;
+        int length = path.length(), start = 0;
+        while (start < length) {
+            int end = segmentEnd(path, start);
+            if (end > start) {
+                node = node.putChild(path.substring(start, end));
+            }
+            start = end + 1;
+        }
+        if (node.value == null) {
+            size++;
+        }
+        node.value = value;
+    }
+
+    /**
+     * Returns the value of the longest prefix of the given path
+     *
+     * @param path the path to match
+     *
+     * @return the value of the longest prefix of the given path, or {@code null} if no prefix matches
+     */
+    @Nullable
+    public T match(@Nullable String path) {
+        if (size == 0 || path == null) {
+            return null;
+        }
+        Node<T> node = root;
+        T result = root.value;
+        int length = path.length(), start = 0;
+        while (start < length && node.count > 0) {
+            int end = segmentEnd(path, start);
+            if (end > start) {
+                node = node.getChild(path, start, end);
+                if (node == null) {
+                    break;
+                }
+                if (node.value != null) {
+                    result = node.value;
+                }
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether no prefix is registered
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the count of the registered prefixes
+     */
+    public int size() {
+        return size;
+    }
+
+    private static int segmentEnd(@Nonnull String path, int start) {
+        int result = path.indexOf('/', start);
+        return (result < 0) ? path.length() : result;
+    }
+
+
+    private static class Node<T> {
+        private String[] keys = new String[2];
+        private Node<T>[] children = newChildren(2);
+        private int count;
+        private T value;
+
+        /**
+         * Returns the child of the given segment, which is created if absent
+         */
+        @Nonnull
+        Node<T> putChild(@Nonnull String segment) {
+            int index = indexOf(segment, 0, segment.length());
+            if (keys[index] != null) {
+                return children[index];
+            }
+            if ((count + 1) * 2 > keys.length) {
+                resize();
+                index = indexOf(segment, 0, segment.length());
+            }
+            Node<T> result = new Node<>();
+            keys[index] = segment;
+            children[index] = result;
+            count++;
+            return result;
+        }
+
+        /**
+         * Returns the child of the segment within the given region of the path
+         */
+        @Nullable
+        Node<T> getChild(@Nonnull String path, int start, int end) {
+            int index = indexOf(path, start, end);
+            return (keys[index] == null) ? null : children[index];
+        }
+
+        /**
+         * Returns the slot of the given segment, or the empty slot to put it, the table is never full
+         */
+        private int indexOf(@Nonnull String path, int start, int end) {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            int mask = keys.length - 1, index = (hash ^ (hash >>> 16)) & mask, length = end - start;
+            while (keys[index] != null && !(keys[index].length() == length && path.regionMatches(start, keys[index], 0, length))) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private void resize() {
+            String[] oldKeys = keys;
+            Node<T>[] oldChildren = children;
+            keys = new String[oldKeys.length * 2];
+            children = newChildren(keys.length);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int index = indexOf(oldKeys[i], 0, oldKeys[i].length());
+                    keys[index] = oldKeys[i];
+                    children[index] = oldChildren[i];
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newChildren(int capacity) {
+            return (Node<T>[]) new Node[capacity];
+        }
+    }
+}
@@ -18,12 +18,20 @@ package com.yookue.springstarter.injectiondefender.property;
 
 
 import java.io.Serializable;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.core.Ordered;
+import org.springframework.util.unit.DataSize;
 import com.yookue.commonplexus.javaseutil.enumeration.JsoupWhitelistType;
 import com.yookue.springstarter.injectiondefender.config.InjectionDefenderAutoConfiguration;
+import com.yookue.springstarter.injectiondefender.filter.InspectionMode;
+import com.yookue.springstarter.injectiondefender.policy.LimitPolicy;
+import com.yookue.springstarter.injectiondefender.publisher.OverflowPolicy;
+import com.yookue.springstarter.injectiondefender.rule.RuleCategory;
+import com.yookue.springstarter.injectiondefender.sanitizer.SanitizerType;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -71,6 +79,53 @@ public class InjectionDefenderProperties implements Serializable {
      */
     private final XssProtection xssProtection = new XssProtection();
 
+    /**
+     * Scan limits attributes
+     */
+    private final ScanLimits scanLimits = new ScanLimits();
+
+    /**
+     * Parallel scanning attributes
+     */
+    private final ParallelScanning parallelScanning = new ParallelScanning();
+
+    /**
+     * Body inspection attributes
+     */
+    private final BodyInspection bodyInspection = new BodyInspection();
+
+    /**
+     * Multipart inspection attributes
+     */
+    private final MultipartInspection multipartInspection = new MultipartInspection();
+
+    /**
+     * Event publisher attributes
+     */
+    private final EventPublisher eventPublisher = new EventPublisher();
+
+    /**
+     * Offender tracking attributes
+     */
+    private final OffenderTracking offenderTracking = new OffenderTracking();
+
+    /**
+     * Metrics attributes
+     */
+    private final Metrics metrics = new Metrics();
+
+    /**
+     * Custom rules attributes
+     */
+    private final CustomRules customRules = new CustomRules();
+
+    /**
+     * The policies of path prefixes, overriding the global attributes for the requests under them
+     * <p>
+     * The route of the longest matching prefix wins
+     */
+    private List<Route> routes;
+
 
     /**
      * Properties for defender filter
@@ -103,6 +158,13 @@ public class InjectionDefenderProperties implements Serializable {
          * The url patterns that ignored by the filter
          */
         private Set<String> excludePaths;
+
+        /**
+         * The mode of inspecting the request parameters
+         * <p>
+         * Default is {@code EAGER}, {@code LAZY} inspects each parameter when the application first reads it
+         */
+        private InspectionMode inspectionMode = InspectionMode.EAGER;
     }
 
 
@@ -163,5 +225,503 @@ public class InjectionDefenderProperties implements Serializable {
          * The jsoup {@link org.jsoup.safety.Safelist} for cleaning xss
          */
         private JsoupWhitelistType whitelistType = JsoupWhitelistType.RELAXED;
+
+        /**
+         * The type of the sanitizer for cleaning xss
+         * <p>
+         * Default is {@code JSOUP}
+         */
+        private SanitizerType sanitizerType = SanitizerType.JSOUP;
+
+        /**
+         * Sanitize cache attributes
+         */
+        private final SanitizeCache cache = new SanitizeCache();
+    }
+
+
+    /**
+     * Properties for caching the cleaned xss values across requests
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.injectiondefender.sanitizer.CachingHtmlSanitizer
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class SanitizeCache implements Serializable {
+        /**
+         * Indicates whether to enable the sanitize cache or not
+         * <p>
+         * Default is {@code false}, requires caffeine in the classpath
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The maximum total chars of the cached values and results
+         * <p>
+         * Default is {@code 4194304}
+         */
+        private Long maximumWeight = 4_194_304L;
+
+        /**
+         * The maximum length of a value to be cached, longer values are always cleaned
+         * <p>
+         * Default is {@code 8192}
+         */
+        private Integer maxValueLength = 8192;
+
+        /**
+         * The duration that an entry expires after its last access
+         * <p>
+         * Default is {@code 10m}
+         */
+        private Duration expireAfterAccess = Duration.ofMinutes(10);
+
+        /**
+         * Indicates whether to record the hit and miss statistics or not
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean recordStats = true;
+    }
+
+
+    /**
+     * Properties for bounding the cost of scanning and cleaning huge values
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.injectiondefender.support.ScanBudget
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class ScanLimits implements Serializable {
+        /**
+         * The maximum chars to scan in a value
+         * <p>
+         * Default is {@code null}, no limit
+         */
+        private Integer maxValueLength;
+
+        /**
+         * The policy when a value exceeds the max value length
+         * <p>
+         * Default is {@code PREFIX}, the leading chars are scanned only
+         */
+        private LimitPolicy valueLengthPolicy = LimitPolicy.PREFIX;
+
+        /**
+         * The maximum values to scan in a request
+         * <p>
+         * Default is {@code null}, no limit
+         */
+        private Integer maxValues;
+
+        /**
+         * The policy when a request exceeds the max values
+         * <p>
+         * Default is {@code PREFIX}, the leading values are scanned only
+         */
+        private LimitPolicy valuesPolicy = LimitPolicy.PREFIX;
+
+        /**
+         * The maximum chars to clean in a value
+         * <p>
+         * Default is {@code null}, no limit
+         */
+        private Integer maxCleanLength;
+
+        /**
+         * The policy when a value exceeds the max clean length
+         * <p>
+         * Default is {@code PREFIX}, the leading chars are cleaned only, the rest are dropped, and a {@link com.yookue.springstarter.injectiondefender.event.ScanLimitEvent} is published
+         */
+        private LimitPolicy cleanLengthPolicy = LimitPolicy.PREFIX;
+
+        /**
+         * The maximum total duration to scan the values of a request
+         * <p>
+         * Default is {@code null}, no limit
+         */
+        private Duration timeBudget;
+
+        /**
+         * The policy when a request exceeds the time budget
+         * <p>
+         * Default is {@code PREFIX}, the remaining values are not scanned
+         */
+        private LimitPolicy timeBudgetPolicy = LimitPolicy.PREFIX;
+    }
+
+
+    /**
+     * Properties for scanning many parameters in parallel
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.injectiondefender.scanner.ParallelScanner
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class ParallelScanning implements Serializable {
+        /**
+         * Indicates whether to scan many parameters in parallel or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The minimum count of parameters that scanned in parallel
+         * <p>
+         * Default is {@code 1000}
+         */
+        private Integer threshold = 1000;
+
+        /**
+         * The maximum count of threads that scan in parallel, shared by all the requests
+         * <p>
+         * Default is {@code null}, the count of available processors
+         */
+        private Integer parallelism;
+
+        /**
+         * The minimum count of parameters in a slice that scanned by a thread
+         * <p>
+         * Default is {@code 64}
+         */
+        private Integer sliceSize = 64;
+    }
+
+
+    /**
+     * Properties for inspecting request bodies in the filter
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.injectiondefender.scanner.JsonStreamScanner
+     * @see com.yookue.springstarter.injectiondefender.scanner.ByteInjectionScanner
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class BodyInspection implements Serializable {
+        /**
+         * Indicates whether to inspect json, xml and text request bodies before they reach the controllers or not
+         * <p>
+         * Default is {@code false}, json bodies require jackson in the classpath
+         * <p>
+         * Reactive web applications always inspect the bodies, as they are scanned while streaming without buffering
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The maximum size of a body to be buffered and inspected before the controllers, the remaining bytes are inspected while being read
+         * <p>
+         * Default is {@code 64KB}
+         */
+        private DataSize maxBufferSize = DataSize.ofKilobytes(64);
+
+        /**
+         * The size of the chunks that read from the body
+         * <p>
+         * Default is {@code 8KB}
+         */
+        private DataSize chunkSize = DataSize.ofKilobytes(8);
+    }
+
+
+    /**
+     * Properties for inspecting multipart requests by parts
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class MultipartInspection implements Serializable {
+        /**
+         * Indicates whether to inspect multipart requests by streaming through their parts, instead of the parameter map, or not
+         * <p>
+         * Default is {@code false}, requires a multipart config of the servlet
+         */
+        private Boolean enabled = false;
+
+        /**
+         * Indicates whether to inspect the uploaded files of textual content types or not
+         * <p>
+         * Default is {@code false}, files of binary content types are never read
+         */
+        private Boolean fileInspection = false;
+
+        /**
+         * The maximum size of an uploaded file to be inspected, larger files are skipped
+         * <p>
+         * Default is {@code 64KB}
+         */
+        private DataSize maxFileSize = DataSize.ofKilobytes(64);
+    }
+
+
+    /**
+     * Properties for publishing the malicious events
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.injectiondefender.publisher.AsyncEventPublisher
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class EventPublisher implements Serializable {
+        /**
+         * Indicates whether to publish the events on a background thread in batches or not
+         * <p>
+         * Default is {@code false}, the events are published on the request thread
+         */
+        private Boolean async = false;
+
+        /**
+         * The capacity of the event buffer, rounded up to a power of two
+         * <p>
+         * Default is {@code 8192}
+         */
+        private Integer bufferSize = 8192;
+
+        /**
+         * The maximum count of the events in a batch, identical events in a batch are delivered once
+         * <p>
+         * Default is {@code 256}
+         */
+        private Integer batchSize = 256;
+
+        /**
+         * The maximum duration that the worker idles before polling again
+         * <p>
+         * Default is {@code 100ms}
+         */
+        private Duration flushInterval = Duration.ofMillis(100);
+
+        /**
+         * The policy when the event buffer overflows
+         * <p>
+         * Default is {@code DROP}
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP;
+
+        /**
+         * Keeps one of every these events when the overflow policy is {@code SAMPLE}
+         * <p>
+         * Default is {@code 10}
+         */
+        private Integer sampleRate = 10;
+
+        /**
+         * The maximum count of the characters of the parameter value to keep in an event
+         * <p>
+         * Default is {@code 256}, the events only carry a snapshot of the request and a truncated value
+         */
+        private Integer maxValueLength = 256;
+    }
+
+
+    /**
+     * Properties for tracking the clients that send malicious requests repeatedly
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.injectiondefender.tracker.OffenderTracker
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class OffenderTracking implements Serializable {
+        /**
+         * Indicates whether to block the clients that send malicious requests repeatedly or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The count of the malicious parameters in a window that blocks a client
+         * <p>
+         * Default is {@code 5}
+         */
+        private Integer threshold = 5;
+
+        /**
+         * The duration of the sliding window that counts the malicious parameters
+         * <p>
+         * Default is {@code 1m}
+         */
+        private Duration window = Duration.ofMinutes(1);
+
+        /**
+         * The duration that a client is blocked for
+         * <p>
+         * Default is {@code 10m}
+         */
+        private Duration blockDuration = Duration.ofMinutes(10);
+
+        /**
+         * The maximum count of the clients to track, the least recently seen clients are evicted beyond it
+         * <p>
+         * Default is {@code 10000}
+         */
+        private Integer maxClients = 10000;
+
+        /**
+         * The header that identifies a client, such as an api key header
+         * <p>
+         * Default is {@code null}, the clients are identified by the remote addresses
+         */
+        private String clientHeader;
+
+        /**
+         * The response status of the requests from the blocked clients
+         * <p>
+         * Default is {@code 429}, a {@code Retry-After} header is added for it
+         */
+        private Integer blockStatus = 429;
+    }
+
+
+    /**
+     * Properties for metrics and tracing
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.injectiondefender.metrics.MicrometerDefenderMetrics
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Metrics implements Serializable {
+        /**
+         * Indicates whether to record the metrics and the observations of injection defender or not
+         * <p>
+         * Default is {@code false}, requires {@code io.micrometer:micrometer-core} in the classpath
+         */
+        private Boolean enabled = false;
+    }
+
+
+
+    /**
+     * Properties for custom detection rules
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class CustomRules implements Serializable {
+        /**
+         * Indicates whether to detect injections with the custom rules or not
+         * <p>
+         * Default is {@code false}
+         */
+        private Boolean enabled = false;
+
+        /**
+         * The locations of the rule files, such as {@code classpath:injection-rules.txt} or {@code file:/etc/app/injection-rules.txt}
+         */
+        private List<String> locations;
+
+        /**
+         * The categories of the rules to compile
+         * <p>
+         * Default is {@code null}, all the categories
+         */
+        private Set<RuleCategory> categories;
+
+        /**
+         * Indicates whether to throw a {@link com.yookue.springstarter.injectiondefender.exception.MaliciousRuleException} when a path traversal or command injection occurred or not
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean throwsException = true;
+
+        /**
+         * Indicates whether to reload the rule files on the file system when they change or not
+         * <p>
+         * Default is {@code true}
+         */
+        private Boolean hotReload = true;
+
+        /**
+         * The duration to wait for the changes of the rule files to settle before reloading
+         * <p>
+         * Default is {@code 200ms}
+         */
+        private Duration quietPeriod = Duration.ofMillis(200);
+    }
+
+    /**
+     * Properties for the policy of a path prefix
+     * <p>
+     * The attributes that left {@code null} inherit the global ones
+     *
+     * @author David Hsing
+     * @see com.yookue.springstarter.injectiondefender.policy.RouteTrie
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Route implements Serializable {
+        /**
+         * The path prefix of the route, matched by whole path segments, such as {@code /api/admin} or {@code /api/admin/**}
+         */
+        private String pathPrefix;
+
+        /**
+         * Indicates whether to detect sql injections or not
+         */
+        private Boolean sqlEnabled;
+
+        /**
+         * Indicates whether to throw exception when sql injections detected or not
+         */
+        private Boolean sqlThrows;
+
+        /**
+         * Indicates whether to detect xss injections or not
+         */
+        private Boolean xssEnabled;
+
+        /**
+         * Indicates whether to clean the values with xss injections or not
+         */
+        private Boolean xssClean;
+
+        /**
+         * Indicates whether to throw exception when xss injections detected or not
+         */
+        private Boolean xssThrows;
+
+        /**
+         * The whitelist type for cleaning the values
+         */
+        private JsoupWhitelistType whitelistType;
+
+        /**
+         * The maximum chars to scan in a value
+         */
+        private Integer maxValueLength;
+
+        /**
+         * The maximum values to scan in a request
+         */
+        private Integer maxValues;
+
+        /**
+         * The maximum chars to clean in a value
+         */
+        private Integer maxCleanLength;
+
+        /**
+         * The maximum size of the request body to buffer before the chain
+         */
+        private DataSize maxBufferSize;
     }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.publisher;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import com.yookue.springstarter.injectiondefender.event.MaliciousAccessSnapshot;
+import com.yookue.springstarter.injectiondefender.event.MaliciousRuleEvent;
+import com.yookue.springstarter.injectiondefender.event.MaliciousSqlEvent;
+import com.yookue.springstarter.injectiondefender.event.MaliciousXssEvent;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * {@link org.springframework.context.ApplicationEventPublisher} that delivers events on a background thread, in batches
+ * <p>
+ * The request thread only computes a coalescing key and offers the event to a bounded lock-free ring buffer, identical events in a batch are delivered once
+ * <br>
+ * When the buffer overflows, the events are dropped or sampled as the {@link com.yookue.springstarter.injectiondefender.publisher.OverflowPolicy}
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.publisher.BoundedRingBuffer
+ */
+@SuppressWarnings("unused")
+public class AsyncEventPublisher implements ApplicationEventPublisher, SmartLifecycle {
+    private static final String THREAD_NAME = "injection-defender-events";    // $NON-NLS-1$
+
+    private final ApplicationEventPublisher delegate;
+    private final BoundedRingBuffer<Envelope> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @Setter
+    private Function<Object, Object> keyExtractor = AsyncEventPublisher::defaultKey;
+
+    private volatile Thread worker;
+    private volatile boolean running;
+    private volatile boolean waiting;
+
+    @Getter
+    @Setter
+    private int phase = SmartLifecycle.DEFAULT_PHASE;
+
+    /**
+     * Constructs a new publisher
+     *
+     * @param delegate the publisher that delivers the events to listeners
+     * @param bufferSize the capacity of the ring buffer, rounded up to a power of two
+     * @param batchSize the maximum count of the events in a batch
+     * @param flushInterval the maximum duration that the worker idles before polling again
+     * @param overflowPolicy the policy when the buffer overflows
+     * @param sampleRate the sample rate for {@link com.yookue.springstarter.injectiondefender.publisher.OverflowPolicy#SAMPLE}
+     */
+    public AsyncEventPublisher(@Nonnull ApplicationEventPublisher delegate, int bufferSize, int batchSize, @Nullable Duration flushInterval, @Nullable OverflowPolicy overflowPolicy, int sampleRate) {
+        this.delegate = delegate;
+        this.buffer = new BoundedRingBuffer<>(bufferSize);
+        this.batchSize = Math.max(batchSize, 1);
+        this.flushIntervalNanos = (flushInterval == null || flushInterval.isNegative() || flushInterval.isZero()) ? TimeUnit.MILLISECONDS.toNanos(100L) : flushInterval.toNanos();
+        this.overflowPolicy = (overflowPolicy == null) ? OverflowPolicy.DROP : overflowPolicy;
+        this.sampleRate = Math.max(sampleRate, 1);
+    }
+
+    @Override
+    public void publishEvent(@Nonnull Object event) {
+        if (overflowPolicy == OverflowPolicy.SAMPLE && sampleRate > 1 && buffer.size() >= buffer.capacity() - (buffer.capacity() >> 2) && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            dropped.increment();
+            return;
+        }
+        if (!buffer.offer(new Envelope(event, keyExtractor.apply(event)))) {
+            dropped.increment();
+            return;
+        }
+        if (waiting) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::drainLoop, THREAD_NAME);
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops the worker, after the buffered events are delivered
+     */
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Thread thread = worker;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5000L);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the count of the events that delivered to the delegate
+     */
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    /**
+     * Returns the count of the events that merged into an identical event of the same batch
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns the count of the events that dropped by the overflow policy
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the count of the events that failed in the listeners with runtime exceptions, errors are not caught
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the approximate count of the events that waiting for delivery
+     */
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    private void drainLoop() {
+        List<Envelope> batch = new ArrayList<>(Math.min(batchSize, 1024));
+        Set<Object> keys = new HashSet<>();
+        while (running || !buffer.isEmpty()) {
+            Envelope envelope;
+            while (batch.size() < batchSize && (envelope = buffer.poll()) != null) {
+                batch.add(envelope);
+            }
+            if (batch.isEmpty()) {
+                waiting = true;
+                if (running && buffer.isEmpty()) {
+                    LockSupport.parkNanos(this, flushIntervalNanos);
+                }
+                waiting = false;
+                continue;
+            }
+            for (Envelope element : batch) {
+                if (element.key() != null && !keys.add(element.key())) {
+                    coalesced.increment();
+                    continue;
+                }
+                try {
+                    delegate.publishEvent(element.event());
+                    delivered.increment();
+                } catch (RuntimeException ignored) {
+                    failed.increment();
+                }
+            }
+            batch.clear();
+            keys.clear();
+        }
+    }
+
+    /**
+     * Returns the coalescing key of the given event, identical hits from the same client to the same path are coalesced, and the rule hits of the same category as well
+     * <p>
+     * This runs on the request thread, so the worker never touches the request
+     */
+    @Nullable
+    private static Object defaultKey(@Nonnull Object event) {
+        Object source, paramName, category = null;
+        if (event instanceof MaliciousSqlEvent sqlEvent) {
+            source = sqlEvent.getSource();
+            paramName = sqlEvent.getParamName();
+        } else if (event instanceof MaliciousXssEvent xssEvent) {
+            source = xssEvent.getSource();
+            paramName = xssEvent.getParamName();
+        } else if (event instanceof MaliciousRuleEvent ruleEvent) {
+            source = ruleEvent.getSource();
+            paramName = ruleEvent.getParamName();
+            category = ruleEvent.getCategory();
+        } else {
+            return null;
+        }
+        if (source instanceof MaliciousAccessSnapshot snapshot) {
+            return new CoalescingKey(event.getClass(), category, snapshot.getRemoteAddress(), snapshot.getPath(), paramName);
+        }
+        if (source instanceof HttpServletRequest request) {
+            return new CoalescingKey(event.getClass(), category, request.getRemoteAddr(), request.getRequestURI(), paramName);
+        }
+        return null;
+    }
+
+
+    private record Envelope(@Nonnull Object event, @Nullable Object key) {
+    }
+
+
+    private record CoalescingKey(@Nonnull Class<?> type, @Nullable Object category, @Nullable String client, @Nullable String path, @Nullable Object paramName) {
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.publisher;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Bounded lock-free ring buffer for multiple producers and a single consumer
+ * <p>
+ * Each slot carries a sequence number, producers claim a position with a single CAS, and publish the element by releasing the slot sequence, as described by Dmitry Vyukov
+ *
+ * @author David Hsing
+ */
+final class BoundedRingBuffer<E> {
+    private final int mask;
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerPosition = new AtomicLong();
+    private volatile long consumerPosition;
+
+    BoundedRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Returns whether the element is added or not, {@code false} if the buffer is full
+     */
+    boolean offer(@Nonnull E element) {
+        long position = producerPosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long distance = sequences.getAcquire(index) - position;
+            if (distance == 0L) {
+                if (producerPosition.weakCompareAndSetVolatile(position, position + 1L)) {
+                    elements[index] = element;
+                    sequences.setRelease(index, position + 1L);
+                    return true;
+                }
+                position = producerPosition.get();
+            } else if (distance < 0L) {
+                return false;
+            } else {
+                position = producerPosition.get();
+            }
+        }
+    }
+
+    /**
+     * Returns the head element, or {@code null} if the buffer is empty
+     * <p>
+     * Must be called by the consumer thread only
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long position = consumerPosition;
+        int index = (int) position & mask;
+        if (sequences.getAcquire(index) != position + 1L) {
+            return null;
+        }
+        E result = (E) elements[index];
+        elements[index] = null;
+        consumerPosition = position + 1L;
+        sequences.setRelease(index, position + mask + 1L);
+        return result;
+    }
+
+    /**
+     * Returns the approximate count of the elements
+     */
+    int size() {
+        return (int) Math.max(0L, Math.min(producerPosition.get() - consumerPosition, capacity()));
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
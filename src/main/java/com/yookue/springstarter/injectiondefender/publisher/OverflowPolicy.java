@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.publisher;
+
+
+/**
+ * Policies when the event buffer of {@link com.yookue.springstarter.injectiondefender.publisher.AsyncEventPublisher} overflows
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public enum OverflowPolicy {
+    /**
+     * Drops the new events while the buffer is full
+     */
+    DROP,
+
+    /**
+     * Keeps one of every sample-rate events while the buffer is over three quarters full, and drops the new events while it is full
+     */
+    SAMPLE
+}
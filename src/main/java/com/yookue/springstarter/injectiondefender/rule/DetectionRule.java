@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.rule;
+
+
+import jakarta.annotation.Nonnull;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+
+/**
+ * Custom signature of injection defender
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.rule.RuleProvider
+ */
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+@SuppressWarnings("unused")
+public final class DetectionRule {
+    /**
+     * The identifier of the rule, such as the location and the line number of a rule file
+     */
+    @NonNull
+    private final String id;
+
+    @NonNull
+    private final RuleCategory category;
+
+    @NonNull
+    private final RuleKind kind;
+
+    @NonNull
+    private final String pattern;
+
+    @Nonnull
+    public static DetectionRule keyword(@Nonnull String id, @Nonnull RuleCategory category, @Nonnull String keyword) {
+        return new DetectionRule(id, category, RuleKind.KEYWORD, keyword);
+    }
+
+    @Nonnull
+    public static DetectionRule regex(@Nonnull String id, @Nonnull RuleCategory category, @Nonnull String regex) {
+        return new DetectionRule(id, category, RuleKind.REGEX, regex);
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.rule;
+
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.CollectionUtils;
+import com.yookue.springstarter.injectiondefender.scanner.RuleMatcher;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Manager of the custom detection rules
+ * <p>
+ * The rules of all the providers are compiled into one {@link com.yookue.springstarter.injectiondefender.scanner.RuleMatcher} off the request threads, and then swapped in atomically
+ * <br>
+ * Each request takes the current matcher once, and passes it to the scanners, so a request never sees the rules of two reloads
+ * <br>
+ * The watched files of the providers are reloaded on a background thread when they change, a reload that fails keeps the previous rules
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.rule.RuleProvider
+ */
+@SuppressWarnings("unused")
+public class DetectionRuleManager implements InitializingBean, DisposableBean {
+    private static final String THREAD_NAME = "injection-defender-rules";    // $NON-NLS-1$
+
+    private final List<RuleProvider> providers;
+    private final Set<RuleCategory> categories;
+    private final LongAdder reloaded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @Getter
+    @Setter
+    private long quietMillis = 200L;
+
+    private volatile RuleMatcher matcher = RuleMatcher.EMPTY;
+    private volatile Exception lastFailure;
+    private volatile WatchService watchService;
+    private volatile Thread watcher;
+
+    /**
+     * Constructs a new manager
+     *
+     * @param providers the providers of the rules
+     * @param categories the categories of the rules to compile, or {@code null} for all
+     */
+    public DetectionRuleManager(@Nonnull Collection<RuleProvider> providers, @Nullable Collection<RuleCategory> categories) {
+        this.providers = List.copyOf(providers);
+        this.categories = CollectionUtils.isEmpty(categories) ? EnumSet.allOf(RuleCategory.class) : EnumSet.copyOf(categories);
+    }
+
+    /**
+     * Loads the rules, and starts watching the files of the providers
+     *
+     * @throws java.io.IOException if the rules cannot be read
+     * @throws java.lang.IllegalArgumentException if the rules are malformed
+     */
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        reload();
+        startWatching();
+    }
+
+    /**
+     * Stops watching, and clears the rules
+     */
+    @Override
+    public void destroy() {
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ignored) {
+            }
+        }
+        Thread thread = watcher;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        matcher = RuleMatcher.EMPTY;
+    }
+
+    /**
+     * Compiles the rules of all the providers, and swaps them in
+     *
+     * @return the matcher that compiled
+     *
+     * @throws java.io.IOException if the rules cannot be read
+     * @throws java.lang.IllegalArgumentException if the rules are malformed
+     */
+    @Nonnull
+    public synchronized RuleMatcher reload() throws IOException {
+        List<DetectionRule> rules = new ArrayList<>();
+        for (RuleProvider provider : providers) {
+            for (DetectionRule rule : provider.getRules()) {
+                if (categories.contains(rule.getCategory())) {
+                    rules.add(rule);
+                }
+            }
+        }
+        RuleMatcher result = RuleMatcher.compile(rules);
+        matcher = result;
+        reloaded.increment();
+        return result;
+    }
+
+    /**
+     * Returns the matcher of the current rules
+     */
+    @Nonnull
+    public RuleMatcher getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * Returns the count of the current rules
+     */
+    public int getRuleCount() {
+        return matcher.size();
+    }
+
+    /**
+     * Returns the count of the successful loads
+     */
+    public long getReloadedCount() {
+        return reloaded.sum();
+    }
+
+    /**
+     * Returns the count of the reloads that failed and kept the previous rules
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns the exception of the last reload that failed, or {@code null} if none failed
+     */
+    @Nullable
+    public Exception getLastFailure() {
+        return lastFailure;
+    }
+
+    private void startWatching() throws IOException {
+        Map<Path, Set<Path>> directories = new HashMap<>();
+        for (RuleProvider provider : providers) {
+            Path file = provider.getWatchedFile();
+            if (file != null && file.getParent() != null) {
+                directories.computeIfAbsent(file.getParent(), key -> new HashSet<>()).add(file.getFileName());
+            }
+        }
+        if (directories.isEmpty()) {
+            return;
+        }
+        WatchService service = FileSystems.getDefault().newWatchService();
+        Map<WatchKey, Set<Path>> keys = new HashMap<>();
+        for (Map.Entry<Path, Set<Path>> entry : directories.entrySet()) {
+            keys.put(entry.getKey().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY), entry.getValue());
+        }
+        Thread thread = new Thread(() -> watchLoop(service, keys), THREAD_NAME);
+        thread.setDaemon(true);
+        watchService = service;
+        watcher = thread;
+        thread.start();
+    }
+
+    private void watchLoop(@Nonnull WatchService service, @Nonnull Map<WatchKey, Set<Path>> keys) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean changed = drainEvents(service.take(), keys);
+                // Editors save a file with several events, wait until they settle before reloading once
+                WatchKey next;
+                while ((next = service.poll(quietMillis, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drainEvents(next, keys);
+                }
+                if (changed) {
+                    try {
+                        reload();
+                    } catch (IOException | RuntimeException ex) {
+                        lastFailure = ex;
+                        failed.increment();
+                    }
+                }
+            }
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+        }
+    }
+
+    private boolean drainEvents(@Nonnull WatchKey key, @Nonnull Map<WatchKey, Set<Path>> keys) {
+        Set<Path> files = keys.get(key);
+        boolean result = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || (files != null && event.context() instanceof Path path && files.contains(path))) {
+                result = true;
+            }
+        }
+        key.reset();
+        return result;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.rule;
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.PatternSyntaxException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.Resource;
+import com.yookue.springstarter.injectiondefender.scanner.RuleMatcher;
+import lombok.Getter;
+
+
+/**
+ * {@link com.yookue.springstarter.injectiondefender.rule.RuleProvider} that reads a rule file, from the classpath or the file system
+ * <p>
+ * Each line is a rule of {@code <category> <kind> <pattern>}, blank lines and lines starting with {@code #} are ignored, for example
+ * <pre><code>
+ * sql keyword waitfor delay
+ * path-traversal keyword ../
+ * command regex [;|&amp;`]\s*(?:cat|curl|wget)\b
+ * </code></pre>
+ * The category is one of {@link com.yookue.springstarter.injectiondefender.rule.RuleCategory}, and the kind is one of {@link com.yookue.springstarter.injectiondefender.rule.RuleKind}, both case-insensitive with hyphens
+ *
+ * @author David Hsing
+ */
+@Getter
+@SuppressWarnings("unused")
+public class ResourceRuleProvider implements RuleProvider {
+    private static final String COMMENT_PREFIX = "#";    // $NON-NLS-1$
+
+    private final Resource resource;
+    private final boolean watched;
+
+    public ResourceRuleProvider(@Nonnull Resource resource) {
+        this(resource, false);
+    }
+
+    public ResourceRuleProvider(@Nonnull Resource resource, boolean watched) {
+        this.resource = resource;
+        this.watched = watched;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws java.lang.IllegalArgumentException if a line of the rule file is malformed
+     */
+    @Nonnull
+    @Override
+    public Collection<DetectionRule> getRules() throws IOException {
+        List<DetectionRule> result = new ArrayList<>();
+        String location = Objects.toString(resource.getFilename(), resource.getDescription());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                String content = line.strip();
+                if (!content.isEmpty() && !content.startsWith(COMMENT_PREFIX)) {
+                    result.add(parseRule(location + ':' + number, content));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public Path getWatchedFile() {
+        if (!watched || !resource.isFile()) {
+            return null;
+        }
+        try {
+            return resource.getFile().toPath().toAbsolutePath();
+        } catch (IOException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the rule of the given line
+     *
+     * @param id the identifier of the rule
+     * @param line the stripped line of {@code <category> <kind> <pattern>}
+     *
+     * @return the rule of the given line
+     */
+    @Nonnull
+    public static DetectionRule parseRule(@Nonnull String id, @Nonnull String line) {
+        String[] tokens = line.split("\\s+", 3);    // $NON-NLS-1$
+        if (tokens.length < 3) {
+            throw new IllegalArgumentException("Rule must be '<category> <kind> <pattern>' at " + id);    // $NON-NLS-1$
+        }
+        RuleCategory category = parseEnum(RuleCategory.class, tokens[0], id);
+        RuleKind kind = parseEnum(RuleKind.class, tokens[1], id);
+        String pattern = tokens[2];
+        if (kind == RuleKind.KEYWORD && !StringUtils.isAsciiPrintable(pattern)) {
+            throw new IllegalArgumentException("Keyword must be ascii at " + id);    // $NON-NLS-1$
+        }
+        if (kind == RuleKind.REGEX) {
+            try {
+                RuleMatcher.validateRegex(pattern);
+            } catch (PatternSyntaxException ex) {
+                throw new IllegalArgumentException("Invalid regex at " + id + ": " + ex.getDescription(), ex);    // $NON-NLS-1$ // $NON-NLS-2$
+            }
+        }
+        return new DetectionRule(id, category, kind, pattern);
+    }
+
+    @Nonnull
+    private static <E extends Enum<E>> E parseEnum(@Nonnull Class<E> type, @Nonnull String token, @Nonnull String id) {
+        try {
+            return Enum.valueOf(type, token.replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " '" + token + "' at " + id, ex);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        }
+    }
+}
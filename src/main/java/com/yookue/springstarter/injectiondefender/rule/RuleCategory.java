@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.rule;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import com.yookue.springstarter.injectiondefender.metrics.DefenderMetrics;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+
+/**
+ * Categories of the custom detection rules
+ * <p>
+ * Sql and xss rules extend the built-in protections, and follow their settings
+ * <br>
+ * Path traversal and command injection have their own injection flags, and are reported with {@link com.yookue.springstarter.injectiondefender.event.MaliciousRuleEvent}, no matter whether the sql or xss protection is enabled
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.rule.DetectionRule
+ */
+@AllArgsConstructor
+@Getter
+@SuppressWarnings("unused")
+public enum RuleCategory {
+    SQL(InjectionScanner.SQL_INJECTION, DefenderMetrics.TYPE_SQL),
+    XSS(InjectionScanner.XSS_INJECTION, DefenderMetrics.TYPE_XSS),
+    PATH_TRAVERSAL(InjectionScanner.PATH_TRAVERSAL, DefenderMetrics.TYPE_PATH_TRAVERSAL),
+    COMMAND(InjectionScanner.COMMAND_INJECTION, DefenderMetrics.TYPE_COMMAND);
+
+    /**
+     * The injection flag that reported when a rule of this category matches
+     */
+    private final int flag;
+
+    /**
+     * The type of the metrics that recorded when a rule of this category matches
+     */
+    private final String type;
+
+    /**
+     * Returns the categories that detected by the custom rules only, within the given injection flags
+     *
+     * @param flags the injection flags that detected
+     *
+     * @return the categories that detected by the custom rules only, within the given injection flags
+     */
+    @Nonnull
+    public static List<RuleCategory> customOf(int flags) {
+        if (!InjectionScanner.hasRuleInjection(flags)) {
+            return List.of();
+        }
+        List<RuleCategory> result = new ArrayList<>(2);
+        for (RuleCategory category : values()) {
+            if ((category.flag & flags & ~InjectionScanner.BUILTIN_INJECTIONS) != InjectionScanner.NONE) {
+                result.add(category);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.rule;
+
+
+/**
+ * Kinds of the custom detection rules
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.rule.DetectionRule
+ */
+@SuppressWarnings("unused")
+public enum RuleKind {
+    /**
+     * Case-insensitive ascii literal, matched at any position
+     */
+    KEYWORD,
+
+    /**
+     * Case-insensitive {@link java.util.regex.Pattern}, numbered back references are rejected, use named groups instead
+     */
+    REGEX
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.rule;
+
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Provider of custom detection rules
+ * <p>
+ * Beans of this interface are collected by {@link com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager}, and their rules are compiled together into one {@link com.yookue.springstarter.injectiondefender.scanner.RuleMatcher}
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public interface RuleProvider {
+    /**
+     * Returns the current rules of this provider, which are read again on every reload
+     */
+    @Nonnull
+    Collection<DetectionRule> getRules() throws IOException;
+
+    /**
+     * Returns the file that backs the rules, whose changes trigger a reload
+     *
+     * @return the file that backs the rules, or {@code null} if the rules are not reloadable
+     */
+    @Nullable
+    default Path getWatchedFile() {
+        return null;
+    }
+}
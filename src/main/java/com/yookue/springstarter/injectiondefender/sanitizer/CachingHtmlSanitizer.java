@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.sanitizer;
+
+
+import java.time.Duration;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.yookue.commonplexus.javaseutil.enumeration.JsoupWhitelistType;
+import lombok.Getter;
+
+
+/**
+ * {@link com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer} that caches the output of another sanitizer across requests
+ * <p>
+ * The cache is bounded by the total chars of the entries and evicts with the W-TinyLFU policy of caffeine, values longer than the max value length are never cached
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class CachingHtmlSanitizer implements HtmlSanitizer {
+    private final HtmlSanitizer delegate;
+    private final int maxValueLength;
+
+    @Getter
+    private final Cache<CacheKey, String> cache;
+
+    public CachingHtmlSanitizer(@Nonnull HtmlSanitizer delegate, long maximumWeight, int maxValueLength, @Nullable Duration expireAfterAccess, boolean recordStats) {
+        this.delegate = delegate;
+        this.maxValueLength = maxValueLength;
+        Caffeine<CacheKey, String> builder = Caffeine.newBuilder().maximumWeight(maximumWeight).weigher((CacheKey key, String value) -> key.value().length() + value.length());
+        if (expireAfterAccess != null && !expireAfterAccess.isZero() && !expireAfterAccess.isNegative()) {
+            builder.expireAfterAccess(expireAfterAccess);
+        }
+        if (recordStats) {
+            builder.recordStats();
+        }
+        this.cache = builder.build();
+    }
+
+    @Override
+    public String sanitize(@Nullable String html, @Nullable JsoupWhitelistType whitelistType) {
+        if (StringUtils.isBlank(html) || whitelistType == null || html.length() > maxValueLength) {
+            return delegate.sanitize(html, whitelistType);
+        }
+        return cache.get(new CacheKey(html, whitelistType), key -> delegate.sanitize(key.value(), key.whitelistType()));
+    }
+
+    /**
+     * Returns the hit and miss statistics of the cache
+     */
+    @Nonnull
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Key of the cache, hashed by the cached hash of the value and the whitelist type, but compared by the whole value
+     */
+    public record CacheKey(@Nonnull String value, @Nonnull JsoupWhitelistType whitelistType) {
+    }
+}
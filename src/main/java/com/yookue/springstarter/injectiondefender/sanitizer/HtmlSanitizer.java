@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.sanitizer;
+
+
+import jakarta.annotation.Nullable;
+import com.yookue.commonplexus.javaseutil.enumeration.JsoupWhitelistType;
+
+
+/**
+ * Sanitizer that cleans untrusted html with a whitelist
+ *
+ * @author David Hsing
+ */
+@FunctionalInterface
+public interface HtmlSanitizer {
+    /**
+     * Returns the cleaned html of the given html
+     *
+     * @param html the untrusted html to clean
+     * @param whitelistType the whitelist that determines the allowed tags and attributes
+     *
+     * @return the cleaned html, or the given html itself if it is blank or the whitelist type is absent
+     */
+    String sanitize(@Nullable String html, @Nullable JsoupWhitelistType whitelistType);
+}
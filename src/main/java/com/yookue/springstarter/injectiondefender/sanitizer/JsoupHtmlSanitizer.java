@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.sanitizer;
+
+
+import java.util.EnumMap;
+import java.util.Map;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.jsoup.Jsoup;
+import org.jsoup.safety.Safelist;
+import com.yookue.commonplexus.javaseutil.enumeration.JsoupWhitelistType;
+import com.yookue.commonplexus.javaseutil.util.JsoupParserWraps;
+
+
+/**
+ * {@link com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer} that cleans html with {@link org.jsoup.Jsoup#clean(String, org.jsoup.safety.Safelist)}
+ * <p>
+ * The {@link org.jsoup.safety.Safelist} of each whitelist type is resolved once, when the sanitizer is constructed
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class JsoupHtmlSanitizer implements HtmlSanitizer {
+    private final Map<JsoupWhitelistType, Safelist> safelists = new EnumMap<>(JsoupWhitelistType.class);
+
+    public JsoupHtmlSanitizer() {
+        for (JsoupWhitelistType whitelistType : JsoupWhitelistType.values()) {
+            Safelist safelist = JsoupParserWraps.getSafelist(whitelistType);
+            if (safelist != null) {
+                safelists.put(whitelistType, safelist);
+            }
+        }
+    }
+
+    @Override
+    public String sanitize(@Nullable String html, @Nullable JsoupWhitelistType whitelistType) {
+        if (StringUtils.isBlank(html) || whitelistType == null) {
+            return html;
+        }
+        Safelist safelist = safelists.get(whitelistType);
+        return (safelist == null) ? html : Jsoup.clean(html, safelist);
+    }
+
+    @Nullable
+    public Safelist getSafelist(@Nullable JsoupWhitelistType whitelistType) {
+        return (whitelistType == null) ? null : safelists.get(whitelistType);
+    }
+}
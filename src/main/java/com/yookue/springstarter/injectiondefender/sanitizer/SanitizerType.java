@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.sanitizer;
+
+
+/**
+ * Types of the {@link com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer} for cleaning xss
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties.XssProtection
+ */
+@SuppressWarnings("unused")
+public enum SanitizerType {
+    /**
+     * Cleans with {@link com.yookue.springstarter.injectiondefender.sanitizer.JsoupHtmlSanitizer}, which builds a dom and serializes it again
+     */
+    JSOUP,
+
+    /**
+     * Cleans with {@link com.yookue.springstarter.injectiondefender.sanitizer.StreamingHtmlSanitizer}, which rewrites the disallowed tags and attributes only
+     */
+    STREAMING
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.sanitizer;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.Element;
+import org.jsoup.safety.Safelist;
+import com.yookue.commonplexus.javaseutil.enumeration.JsoupWhitelistType;
+import com.yookue.commonplexus.javaseutil.util.JsoupParserWraps;
+
+
+/**
+ * {@link com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer} that cleans html in a single pass, without building a dom
+ * <p>
+ * The html is tokenized once, text and the safe tags are copied through unchanged, and only the disallowed tags and attributes are rewritten, so entities that are already encoded stay as they are
+ * <br>
+ * The tags, attributes, protocols and enforced attributes are checked with the same {@link org.jsoup.safety.Safelist} of each whitelist type as {@link com.yookue.springstarter.injectiondefender.sanitizer.JsoupHtmlSanitizer}, the contents of the disallowed raw text elements, such as {@code script} and {@code style}, are dropped, and the open tags are closed at the end
+ * <br>
+ * A value that needs no rewriting is returned as the given instance
+ *
+ * @author David Hsing
+ * @see org.jsoup.safety.Safelist
+ */
+@SuppressWarnings("unused")
+public class StreamingHtmlSanitizer implements HtmlSanitizer {
+    private static final Set<String> RAW_TEXT_TAGS = Set.of("script", "style", "iframe", "xmp", "noembed", "noframes");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+    private static final Set<String> VOID_TAGS = Set.of("area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "param", "source", "track", "wbr");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$ // $NON-NLS-8$ // $NON-NLS-9$ // $NON-NLS-10$ // $NON-NLS-11$ // $NON-NLS-12$ // $NON-NLS-13$ // $NON-NLS-14$
+
+    private final Map<JsoupWhitelistType, Safelist> safelists = new EnumMap<>(JsoupWhitelistType.class);
+
+    public StreamingHtmlSanitizer() {
+        for (JsoupWhitelistType whitelistType : JsoupWhitelistType.values()) {
+            Safelist safelist = JsoupParserWraps.getSafelist(whitelistType);
+            if (safelist != null) {
+                safelists.put(whitelistType, safelist);
+            }
+        }
+    }
+
+    @Override
+    public String sanitize(@Nullable String html, @Nullable JsoupWhitelistType whitelistType) {
+        if (StringUtils.isBlank(html) || whitelistType == null) {
+            return html;
+        }
+        Safelist safelist = safelists.get(whitelistType);
+        return (safelist == null) ? html : sanitize(html, safelist);
+    }
+
+    /**
+     * Returns the cleaned html of the given html, with the given safelist
+     *
+     * @param html the untrusted html to clean
+     * @param safelist the safelist that determines the allowed tags and attributes
+     *
+     * @return the cleaned html of the given html, with the given safelist
+     */
+    public String sanitize(@Nonnull String html, @Nonnull Safelist safelist) {
+        return (html.indexOf('<') < 0) ? html : new Rewriter(html, safelist).rewrite();
+    }
+
+    @Nullable
+    public Safelist getSafelist(@Nullable JsoupWhitelistType whitelistType) {
+        return (whitelistType == null) ? null : safelists.get(whitelistType);
+    }
+
+    /**
+     * Single use rewriter of a html, the spans between the rewritten regions are copied lazily
+     */
+    private static final class Rewriter {
+        private final String source;
+        private final int length;
+        private final Safelist safelist;
+        private final Deque<String> openTags = new ArrayDeque<>();
+        private StringBuilder builder;
+        private int copied;
+        private int position;
+
+        private Rewriter(@Nonnull String source, @Nonnull Safelist safelist) {
+            this.source = source;
+            this.length = source.length();
+            this.safelist = safelist;
+        }
+
+        @Nonnull
+        private String rewrite() {
+            int start;
+            while (position < length && (start = source.indexOf('<', position)) >= 0) {
+                position = start + 1;
+                char next = (position < length) ? source.charAt(position) : ' ';
+                if (isAsciiLetter(next)) {
+                    startTag(start);
+                } else if (next == '/') {
+                    endTag(start);
+                } else if (next == '!' || next == '?') {
+                    markup(start);
+                } else {
+                    replace(start, position, "&lt;");    // $NON-NLS-1$
+                }
+            }
+            while (!openTags.isEmpty()) {
+                replace(length, length, "</" + openTags.pop() + '>');    // $NON-NLS-1$
+            }
+            if (builder == null) {
+                return source;
+            }
+            return builder.append(source, copied, length).toString();
+        }
+
+        private void startTag(int start) {
+            int cursor = start + 1;
+            while (cursor < length && !isTagNameEnd(source.charAt(cursor))) {
+                cursor++;
+            }
+            String name = source.substring(start + 1, cursor).toLowerCase(Locale.ROOT);
+            List<Attribute> attributes = null;
+            boolean malformed = false;
+            while (true) {
+                while (cursor < length && (isWhitespace(source.charAt(cursor)) || source.charAt(cursor) == '/')) {
+                    cursor++;
+                }
+                if (cursor >= length) {
+                    drop(start, length);
+                    return;
+                }
+                if (source.charAt(cursor) == '>') {
+                    break;
+                }
+                int nameStart = cursor++;
+                while (cursor < length && !isAttributeNameEnd(source.charAt(cursor))) {
+                    cursor++;
+                }
+                String key = source.substring(nameStart, cursor).toLowerCase(Locale.ROOT);
+                while (cursor < length && isWhitespace(source.charAt(cursor))) {
+                    cursor++;
+                }
+                String value = StringUtils.EMPTY;
+                if (cursor < length && source.charAt(cursor) == '=') {
+                    cursor++;
+                    while (cursor < length && isWhitespace(source.charAt(cursor))) {
+                        cursor++;
+                    }
+                    char quote = (cursor < length) ? source.charAt(cursor) : ' ';
+                    if (quote == '"' || quote == '\'') {
+                        int end = source.indexOf(quote, cursor + 1);
+                        if (end < 0) {
+                            drop(start, length);
+                            return;
+                        }
+                        value = source.substring(cursor + 1, end);
+                        cursor = end + 1;
+                    } else {
+                        int valueStart = cursor;
+                        while (cursor < length && !isWhitespace(source.charAt(cursor)) && source.charAt(cursor) != '>') {
+                            cursor++;
+                        }
+                        value = source.substring(valueStart, cursor);
+                    }
+                }
+                // Keeps the first of the repeated attributes only, as jsoup does
+                if (StringUtils.isBlank(key) || (attributes != null && containsKey(attributes, key))) {
+                    malformed = true;
+                    continue;
+                }
+                if (attributes == null) {
+                    attributes = new ArrayList<>();
+                }
+                attributes.add(new Attribute(key, value));
+            }
+            int end = cursor + 1;
+            position = end;
+            if (!safelist.isSafeTag(name)) {
+                if (RAW_TEXT_TAGS.contains(name)) {
+                    position = skipRawText(name, end);
+                }
+                drop(start, position);
+                return;
+            }
+            if (!VOID_TAGS.contains(name)) {
+                openTags.push(name);
+            }
+            String rewritten = rewriteAttributes(name, attributes, malformed);
+            if (rewritten != null) {
+                replace(start, end, rewritten);
+            }
+        }
+
+        /**
+         * Returns the rewritten start tag, or {@code null} if the start tag is safe as it is
+         */
+        @Nullable
+        private String rewriteAttributes(@Nonnull String name, @Nullable List<Attribute> attributes, boolean malformed) {
+            Attributes enforced = safelist.getEnforcedAttributes(name);
+            boolean changed = malformed || enforced.size() > 0;
+            List<Attribute> kept = attributes;
+            if (attributes != null) {
+                Element element = new Element(name);
+                for (Attribute attribute : attributes) {
+                    element.attr(attribute.getKey(), attribute.getValue());
+                }
+                kept = new ArrayList<>(attributes.size());
+                for (Attribute attribute : attributes) {
+                    String value = attribute.getValue();
+                    if (safelist.isSafeAttribute(name, element, attribute) && !enforced.hasKeyIgnoreCase(attribute.getKey())) {
+                        kept.add(attribute);
+                        changed |= !value.equals(attribute.getValue());
+                    } else {
+                        changed = true;
+                    }
+                }
+            }
+            if (!changed) {
+                return null;
+            }
+            StringBuilder result = new StringBuilder(name.length() + 2).append('<').append(name);
+            if (kept != null) {
+                kept.forEach(attribute -> appendAttribute(result, attribute));
+            }
+            enforced.forEach(attribute -> appendAttribute(result, attribute));
+            return result.append('>').toString();
+        }
+
+        private void endTag(int start) {
+            int cursor = start + 2;
+            if (cursor >= length || !isAsciiLetter(source.charAt(cursor))) {
+                markup(start);
+                return;
+            }
+            int nameStart = cursor;
+            while (cursor < length && !isTagNameEnd(source.charAt(cursor))) {
+                cursor++;
+            }
+            String name = source.substring(nameStart, cursor).toLowerCase(Locale.ROOT);
+            int end = source.indexOf('>', cursor);
+            boolean terminated = end >= 0;
+            end = terminated ? end + 1 : length;
+            position = end;
+            if (!openTags.contains(name)) {
+                drop(start, end);
+                return;
+            }
+            StringBuilder closers = null;
+            String open;
+            while (!(open = openTags.pop()).equals(name)) {
+                closers = (closers == null) ? new StringBuilder() : closers;
+                closers.append("</").append(open).append('>');    // $NON-NLS-1$
+            }
+            if (closers != null || !terminated || end - start != name.length() + 3) {
+                replace(start, end, ((closers == null) ? StringUtils.EMPTY : closers) + "</" + name + '>');    // $NON-NLS-1$
+            }
+        }
+
+        /**
+         * Drops a comment, a doctype or a processing instruction
+         */
+        private void markup(int start) {
+            int end;
+            if (source.startsWith("<!--", start)) {    // $NON-NLS-1$
+                end = source.indexOf("-->", start + 4);    // $NON-NLS-1$
+                end = (end < 0) ? length : end + 3;
+            } else {
+                end = source.indexOf('>', start + 1);
+                end = (end < 0) ? length : end + 1;
+            }
+            position = end;
+            drop(start, end);
+        }
+
+        /**
+         * Returns the position after the end tag of the given raw text element
+         */
+        private int skipRawText(@Nonnull String name, int from) {
+            int cursor = from;
+            while ((cursor = source.indexOf("</", cursor)) >= 0) {    // $NON-NLS-1$
+                int nameEnd = cursor + 2 + name.length();
+                if (source.regionMatches(true, cursor + 2, name, 0, name.length()) && (nameEnd >= length || isTagNameEnd(source.charAt(nameEnd)))) {
+                    int end = source.indexOf('>', nameEnd);
+                    return (end < 0) ? length : end + 1;
+                }
+                cursor += 2;
+            }
+            return length;
+        }
+
+        private void drop(int from, int to) {
+            replace(from, to, StringUtils.EMPTY);
+        }
+
+        private void replace(int from, int to, @Nonnull String replacement) {
+            if (builder == null) {
+                builder = new StringBuilder(length + 16);
+            }
+            builder.append(source, copied, from).append(replacement);
+            copied = to;
+            position = Math.max(position, to);
+        }
+
+        private static boolean containsKey(@Nonnull List<Attribute> attributes, @Nonnull String key) {
+            for (Attribute attribute : attributes) {
+                if (attribute.getKey().equals(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static void appendAttribute(@Nonnull StringBuilder builder, @Nonnull Attribute attribute) {
+            builder.append(' ').append(attribute.getKey()).append("=\"");    // $NON-NLS-1$
+            String value = attribute.getValue();
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch == '"') {
+                    builder.append("&quot;");    // $NON-NLS-1$
+                } else {
+                    builder.append(ch);
+                }
+            }
+            builder.append('"');
+        }
+
+        private static boolean isAsciiLetter(char ch) {
+            return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+        }
+
+        private static boolean isWhitespace(char ch) {
+            return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r' || ch == '\f';
+        }
+
+        private static boolean isTagNameEnd(char ch) {
+            return isWhitespace(ch) || ch == '/' || ch == '>';
+        }
+
+        private static boolean isAttributeNameEnd(char ch) {
+            return isWhitespace(ch) || ch == '/' || ch == '>' || ch == '=';
+        }
+    }
+}
@@ -0,0 +1,566 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import lombok.Getter;
+
+
+/**
+ * Scanner that classifies utf-8 bytes for sql and xss injections, without decoding them to {@link java.lang.String}
+ * <p>
+ * The bytes pass through streaming decoders of percent-encoding, utf-8 and html character references in one pass, so {@code %3Cscript}, {@code &lt;script} and {@code &#x3C;script} are detected as {@code <script}
+ * <br>
+ * The rules are the same as {@link com.yookue.springstarter.injectiondefender.scanner.InjectionScanner}, and the state is kept across chunks, so a token may be split at any byte
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.scanner.InjectionScanner
+ */
+@SuppressWarnings("unused")
+public abstract class ByteInjectionScanner {
+    private static final KeywordAutomaton SQL_KEYWORDS = new KeywordAutomaton("and", "or", "union", "select", "insert", "update", "delete", "create", "drop", "truncate", "grant", "alter", "execute", "exec", "declare", "order", "show", "#", "--", "})", "/*");    // $NON-NLS-1$
+    private static final KeywordAutomaton XSS_TAGS = new KeywordAutomaton("iframe", "script");    // $NON-NLS-1$
+    private static final int MAX_NAME_LENGTH = 128;
+    private static final int MAX_REFERENCE_LENGTH = 16;
+    private static final String[] REFERENCE_NAMES = {"lt", "gt", "amp", "quot", "apos"};    // $NON-NLS-1$
+    private static final int[] REFERENCE_VALUES = {'<', '>', '&', '"', '\''};
+    private static final int LEGACY_REFERENCE_COUNT = 4;
+
+    /**
+     * Segmentation of the bytes
+     *
+     * @author David Hsing
+     */
+    public enum Mode {
+        /**
+         * Url-encoded form, each value is inspected for sql and xss, and {@code +} is decoded as space
+         */
+        FORM,
+
+        /**
+         * Plain text, the whole body is inspected as a value for sql and xss
+         */
+        TEXT,
+
+        /**
+         * Markup such as xml or html, the whole body is inspected for xss only
+         */
+        MARKUP
+    }
+
+    /**
+     * Returns the injection flags that detected in the given range of bytes
+     *
+     * @param bytes the bytes to inspect
+     * @param offset the start index of the range
+     * @param length the length of the range
+     * @param mask the injection flags to detect
+     * @param mode the segmentation of the bytes
+     *
+     * @return the injection flags that detected in the given range of bytes, within the mask
+     */
+    public static int scan(@Nullable byte[] bytes, int offset, int length, int mask, @Nonnull Mode mode) {
+        if (bytes == null || length <= 0) {
+            return InjectionScanner.NONE;
+        }
+        try (Session session = new Session(mask, mode, null)) {
+            session.feed(bytes, offset, length);
+            session.endOfInput();
+            return session.getDetected();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Returns the injection flags that detected in the remaining bytes of the given buffer
+     * <p>
+     * The position of the buffer is not changed
+     *
+     * @param buffer the buffer to inspect
+     * @param mask the injection flags to detect
+     * @param mode the segmentation of the bytes
+     *
+     * @return the injection flags that detected in the remaining bytes of the given buffer, within the mask
+     */
+    public static int scan(@Nullable ByteBuffer buffer, int mask, @Nonnull Mode mode) {
+        if (buffer == null || !buffer.hasRemaining()) {
+            return InjectionScanner.NONE;
+        }
+        try (Session session = new Session(mask, mode, null)) {
+            session.feed(buffer);
+            session.endOfInput();
+            return session.getDetected();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Returns a new session for a body
+     *
+     * @param mask the injection flags to detect
+     * @param mode the segmentation of the body
+     * @param listener the listener to notify when an injection detected
+     *
+     * @return a new session for a body
+     */
+    @Nonnull
+    public static Session newSession(int mask, @Nonnull Mode mode, @Nullable InjectionListener listener) {
+        return new Session(mask, mode, listener);
+    }
+
+
+    /**
+     * Scanning session of a body
+     *
+     * @author David Hsing
+     */
+    public static class Session implements ScanSession {
+        private static final int ATTEMPT_NONE = 0;
+        private static final int ATTEMPT_QUOTES = 1;
+        private static final int ATTEMPT_PARENS = 2;
+        private static final int ATTEMPT_SPACES = 3;
+        private static final int ATTEMPT_KEYWORD = 4;
+        private static final int TOKEN_BEFORE = 0;
+        private static final int TOKEN_INSIDE = 1;
+        private static final int TOKEN_AFTER = 2;
+
+        private final int mask;
+        private final Mode mode;
+        private final InjectionListener listener;
+        private final StringBuilder name;
+        private final int[] reference = new int[MAX_REFERENCE_LENGTH];
+        private final KeywordCursor sqlCursor = new KeywordCursor(SQL_KEYWORDS);
+        private final KeywordCursor xssCursor = new KeywordCursor(XSS_TAGS);
+
+        @Getter
+        private int detected = InjectionScanner.NONE;
+
+        @Getter
+        private boolean finished;
+
+        private boolean inName;
+        private int percentState;
+        private int percentHigh;
+        private int utf8Pending;
+        private int utf8CodePoint;
+        private int referenceLength;
+        private boolean sqlPending;
+        private boolean xssPending;
+        private int sqlAttempt;
+        private int tokenState;
+
+        private Session(int mask, @Nonnull Mode mode, @Nullable InjectionListener listener) {
+            this.mask = mask & InjectionScanner.BUILTIN_INJECTIONS;
+            this.mode = mode;
+            this.listener = listener;
+            this.name = (mode == Mode.FORM) ? new StringBuilder() : null;
+            this.inName = mode == Mode.FORM;
+            this.finished = this.mask == InjectionScanner.NONE;
+            beginValue();
+        }
+
+        @Override
+        public void feed(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            for (int i = offset, end = offset + length; i < end && !finished; i++) {
+                acceptByte(bytes[i] & 0xFF);
+            }
+        }
+
+        @Override
+        public void feed(@Nonnull ByteBuffer buffer) throws IOException {
+            if (buffer.hasArray()) {
+                feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                return;
+            }
+            for (int i = buffer.position(), limit = buffer.limit(); i < limit && !finished; i++) {
+                acceptByte(buffer.get(i) & 0xFF);
+            }
+        }
+
+        @Override
+        public void endOfInput() throws IOException {
+            if (!finished) {
+                endSegment();
+                finished = true;
+            }
+        }
+
+        @Override
+        public void close() {
+            finished = true;
+        }
+
+        private void acceptByte(int value) throws IOException {
+            if (mode == Mode.FORM) {
+                if (value == '&') {
+                    endSegment();
+                    inName = true;
+                    name.setLength(0);
+                    return;
+                }
+                if (value == '=' && inName) {
+                    flushDecoders();
+                    inName = false;
+                    beginValue();
+                    return;
+                }
+                if (value == '+') {
+                    value = ' ';
+                }
+            }
+            acceptPercent(value);
+        }
+
+        private void acceptPercent(int value) throws IOException {
+            if (percentState == 0) {
+                if (value == '%') {
+                    percentState = 1;
+                } else {
+                    acceptUtf8(value);
+                }
+                return;
+            }
+            int digit = Character.digit(value, 16);
+            if (percentState == 1) {
+                if (digit >= 0) {
+                    percentHigh = value;
+                    percentState = 2;
+                    return;
+                }
+                percentState = 0;
+                acceptUtf8('%');
+                acceptPercent(value);
+                return;
+            }
+            percentState = 0;
+            if (digit >= 0) {
+                acceptUtf8((Character.digit(percentHigh, 16) << 4) | digit);
+                return;
+            }
+            acceptUtf8('%');
+            acceptUtf8(percentHigh);
+            acceptPercent(value);
+        }
+
+        private void acceptUtf8(int value) throws IOException {
+            if (utf8Pending > 0) {
+                if ((value & 0xC0) == 0x80) {
+                    utf8CodePoint = (utf8CodePoint << 6) | (value & 0x3F);
+                    if (--utf8Pending == 0) {
+                        acceptReference(utf8CodePoint);
+                    }
+                    return;
+                }
+                utf8Pending = 0;
+                acceptReference(0xFFFD);
+            }
+            if (value < 0x80) {
+                acceptReference(value);
+            } else if ((value & 0xE0) == 0xC0) {
+                utf8CodePoint = value & 0x1F;
+                utf8Pending = 1;
+            } else if ((value & 0xF0) == 0xE0) {
+                utf8CodePoint = value & 0x0F;
+                utf8Pending = 2;
+            } else if ((value & 0xF8) == 0xF0) {
+                utf8CodePoint = value & 0x07;
+                utf8Pending = 3;
+            } else {
+                acceptReference(0xFFFD);
+            }
+        }
+
+        private void acceptReference(int codePoint) throws IOException {
+            if (referenceLength == 0) {
+                if (codePoint == '&') {
+                    reference[referenceLength++] = codePoint;
+                } else {
+                    acceptCodePoint(codePoint);
+                }
+                return;
+            }
+            boolean numeric = referenceLength > 1 && reference[1] == '#';
+            if (codePoint == ';' || (numeric && !isReferenceDigit(codePoint))) {
+                int decoded = decodeReference();
+                if (decoded >= 0) {
+                    referenceLength = 0;
+                    acceptCodePoint(decoded);
+                    if (codePoint != ';') {
+                        acceptReference(codePoint);
+                    }
+                    return;
+                }
+            } else if (referenceLength < MAX_REFERENCE_LENGTH && (isAsciiAlphanumeric(codePoint) || (referenceLength == 1 && codePoint == '#'))) {
+                reference[referenceLength++] = codePoint;
+                return;
+            }
+            flushReference();
+            acceptReference(codePoint);
+        }
+
+        private boolean isReferenceDigit(int codePoint) {
+            boolean hex = referenceLength > 2 && (reference[2] == 'x' || reference[2] == 'X');
+            return (referenceLength == 2 && (codePoint == 'x' || codePoint == 'X')) || (codePoint >= '0' && codePoint <= '9') || (hex && Character.digit(codePoint, 16) >= 0);
+        }
+
+        private int decodeReference() {
+            if (referenceLength > 1 && reference[1] == '#') {
+                boolean hex = referenceLength > 2 && (reference[2] == 'x' || reference[2] == 'X');
+                int start = hex ? 3 : 2, radix = hex ? 16 : 10, result = 0;
+                if (start >= referenceLength) {
+                    return -1;
+                }
+                for (int i = start; i < referenceLength; i++) {
+                    result = result * radix + Character.digit(reference[i], radix);
+                    if (result > Character.MAX_CODE_POINT) {
+                        return -1;
+                    }
+                }
+                return (result == 0) ? -1 : result;
+            }
+            for (int i = 0; i < REFERENCE_NAMES.length; i++) {
+                if (referenceLength - 1 == REFERENCE_NAMES[i].length() && startsWithName(REFERENCE_NAMES[i], referenceLength)) {
+                    return REFERENCE_VALUES[i];
+                }
+            }
+            return -1;
+        }
+
+        private boolean startsWithName(@Nonnull String expected, int length) {
+            if (length - 1 < expected.length()) {
+                return false;
+            }
+            for (int i = 0; i < expected.length(); i++) {
+                if (Character.toLowerCase(reference[i + 1]) != expected.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Emits the buffered reference as is, except a legacy name without semicolon at its head, such as {@code &ltscript}
+         */
+        private void flushReference() throws IOException {
+            int length = referenceLength, start = 0;
+            referenceLength = 0;
+            if (length > 1 && reference[1] != '#') {
+                for (int i = 0; i < LEGACY_REFERENCE_COUNT; i++) {
+                    if (startsWithName(REFERENCE_NAMES[i], length)) {
+                        acceptCodePoint(REFERENCE_VALUES[i]);
+                        start = REFERENCE_NAMES[i].length() + 1;
+                        break;
+                    }
+                }
+            }
+            for (int i = start; i < length; i++) {
+                acceptCodePoint(reference[i]);
+            }
+        }
+
+        private void flushDecoders() throws IOException {
+            if (percentState == 2) {
+                percentState = 0;
+                acceptUtf8('%');
+                acceptUtf8(percentHigh);
+            } else if (percentState == 1) {
+                percentState = 0;
+                acceptUtf8('%');
+            }
+            if (utf8Pending > 0) {
+                utf8Pending = 0;
+                acceptReference(0xFFFD);
+            }
+            if (referenceLength > 0) {
+                if (referenceLength > 2 && reference[1] == '#') {
+                    int decoded = decodeReference();
+                    if (decoded >= 0) {
+                        referenceLength = 0;
+                        acceptCodePoint(decoded);
+                        return;
+                    }
+                }
+                flushReference();
+            }
+        }
+
+        private void acceptCodePoint(int codePoint) throws IOException {
+            if (inName) {
+                if (name.length() < MAX_NAME_LENGTH) {
+                    name.appendCodePoint(codePoint);
+                }
+                return;
+            }
+            if (sqlPending) {
+                acceptSqlCodePoint(codePoint);
+            }
+            if (xssPending) {
+                if (xssCursor.isActive() && xssCursor.accept(codePoint)) {
+                    report(InjectionScanner.XSS_INJECTION);
+                } else if (!xssCursor.isActive() && codePoint == '<') {
+                    xssCursor.start();
+                }
+            }
+        }
+
+        private void acceptSqlCodePoint(int codePoint) throws IOException {
+            boolean whitespace = isWhitespace(codePoint);
+            if (sqlAttempt == ATTEMPT_QUOTES && isQuote(codePoint)) {
+                // Still in the quote run
+            } else if ((sqlAttempt == ATTEMPT_QUOTES || sqlAttempt == ATTEMPT_PARENS) && codePoint == ')') {
+                sqlAttempt = ATTEMPT_PARENS;
+            } else if (sqlAttempt != ATTEMPT_NONE && sqlAttempt != ATTEMPT_KEYWORD && whitespace) {
+                sqlAttempt = ATTEMPT_SPACES;
+            } else if (sqlAttempt != ATTEMPT_NONE) {
+                if (sqlAttempt != ATTEMPT_KEYWORD) {
+                    sqlAttempt = ATTEMPT_KEYWORD;
+                    sqlCursor.start();
+                }
+                if (sqlCursor.accept(codePoint)) {
+                    report(InjectionScanner.SQL_INJECTION);
+                    return;
+                }
+                if (!sqlCursor.isActive()) {
+                    sqlAttempt = ATTEMPT_NONE;
+                }
+            }
+            if (tokenState == TOKEN_BEFORE && !whitespace) {
+                tokenState = TOKEN_INSIDE;
+            }
+            if (tokenState == TOKEN_INSIDE) {
+                if (whitespace) {
+                    tokenState = TOKEN_AFTER;
+                } else if (sqlAttempt == ATTEMPT_NONE && isQuote(codePoint)) {
+                    sqlAttempt = ATTEMPT_QUOTES;
+                }
+            }
+            if (tokenState == TOKEN_AFTER && sqlAttempt == ATTEMPT_NONE) {
+                sqlPending = false;
+            }
+        }
+
+        private void beginValue() {
+            sqlPending = mode != Mode.MARKUP && (mask & ~detected & InjectionScanner.SQL_INJECTION) != 0;
+            xssPending = (mask & ~detected & InjectionScanner.XSS_INJECTION) != 0;
+            sqlAttempt = ATTEMPT_NONE;
+            tokenState = TOKEN_BEFORE;
+            sqlCursor.reset();
+            xssCursor.reset();
+        }
+
+        private void endSegment() throws IOException {
+            flushDecoders();
+            if (inName || finished) {
+                return;
+            }
+            if (sqlPending && sqlAttempt == ATTEMPT_KEYWORD && sqlCursor.end()) {
+                report(InjectionScanner.SQL_INJECTION);
+            }
+            if (xssPending && xssCursor.end()) {
+                report(InjectionScanner.XSS_INJECTION);
+            }
+            beginValue();
+        }
+
+        private void report(int flag) throws IOException {
+            detected |= flag;
+            sqlPending &= (flag != InjectionScanner.SQL_INJECTION);
+            xssPending &= (flag != InjectionScanner.XSS_INJECTION);
+            finished = (detected & mask) == mask;
+            if (listener != null) {
+                listener.onInjection(flag, (name == null) ? null : name.toString(), null);
+            }
+        }
+
+        private static boolean isQuote(int codePoint) {
+            return codePoint == '\'' || codePoint == '"';
+        }
+
+        private static boolean isWhitespace(int codePoint) {
+            return codePoint == ' ' || (codePoint >= '\t' && codePoint <= '\r');
+        }
+
+        private static boolean isAsciiAlphanumeric(int codePoint) {
+            return (codePoint >= 'a' && codePoint <= 'z') || (codePoint >= 'A' && codePoint <= 'Z') || (codePoint >= '0' && codePoint <= '9');
+        }
+    }
+
+
+    /**
+     * Cursor that walks a {@link com.yookue.springstarter.injectiondefender.scanner.KeywordAutomaton} one code point at a time
+     */
+    private static final class KeywordCursor {
+        private final KeywordAutomaton automaton;
+        private int state = KeywordAutomaton.DEAD;
+        private boolean bounded;
+
+        private KeywordCursor(@Nonnull KeywordAutomaton automaton) {
+            this.automaton = automaton;
+        }
+
+        private void start() {
+            state = KeywordAutomaton.START;
+            bounded = false;
+        }
+
+        private void reset() {
+            state = KeywordAutomaton.DEAD;
+            bounded = false;
+        }
+
+        private boolean isActive() {
+            return state != KeywordAutomaton.DEAD;
+        }
+
+        /**
+         * Returns whether a keyword is matched by the given code point
+         */
+        private boolean accept(int codePoint) {
+            if (bounded && !KeywordAutomaton.isWordChar(codePoint)) {
+                reset();
+                return true;
+            }
+            state = automaton.step(state, codePoint);
+            if (state == KeywordAutomaton.DEAD) {
+                bounded = false;
+                return false;
+            }
+            if (automaton.isPlainAccept(state)) {
+                reset();
+                return true;
+            }
+            bounded = automaton.isBoundedAccept(state);
+            return false;
+        }
+
+        /**
+         * Returns whether a keyword is matched at the end of a value
+         */
+        private boolean end() {
+            boolean result = isActive() && bounded;
+            reset();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Listener of the injections that detected by the streaming scanners
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.scanner.ScanSession
+ */
+@FunctionalInterface
+public interface InjectionListener {
+    /**
+     * Handles an injection that detected in a body
+     *
+     * @param flags the injection flags that detected
+     * @param name the field name of the value, or {@code null} if not available
+     * @param value the value, or {@code null} if not materialized
+     */
+    void onInjection(int flags, @Nullable String name, @Nullable String value) throws IOException;
+}
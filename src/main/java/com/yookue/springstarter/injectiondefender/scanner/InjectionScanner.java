@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.nio.CharBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Single-pass scanner that classifies a char sequence for sql and xss injections
+ * <p>
+ * Sql injection is a quote in the leading token, followed by optional {@code )} and whitespaces, then a sql keyword or comment token
+ * <br>
+ * Xss injection is a {@code <script} or {@code <iframe} tag opening at any position
+ * <p>
+ * Both rules are evaluated in one linear pass with pre-compiled keyword automatons, no {@link java.util.regex.Matcher} is allocated
+ * <p>
+ * Values without any trigger character ({@code '}, {@code "} for sql, {@code <} for xss) are rejected by a prefilter before scanning
+ * <p>
+ * The custom rules that passed by the caller are evaluated after the built-in rules, for the flags that still not detected
+ * <br>
+ * Path traversal and command injection are detected by the custom rules only
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public abstract class InjectionScanner {
+    public static final int NONE = 0;
+    public static final int SQL_INJECTION = 1;
+    public static final int XSS_INJECTION = 1 << 1;
+    public static final int PATH_TRAVERSAL = 1 << 2;
+    public static final int COMMAND_INJECTION = 1 << 3;
+    public static final int BUILTIN_INJECTIONS = SQL_INJECTION | XSS_INJECTION;
+    public static final int ALL_INJECTIONS = BUILTIN_INJECTIONS | PATH_TRAVERSAL | COMMAND_INJECTION;
+    public static final int NON_XSS_INJECTIONS = ALL_INJECTIONS & ~XSS_INJECTION;
+
+    private static final KeywordAutomaton SQL_KEYWORDS = new KeywordAutomaton("and", "or", "union", "select", "insert", "update", "delete", "create", "drop", "truncate", "grant", "alter", "execute", "exec", "declare", "order", "show", "#", "--", "})", "/*");    // $NON-NLS-1$
+    private static final KeywordAutomaton XSS_TAGS = new KeywordAutomaton("iframe", "script");    // $NON-NLS-1$
+    private static final LongAdder PREFILTER_SKIPPED = new LongAdder();
+    private static final LongAdder PREFILTER_PASSED = new LongAdder();
+
+    /**
+     * Returns the injection flags that detected in the given sequence
+     *
+     * @param sequence the sequence to inspect
+     *
+     * @return the injection flags that detected in the given sequence
+     */
+    public static int scan(@Nullable CharSequence sequence) {
+        return scan(sequence, ALL_INJECTIONS);
+    }
+
+    /**
+     * Returns the injection flags that detected in the given sequence
+     *
+     * @param sequence the sequence to inspect
+     * @param mask the injection flags to detect
+     *
+     * @return the injection flags that detected in the given sequence, within the mask
+     */
+    public static int scan(@Nullable CharSequence sequence, int mask) {
+        return scan(sequence, mask, null);
+    }
+
+    /**
+     * Returns the injection flags that detected in the given sequence
+     *
+     * @param sequence the sequence to inspect
+     * @param mask the injection flags to detect
+     * @param rules the custom rules to evaluate after the built-in rules, or {@code null} for none
+     *
+     * @return the injection flags that detected in the given sequence, within the mask
+     */
+    public static int scan(@Nullable CharSequence sequence, int mask, @Nullable RuleMatcher rules) {
+        if (sequence == null || (mask &= maskOf(rules)) == NONE) {
+            return NONE;
+        }
+        int result = ((mask & BUILTIN_INJECTIONS) == NONE) ? NONE : scanBuiltin(sequence, mask);
+        return (result == mask || rules == null) ? result : (result | rules.scan(sequence, mask & ~result));
+    }
+
+    /**
+     * Returns the injection flags that detected in the given range of chars
+     * <p>
+     * The chars are wrapped without copying, for tokenizers that expose their text buffers
+     *
+     * @param chars the chars to inspect
+     * @param offset the start index of the range
+     * @param length the length of the range
+     * @param mask the injection flags to detect
+     *
+     * @return the injection flags that detected in the given range of chars, within the mask
+     */
+    public static int scan(@Nullable char[] chars, int offset, int length, int mask) {
+        return scan(chars, offset, length, mask, null);
+    }
+
+    /**
+     * Returns the injection flags that detected in the given range of chars
+     *
+     * @param chars the chars to inspect
+     * @param offset the start index of the range
+     * @param length the length of the range
+     * @param mask the injection flags to detect
+     * @param rules the custom rules to evaluate after the built-in rules, or {@code null} for none
+     *
+     * @return the injection flags that detected in the given range of chars, within the mask
+     */
+    public static int scan(@Nullable char[] chars, int offset, int length, int mask, @Nullable RuleMatcher rules) {
+        return (chars == null || length <= 0) ? NONE : scan(CharBuffer.wrap(chars, offset, length), mask, rules);
+    }
+
+    /**
+     * Returns the injection flags that detected in any of the given sequences
+     *
+     * @param sequences the sequences to inspect
+     * @param mask the injection flags to detect
+     *
+     * @return the injection flags that detected in any of the given sequences, within the mask
+     */
+    public static int scan(@Nullable CharSequence[] sequences, int mask) {
+        return scan(sequences, mask, null);
+    }
+
+    /**
+     * Returns the injection flags that detected in any of the given sequences
+     *
+     * @param sequences the sequences to inspect
+     * @param mask the injection flags to detect
+     * @param rules the custom rules to evaluate after the built-in rules, or {@code null} for none
+     *
+     * @return the injection flags that detected in any of the given sequences, within the mask
+     */
+    public static int scan(@Nullable CharSequence[] sequences, int mask, @Nullable RuleMatcher rules) {
+        if (sequences == null || (mask &= maskOf(rules)) == NONE) {
+            return NONE;
+        }
+        int result = NONE;
+        for (CharSequence sequence : sequences) {
+            result |= scan(sequence, mask & ~result, rules);
+            if (result == mask) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the given sequence contains any trigger character of the injection flags
+     * <p>
+     * For {@link String}, this relies on {@link String#indexOf(int)}, which is vectorized by the jvm intrinsics
+     *
+     * @param sequence the sequence to inspect
+     * @param mask the injection flags to detect
+     *
+     * @return whether the given sequence contains any trigger character of the injection flags
+     */
+    public static boolean mayContainInjection(@Nullable CharSequence sequence, int mask) {
+        if (sequence == null || sequence.isEmpty()) {
+            return false;
+        }
+        boolean sqlPending = (mask & SQL_INJECTION) != 0, xssPending = (mask & XSS_INJECTION) != 0;
+        if (sequence instanceof String string) {
+            return (xssPending && string.indexOf('<') >= 0) || (sqlPending && (string.indexOf('\'') >= 0 || string.indexOf('"') >= 0));
+        }
+        for (int i = 0, length = sequence.length(); i < length; i++) {
+            char ch = sequence.charAt(i);
+            if ((xssPending && ch == '<') || (sqlPending && isQuote(ch))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the count of values that skipped by the prefilter
+     */
+    public static long getPrefilterSkippedCount() {
+        return PREFILTER_SKIPPED.sum();
+    }
+
+    /**
+     * Returns the count of values that passed the prefilter and were scanned
+     */
+    public static long getPrefilterPassedCount() {
+        return PREFILTER_PASSED.sum();
+    }
+
+    /**
+     * Returns whether the given flags contains sql injection
+     */
+    public static boolean hasSqlInjection(int flags) {
+        return (flags & SQL_INJECTION) != 0;
+    }
+
+    /**
+     * Returns whether the given flags contains xss injection
+     */
+    public static boolean hasXssInjection(int flags) {
+        return (flags & XSS_INJECTION) != 0;
+    }
+
+    /**
+     * Returns whether the given flags contains any injection that detected by the custom rules only
+     */
+    public static boolean hasRuleInjection(int flags) {
+        return (flags & ALL_INJECTIONS & ~BUILTIN_INJECTIONS) != 0;
+    }
+
+    /**
+     * Returns the injection flags that can be detected with the given custom rules
+     */
+    private static int maskOf(@Nullable RuleMatcher rules) {
+        return (rules == null) ? BUILTIN_INJECTIONS : (BUILTIN_INJECTIONS | rules.getFlags());
+    }
+
+    private static int scanBuiltin(@Nonnull CharSequence sequence, int mask) {
+        if (!mayContainInjection(sequence, mask)) {
+            PREFILTER_SKIPPED.increment();
+            return NONE;
+        }
+        PREFILTER_PASSED.increment();
+        int length = sequence.length(), result = NONE;
+        boolean sqlPending = (mask & SQL_INJECTION) != 0, xssPending = (mask & XSS_INJECTION) != 0, leading = true;
+        for (int i = 0; i < length && (sqlPending || xssPending); i++) {
+            char ch = sequence.charAt(i);
+            if (sqlPending) {
+                if (isWhitespace(ch)) {
+                    sqlPending = leading;
+                } else {
+                    leading = false;
+                    if (isQuote(ch)) {
+                        int quoteEnd = i + 1;
+                        while (quoteEnd < length && isQuote(sequence.charAt(quoteEnd))) {
+                            quoteEnd++;
+                        }
+                        int keyword = quoteEnd;
+                        while (keyword < length && sequence.charAt(keyword) == ')') {
+                            keyword++;
+                        }
+                        while (keyword < length && isWhitespace(sequence.charAt(keyword))) {
+                            keyword++;
+                        }
+                        if (SQL_KEYWORDS.matchesAt(sequence, keyword, length)) {
+                            result |= SQL_INJECTION;
+                            sqlPending = false;
+                        }
+                        i = quoteEnd - 1;
+                        continue;
+                    }
+                }
+            }
+            if (xssPending && ch == '<' && XSS_TAGS.matchesAt(sequence, i + 1, length)) {
+                result |= XSS_INJECTION;
+                xssPending = false;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isQuote(char ch) {
+        return ch == '\'' || ch == '"';
+    }
+
+    /**
+     * Returns whether the given char is a whitespace, the same as {@code \s} in {@link java.util.regex.Pattern}
+     */
+    private static boolean isWhitespace(char ch) {
+        return ch == ' ' || (ch >= '\t' && ch <= '\r');
+    }
+}
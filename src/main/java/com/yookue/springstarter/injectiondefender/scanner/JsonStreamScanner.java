@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import lombok.Getter;
+
+
+/**
+ * Incremental scanner that inspects the string values of a json document, chunk by chunk
+ * <p>
+ * Chunks are tokenized by a non-blocking {@link com.fasterxml.jackson.core.JsonParser}, so only the current token is retained, and the document is never materialized
+ * <br>
+ * The {@link com.fasterxml.jackson.core.JsonFactory} is thread-safe and shared by all the sessions
+ *
+ * @author David Hsing
+ * @see com.fasterxml.jackson.core.async.ByteBufferFeeder
+ */
+@Getter
+@SuppressWarnings("unused")
+public class JsonStreamScanner {
+    private final JsonFactory jsonFactory;
+
+    public JsonStreamScanner() {
+        this(new JsonFactory());
+    }
+
+    public JsonStreamScanner(@Nonnull JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Returns a new session for a json document
+     *
+     * @param mask the injection flags to detect
+     * @param listener the listener to notify when an injection detected
+     *
+     * @return a new session for a json document
+     */
+    @Nonnull
+    public Session newSession(int mask, @Nonnull InjectionListener listener) throws IOException {
+        return newSession(mask, null, listener);
+    }
+
+    /**
+     * Returns a new session for a json document
+     *
+     * @param mask the injection flags to detect
+     * @param rules the custom rules to evaluate after the built-in rules, or {@code null} for none
+     * @param listener the listener to notify when an injection detected
+     *
+     * @return a new session for a json document
+     */
+    @Nonnull
+    public Session newSession(int mask, @Nullable RuleMatcher rules, @Nonnull InjectionListener listener) throws IOException {
+        return new Session(jsonFactory.createNonBlockingByteBufferParser(), mask, rules, listener);
+    }
+
+
+    /**
+     * Scanning session of a json document
+     * <p>
+     * Each injection flag is reported once at most, and the session finishes when all the flags are reported, or when the document is malformed
+     *
+     * @author David Hsing
+     */
+    public static class Session implements ScanSession {
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private final RuleMatcher rules;
+        private final InjectionListener listener;
+
+        @Getter
+        private int pendingMask;
+
+        @Getter
+        private boolean finished;
+
+        private Session(@Nonnull JsonParser parser, int mask, @Nullable RuleMatcher rules, @Nonnull InjectionListener listener) {
+            this.parser = parser;
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+            this.rules = rules;
+            this.pendingMask = mask & ((rules == null) ? InjectionScanner.BUILTIN_INJECTIONS : (InjectionScanner.BUILTIN_INJECTIONS | rules.getFlags()));
+            this.listener = listener;
+            this.finished = pendingMask == InjectionScanner.NONE;
+        }
+
+        @Override
+        public void feed(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            if (!finished && length > 0) {
+                feed(ByteBuffer.wrap(bytes, offset, length));
+            }
+        }
+
+        @Override
+        public void feed(@Nonnull ByteBuffer buffer) throws IOException {
+            if (finished || !buffer.hasRemaining()) {
+                return;
+            }
+            try {
+                feeder.feedInput(buffer.duplicate());
+            } catch (JsonProcessingException ignored) {
+                close();
+                return;
+            }
+            drain();
+        }
+
+        @Override
+        public void endOfInput() throws IOException {
+            if (finished) {
+                return;
+            }
+            feeder.endOfInput();
+            drain();
+            close();
+        }
+
+        @Override
+        public void close() throws IOException {
+            finished = true;
+            parser.close();
+        }
+
+        private void drain() throws IOException {
+            try {
+                JsonToken token;
+                while (!finished && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                    if (token != JsonToken.VALUE_STRING) {
+                        continue;
+                    }
+                    int detected = InjectionScanner.scan(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), pendingMask, rules);
+                    if (detected != InjectionScanner.NONE) {
+                        pendingMask &= ~detected;
+                        finished = pendingMask == InjectionScanner.NONE;
+                        listener.onInjection(detected, parser.currentName(), parser.getText());
+                    }
+                }
+            } catch (JsonProcessingException ignored) {
+                // Malformed documents are left to the message converters
+                close();
+            }
+        }
+    }
+}
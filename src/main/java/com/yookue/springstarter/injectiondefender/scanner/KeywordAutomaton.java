@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Anchored, case-insensitive DFA over a fixed set of ASCII keywords
+ * <p>
+ * The transition table is built once, so matching at a given position walks at most the longest keyword, without allocation or backtracking
+ *
+ * @author David Hsing
+ */
+final class KeywordAutomaton {
+    static final int START = 0;
+    static final int DEAD = -1;
+    private static final int ALPHABET_BITS = 7;
+    private static final int ALPHABET_SIZE = 1 << ALPHABET_BITS;
+    private static final byte ACCEPT_PLAIN = 1;
+    private static final byte ACCEPT_BOUNDED = 2;
+
+    private final int[] transitions;
+    private final byte[] accepts;
+
+    KeywordAutomaton(@Nonnull String... keywords) {
+        int capacity = 1;
+        for (String keyword : keywords) {
+            capacity += keyword.length();
+        }
+        int[] table = new int[capacity << ALPHABET_BITS];
+        byte[] terminals = new byte[capacity];
+        int states = 1;
+        for (String keyword : keywords) {
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char ch = Character.toLowerCase(keyword.charAt(i));
+                if (ch >= ALPHABET_SIZE) {
+                    throw new IllegalArgumentException("Keyword must be ascii: " + keyword);
+                }
+                int next = table[(state << ALPHABET_BITS) | ch];
+                if (next == 0) {
+                    next = states++;
+                    table[(state << ALPHABET_BITS) | ch] = next;
+                    table[(state << ALPHABET_BITS) | Character.toUpperCase(ch)] = next;
+                }
+                state = next;
+            }
+            terminals[state] = isWordChar(keyword.charAt(keyword.length() - 1)) ? ACCEPT_BOUNDED : ACCEPT_PLAIN;
+        }
+        this.transitions = table;
+        this.accepts = terminals;
+    }
+
+    /**
+     * Returns whether any keyword starts at the given index
+     * <p>
+     * Keywords ending with a word character must be followed by a word boundary, the same as {@code \b} in {@link java.util.regex.Pattern}
+     */
+    boolean matchesAt(@Nonnull CharSequence sequence, int index, int end) {
+        int state = 0;
+        for (int i = index; i < end; i++) {
+            char ch = sequence.charAt(i);
+            if (ch >= ALPHABET_SIZE || (state = transitions[(state << ALPHABET_BITS) | ch]) == 0) {
+                return false;
+            }
+            byte accept = accepts[state];
+            if (accept == ACCEPT_PLAIN || (accept == ACCEPT_BOUNDED && (i + 1 == end || !isWordChar(sequence.charAt(i + 1))))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the state after the given code point, or {@link #DEAD} if no keyword continues with it
+     */
+    int step(int state, int codePoint) {
+        if (state < 0 || codePoint < 0 || codePoint >= ALPHABET_SIZE) {
+            return DEAD;
+        }
+        int next = transitions[(state << ALPHABET_BITS) | codePoint];
+        return (next == 0) ? DEAD : next;
+    }
+
+    /**
+     * Returns whether the given state completes a keyword that needs no word boundary
+     */
+    boolean isPlainAccept(int state) {
+        return state > 0 && accepts[state] == ACCEPT_PLAIN;
+    }
+
+    /**
+     * Returns whether the given state completes a keyword that must be followed by a word boundary
+     */
+    boolean isBoundedAccept(int state) {
+        return state > 0 && accepts[state] == ACCEPT_BOUNDED;
+    }
+
+    static boolean isWordChar(int codePoint) {
+        return codePoint == '_' || Character.isLetterOrDigit(codePoint);
+    }
+
+    static boolean isWordChar(char ch) {
+        return ch == '_' || Character.isLetterOrDigit(ch);
+    }
+}
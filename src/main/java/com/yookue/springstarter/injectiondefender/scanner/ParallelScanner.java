@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.util.CollectionUtils;
+import lombok.Getter;
+
+
+/**
+ * Scanner that splits the scanning of many values across a bounded {@link java.util.concurrent.ForkJoinPool}
+ * <p>
+ * Values below the threshold are scanned on the calling thread, so small requests never pay for the hand-off
+ * <br>
+ * The remaining slices are cancelled on the first hit, so the result tells whether the values are clean, but not all the injections of them
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.scanner.InjectionScanner
+ */
+@SuppressWarnings("unused")
+public class ParallelScanner implements DisposableBean {
+    private static final String THREAD_PREFIX = "injection-defender-scanner-";    // $NON-NLS-1$
+
+    @Getter
+    private final int threshold;
+
+    @Getter
+    private final int parallelism;
+
+    /**
+     * The minimum count of values in a slice, slices are not split below it
+     */
+    @Getter
+    private final int sliceSize;
+
+    private final ForkJoinPool pool;
+
+    public ParallelScanner(int threshold, int parallelism) {
+        this(threshold, parallelism, 64);
+    }
+
+    public ParallelScanner(int threshold, int parallelism, int sliceSize) {
+        this.threshold = Math.max(threshold, 1);
+        this.parallelism = Math.max(parallelism, 1);
+        this.sliceSize = Math.max(sliceSize, 1);
+        this.pool = new ForkJoinPool(this.parallelism, target -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(target);
+            thread.setName(THREAD_PREFIX + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Returns the injection flags of the given values, stops on the first hit
+     *
+     * @param sequences the values to scan
+     * @param mask the injection flags to detect
+     *
+     * @return the injection flags of the given values, stops on the first hit
+     */
+    public int scan(@Nullable Collection<? extends CharSequence> sequences, int mask) {
+        return scan(sequences, mask, null);
+    }
+
+    /**
+     * Returns the injection flags of the given values, stops on the first hit
+     *
+     * @param sequences the values to scan
+     * @param mask the injection flags to detect
+     * @param rules the custom rules to evaluate after the built-in rules, or {@code null} for none
+     *
+     * @return the injection flags of the given values, stops on the first hit
+     */
+    public int scan(@Nullable Collection<? extends CharSequence> sequences, int mask, @Nullable RuleMatcher rules) {
+        if (CollectionUtils.isEmpty(sequences) || mask == InjectionScanner.NONE) {
+            return InjectionScanner.NONE;
+        }
+        if (!isParallel(sequences.size())) {
+            for (CharSequence sequence : sequences) {
+                int result = InjectionScanner.scan(sequence, mask, rules);
+                if (result != InjectionScanner.NONE) {
+                    return result;
+                }
+            }
+            return InjectionScanner.NONE;
+        }
+        List<CharSequence[]> groups = new ArrayList<>(sequences.size());
+        for (CharSequence sequence : sequences) {
+            groups.add(new CharSequence[]{sequence});
+        }
+        return scanGroups(groups, mask, rules);
+    }
+
+    /**
+     * Returns the injection flags of the given groups of values, such as the values of the parameters, stops on the first hit
+     *
+     * @param groups the groups of values to scan
+     * @param mask the injection flags to detect
+     *
+     * @return the injection flags of the given groups of values, stops on the first hit
+     */
+    public int scanGroups(@Nullable List<? extends CharSequence[]> groups, int mask) {
+        return scanGroups(groups, mask, null);
+    }
+
+    /**
+     * Returns the injection flags of the given groups of values, such as the values of the parameters, stops on the first hit
+     *
+     * @param groups the groups of values to scan
+     * @param mask the injection flags to detect
+     * @param rules the custom rules to evaluate after the built-in rules, or {@code null} for none
+     *
+     * @return the injection flags of the given groups of values, stops on the first hit
+     */
+    public int scanGroups(@Nullable List<? extends CharSequence[]> groups, int mask, @Nullable RuleMatcher rules) {
+        if (CollectionUtils.isEmpty(groups) || mask == InjectionScanner.NONE) {
+            return InjectionScanner.NONE;
+        }
+        if (!isParallel(groups.size()) || pool.isShutdown()) {
+            return new SliceTask(groups, 0, groups.size(), mask, rules, new AtomicBoolean()).scanSlice();
+        }
+        return pool.invoke(new SliceTask(groups, 0, groups.size(), mask, rules, new AtomicBoolean()));
+    }
+
+    /**
+     * Returns whether the given count of values is scanned in parallel
+     */
+    public boolean isParallel(int count) {
+        return parallelism > 1 && count >= threshold;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(1L, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class SliceTask extends RecursiveTask<Integer> {
+        private final List<? extends CharSequence[]> groups;
+        private final int from;
+        private final int to;
+        private final int mask;
+        private final RuleMatcher rules;
+        private final AtomicBoolean hit;
+
+        private SliceTask(@Nonnull List<? extends CharSequence[]> groups, int from, int to, int mask, @Nullable RuleMatcher rules, @Nonnull AtomicBoolean hit) {
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+            this.mask = mask;
+            this.rules = rules;
+            this.hit = hit;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= sliceSize) {
+                return scanSlice();
+            }
+            int middle = (from + to) >>> 1;
+            SliceTask left = new SliceTask(groups, from, middle, mask, rules, hit);
+            left.fork();
+            int result = new SliceTask(groups, middle, to, mask, rules, hit).compute();
+            if (result != InjectionScanner.NONE && left.tryUnfork()) {
+                return result;
+            }
+            return result | left.join();
+        }
+
+        private int scanSlice() {
+            for (int i = from; i < to && !hit.get(); i++) {
+                int result = InjectionScanner.scan(groups.get(i), mask, rules);
+                if (result != InjectionScanner.NONE) {
+                    hit.set(true);
+                    return result;
+                }
+            }
+            return InjectionScanner.NONE;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRule;
+import com.yookue.springstarter.injectiondefender.rule.RuleKind;
+
+
+/**
+ * Immutable matcher that compiled from custom detection rules
+ * <p>
+ * All the keyword rules are compiled into one case-insensitive Aho-Corasick automaton, whose transitions are resolved into a dense table, so a value is walked once with one lookup per char, no matter how many keywords there are
+ * <br>
+ * All the regex rules are joined into one alternation per combination of the injection flags, so the regex rules cost one more pass at most, only for the flags that the keywords did not hit
+ * <br>
+ * Joining the regexes renumbers their groups, so the regexes with numbered back references are rejected
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager
+ */
+@SuppressWarnings("unused")
+public final class RuleMatcher {
+    private static final int ALPHABET_BITS = 7;
+    private static final int ALPHABET_SIZE = 1 << ALPHABET_BITS;
+    private static final int[] FLAGS = {InjectionScanner.SQL_INJECTION, InjectionScanner.XSS_INJECTION, InjectionScanner.PATH_TRAVERSAL, InjectionScanner.COMMAND_INJECTION};
+    private static final String[] GROUPS = {"sql", "xss", "path", "command"};    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+    public static final RuleMatcher EMPTY = compile(List.of());
+
+    private final int size;
+    private final int[] transitions;
+    private final int[] outputs;
+    private final int keywordFlags;
+    private final int regexFlags;
+    private final Pattern[] patterns;
+
+    private RuleMatcher(int size, @Nonnull int[] transitions, @Nonnull int[] outputs, int keywordFlags, int regexFlags, @Nonnull Pattern[] patterns) {
+        this.size = size;
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.keywordFlags = keywordFlags;
+        this.regexFlags = regexFlags;
+        this.patterns = patterns;
+    }
+
+    /**
+     * Returns the matcher that compiled from the given rules
+     *
+     * @param rules the rules to compile
+     *
+     * @return the matcher that compiled from the given rules
+     *
+     * @throws java.lang.IllegalArgumentException if a keyword is not ascii, or a regex is invalid
+     */
+    @Nonnull
+    public static RuleMatcher compile(@Nonnull Collection<DetectionRule> rules) {
+        int capacity = 1, keywordFlags = InjectionScanner.NONE, regexFlags = InjectionScanner.NONE;
+        List<List<String>> regexes = new ArrayList<>(FLAGS.length);
+        for (int i = 0; i < FLAGS.length; i++) {
+            regexes.add(new ArrayList<>());
+        }
+        for (DetectionRule rule : rules) {
+            int flag = rule.getCategory().getFlag();
+            if (rule.getKind() == RuleKind.KEYWORD) {
+                capacity += rule.getPattern().length();
+                keywordFlags |= flag;
+            } else {
+                try {
+                    validateRegex(rule.getPattern());
+                } catch (PatternSyntaxException ex) {
+                    throw new IllegalArgumentException("Invalid regex at " + rule.getId() + ": " + ex.getDescription(), ex);    // $NON-NLS-1$ // $NON-NLS-2$
+                }
+                regexes.get(indexOf(flag)).add(rule.getPattern());
+                regexFlags |= flag;
+            }
+        }
+        int[] table = new int[capacity << ALPHABET_BITS];
+        int[] outputs = new int[capacity];
+        int states = 1;
+        for (DetectionRule rule : rules) {
+            if (rule.getKind() != RuleKind.KEYWORD || rule.getPattern().isEmpty()) {
+                continue;
+            }
+            String keyword = rule.getPattern();
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char ch = Character.toLowerCase(keyword.charAt(i));
+                if (ch >= ALPHABET_SIZE) {
+                    throw new IllegalArgumentException("Keyword must be ascii at " + rule.getId());    // $NON-NLS-1$
+                }
+                int next = table[(state << ALPHABET_BITS) | ch];
+                if (next == 0) {
+                    next = states++;
+                    table[(state << ALPHABET_BITS) | ch] = next;
+                    table[(state << ALPHABET_BITS) | Character.toUpperCase(ch)] = next;
+                }
+                state = next;
+            }
+            outputs[state] |= rule.getCategory().getFlag();
+        }
+        resolveFailures(table, outputs, states);
+        // The masks beyond the regex flags share the pattern of their subset, so each distinct alternation is compiled once
+        Pattern[] patterns = new Pattern[InjectionScanner.ALL_INJECTIONS + 1];
+        for (int mask = 1; mask < patterns.length; mask++) {
+            patterns[mask] = ((mask & regexFlags) == mask) ? joinRegexes(regexes, mask) : patterns[mask & regexFlags];
+        }
+        return new RuleMatcher(rules.size(), table, outputs, keywordFlags, regexFlags, patterns);
+    }
+
+    /**
+     * Returns the injection flags that the rules detected in the given sequence
+     *
+     * @param sequence the sequence to inspect
+     * @param mask the injection flags to detect
+     *
+     * @return the injection flags that the rules detected in the given sequence, within the mask
+     */
+    public int scan(@Nullable CharSequence sequence, int mask) {
+        mask &= (keywordFlags | regexFlags);
+        if (sequence == null || mask == InjectionScanner.NONE) {
+            return InjectionScanner.NONE;
+        }
+        int result = InjectionScanner.NONE, keywordMask = mask & keywordFlags;
+        if (keywordMask != InjectionScanner.NONE) {
+            int state = 0;
+            for (int i = 0, length = sequence.length(); i < length; i++) {
+                char ch = sequence.charAt(i);
+                state = (ch < ALPHABET_SIZE) ? transitions[(state << ALPHABET_BITS) | ch] : 0;
+                if ((outputs[state] & keywordMask) != InjectionScanner.NONE) {
+                    result |= outputs[state] & keywordMask;
+                    if (result == keywordMask) {
+                        break;
+                    }
+                }
+            }
+        }
+        int pending = mask & regexFlags & ~result;
+        if (pending == InjectionScanner.NONE) {
+            return result;
+        }
+        Matcher matcher = patterns[pending].matcher(sequence);
+        while (pending != InjectionScanner.NONE && matcher.find()) {
+            for (int i = 0; i < FLAGS.length; i++) {
+                if ((pending & FLAGS[i]) != InjectionScanner.NONE && matcher.start(GROUPS[i]) >= 0) {
+                    result |= FLAGS[i];
+                    pending &= ~FLAGS[i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Validates the given regex of a rule
+     *
+     * @param regex the regex to validate
+     *
+     * @throws java.util.regex.PatternSyntaxException if the regex is invalid, or contains a numbered back reference
+     */
+    public static void validateRegex(@Nonnull String regex) {
+        boolean quoted = false;
+        for (int i = 0, length = regex.length(); i < length - 1; i++) {
+            if (regex.charAt(i) != '\\') {
+                continue;
+            }
+            char next = regex.charAt(i + 1);
+            if (quoted) {
+                // Back slashes are literal in a quotation, until the closing one
+                if (next == 'E') {
+                    quoted = false;
+                    i++;
+                }
+                continue;
+            }
+            if (next == 'Q') {
+                quoted = true;
+            } else if (next >= '1' && next <= '9') {
+                throw new PatternSyntaxException("Numbered back reference is not supported, use a named group instead", regex, i);    // $NON-NLS-1$
+            }
+            i++;
+        }
+        Pattern.compile(regex);
+    }
+
+    /**
+     * Returns the injection flags that the rules can detect
+     */
+    public int getFlags() {
+        return keywordFlags | regexFlags;
+    }
+
+    /**
+     * Returns whether no rule is compiled
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the count of the compiled rules
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Fills the missing transitions with the transitions of the failure states, in breadth-first order
+     * <p>
+     * The outputs of the failure states are merged as well, so a keyword that ends inside a longer one is still reported
+     */
+    private static void resolveFailures(@Nonnull int[] table, @Nonnull int[] outputs, int states) {
+        int[] failures = new int[states];
+        boolean[] queued = new boolean[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        queued[0] = true;
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int state = queue.poll(), row = state << ALPHABET_BITS, failureRow = failures[state] << ALPHABET_BITS;
+            for (int ch = 0; ch < ALPHABET_SIZE; ch++) {
+                int child = table[row | ch];
+                if (child == 0) {
+                    table[row | ch] = (state == 0) ? 0 : table[failureRow | ch];
+                } else if (!queued[child]) {
+                    failures[child] = (state == 0) ? 0 : table[failureRow | ch];
+                    outputs[child] |= outputs[failures[child]];
+                    queued[child] = true;
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    @Nullable
+    private static Pattern joinRegexes(@Nonnull List<List<String>> regexes, int mask) {
+        if (mask == InjectionScanner.NONE) {
+            return null;
+        }
+        StringJoiner groups = new StringJoiner("|");    // $NON-NLS-1$
+        for (int i = 0; i < FLAGS.length; i++) {
+            if ((mask & FLAGS[i]) != InjectionScanner.NONE) {
+                StringJoiner alternatives = new StringJoiner("|", "(?<" + GROUPS[i] + ">", ")");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+                regexes.get(i).forEach(regex -> alternatives.add("(?:" + regex + ')'));    // $NON-NLS-1$
+                groups.add(alternatives.toString());
+            }
+        }
+        return Pattern.compile(groups.toString(), Pattern.CASE_INSENSITIVE);
+    }
+
+    private static int indexOf(int flag) {
+        return Integer.numberOfTrailingZeros(flag);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Session that scans a body chunk by chunk
+ * <p>
+ * Each injection flag is reported to the {@link com.yookue.springstarter.injectiondefender.scanner.InjectionListener} once at most
+ *
+ * @author David Hsing
+ */
+public interface ScanSession extends Closeable {
+    /**
+     * Feeds a chunk of the body, the chunk is fully consumed when this method returns, so the caller may reuse the bytes
+     *
+     * @param bytes the bytes of the chunk
+     * @param offset the start index of the chunk
+     * @param length the length of the chunk
+     */
+    void feed(@Nonnull byte[] bytes, int offset, int length) throws IOException;
+
+    /**
+     * Feeds the remaining bytes of the given buffer, without changing its position
+     *
+     * @param buffer the buffer to feed
+     */
+    void feed(@Nonnull ByteBuffer buffer) throws IOException;
+
+    /**
+     * Marks the end of the body, and inspects the pending input
+     */
+    void endOfInput() throws IOException;
+
+    /**
+     * Returns whether the session needs no more input or not
+     */
+    boolean isFinished();
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.StringUtils;
+import org.jsoup.safety.Safelist;
+import com.yookue.commonplexus.javaseutil.enumeration.JsoupWhitelistType;
+import com.yookue.springstarter.injectiondefender.event.MaliciousAccessSnapshot;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicy;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import com.yookue.springstarter.injectiondefender.scanner.RuleMatcher;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Immutable decisions of injection defender for a request
+ * <p>
+ * Resolved once per request by {@link com.yookue.springstarter.injectiondefender.support.DefenderContextResolver}, then shared by the filter and the jackson deserializer
+ * <br>
+ * The custom rules are taken once per request as well, so a reload of the rules never applies to half of a request
+ *
+ * @author David Hsing
+ */
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@Getter
+@ToString(exclude = {"request", "rules"})
+@SuppressWarnings("unused")
+public class DefenderContext {
+    public static final String CONTEXT_ATTRIBUTE = DefenderContext.class.getName();    // $NON-NLS-1$
+
+    /**
+     * Same as {@code org.springframework.web.servlet.HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE}, without requiring spring mvc
+     */
+    private static final String PATTERN_ATTRIBUTE = "org.springframework.web.servlet.HandlerMapping.bestMatchingPattern";    // $NON-NLS-1$
+
+    private final HttpServletRequest request;
+    private final boolean excluded;
+    private final DefenderPolicy policy;
+    private final RuleMatcher rules;
+
+    /**
+     * Returns whether any protection should be applied or not
+     */
+    public boolean isValidate() {
+        return !excluded && (policy.isEnabled() || getRuleMask() != InjectionScanner.NONE);
+    }
+
+    public boolean isSqlValidate() {
+        return !excluded && policy.isSqlEnabled();
+    }
+
+    public boolean isSqlThrows() {
+        return policy.isSqlThrows();
+    }
+
+    public boolean isXssValidate() {
+        return !excluded && policy.isXssEnabled();
+    }
+
+    public boolean isXssClean() {
+        return policy.isXssClean();
+    }
+
+    public boolean isXssThrows() {
+        return policy.isXssThrows();
+    }
+
+    public boolean isRuleThrows() {
+        return policy.isRuleThrows();
+    }
+
+    public JsoupWhitelistType getWhitelistType() {
+        return policy.getWhitelistType();
+    }
+
+    public Safelist getSafelist() {
+        return policy.getSafelist();
+    }
+
+    /**
+     * Returns whether to inspect the json body or not
+     */
+    public boolean isBodyInspection() {
+        return policy.isBodyInspection() && getScanMask() != InjectionScanner.NONE;
+    }
+
+    /**
+     * Returns the injection flags to detect, for {@link com.yookue.springstarter.injectiondefender.scanner.InjectionScanner}
+     * <p>
+     * The sql and xss flags follow their protections, and the flags that detected by the custom rules only follow the rules
+     */
+    public int getScanMask() {
+        return (isSqlValidate() ? InjectionScanner.SQL_INJECTION : InjectionScanner.NONE) | (isXssValidate() ? InjectionScanner.XSS_INJECTION : InjectionScanner.NONE) | getRuleMask();
+    }
+
+    /**
+     * Returns the injection flags that detected by the custom rules only, such as path traversal and command injection
+     */
+    public int getRuleMask() {
+        return (excluded || rules == null) ? InjectionScanner.NONE : (rules.getFlags() & ~InjectionScanner.BUILTIN_INJECTIONS);
+    }
+
+    /**
+     * Returns the bounded route of the request for the metrics, the matched handler pattern, or the path prefix of the matched route
+     */
+    @Nullable
+    public String getRoute() {
+        if (request != null && request.getAttribute(PATTERN_ATTRIBUTE) instanceof String pattern) {
+            return pattern;
+        }
+        return policy.getRoutePrefix();
+    }
+
+    /**
+     * Returns the text that trimmed as the trim settings
+     */
+    public String trimIfPossible(@Nullable String text) {
+        return policy.isTrimParams() ? (policy.isTrimToNull() ? StringUtils.trimToNull(text) : StringUtils.trim(text)) : text;
+    }
+
+    /**
+     * Returns the snapshot of the request and the given parameter, for the events
+     */
+    @Nonnull
+    public MaliciousAccessSnapshot snapshotOf(@Nullable String paramName, @Nullable Object paramValue) {
+        if (request == null) {
+            return MaliciousAccessSnapshot.of(null, null, null, paramName, paramValue, policy.getEventValueLength());
+        }
+        return MaliciousAccessSnapshot.of(request, paramName, paramValue, policy.getEventValueLength());
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import com.yookue.commonplexus.springutil.util.UriUtilsWraps;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicy;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicyHolder;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager;
+import com.yookue.springstarter.injectiondefender.scanner.RuleMatcher;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Resolver of {@link com.yookue.springstarter.injectiondefender.support.DefenderContext}
+ * <p>
+ * The context of a request is resolved once with the route policy of its servlet path, and then cached as the {@link com.yookue.springstarter.injectiondefender.support.DefenderContext#CONTEXT_ATTRIBUTE} attribute of the request
+ *
+ * @author David Hsing
+ */
+@Getter
+@SuppressWarnings("unused")
+public class DefenderContextResolver {
+    private final DefenderPolicyHolder policyHolder;
+
+    @Setter
+    private DetectionRuleManager ruleManager;
+
+    public DefenderContextResolver(@Nonnull InjectionDefenderProperties properties) {
+        this(new DefenderPolicyHolder(properties));
+    }
+
+    public DefenderContextResolver(@Nonnull DefenderPolicyHolder policyHolder) {
+        this.policyHolder = policyHolder;
+    }
+
+    /**
+     * Returns the context of the given request
+     *
+     * @param request the request to resolve, or {@code null} if out of a request
+     *
+     * @return the context of the given request, validates nothing if the request is {@code null}
+     */
+    @Nonnull
+    public DefenderContext resolve(@Nullable HttpServletRequest request) {
+        DefenderPolicy policy = policyHolder.get();
+        if (request == null) {
+            return new DefenderContext(null, true, policy, null);
+        }
+        if (request.getAttribute(DefenderContext.CONTEXT_ATTRIBUTE) instanceof DefenderContext cached) {
+            return cached;
+        }
+        boolean excluded = policy.getExcludePathMatcher().isExcluded(request);
+        RuleMatcher rules = (excluded || ruleManager == null) ? null : ruleManager.getMatcher();
+        DefenderContext result = new DefenderContext(request, excluded, excluded ? policy : policy.routeOf(UriUtilsWraps.getServletPath(request)), rules);
+        request.setAttribute(DefenderContext.CONTEXT_ATTRIBUTE, result);
+        return result;
+    }
+}
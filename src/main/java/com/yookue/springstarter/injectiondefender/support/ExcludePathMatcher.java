@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.CollectionUtils;
+import com.yookue.commonplexus.springutil.util.UriUtilsWraps;
+
+
+/**
+ * Matcher of the paths that excluded by injection defender
+ * <p>
+ * The ant patterns are compiled once: literal patterns go to a hash set, {@code /prefix/**} patterns go to a prefix list, and only the rest are evaluated by {@link org.springframework.util.AntPathMatcher}
+ * <br>
+ * The result of a request is computed once, and then cached as a request attribute
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class ExcludePathMatcher {
+    public static final String EXCLUDED_ATTRIBUTE = ExcludePathMatcher.class.getName() + ".EXCLUDED";    // $NON-NLS-1$
+    private static final String PREFIX_WILDCARD = "/**";    // $NON-NLS-1$
+    private static final String DOUBLE_SLASH = "//";    // $NON-NLS-1$
+
+    private final Set<String> literalPaths = new HashSet<>();
+    private final List<String> prefixPaths = new ArrayList<>();
+    private final List<String> antPatterns = new ArrayList<>();
+    private final List<String> allPatterns = new ArrayList<>();
+    private final AntPathMatcher antMatcher = new AntPathMatcher();
+    private boolean matchAll;
+
+    public ExcludePathMatcher(@Nullable Collection<String> patterns) {
+        if (CollectionUtils.isEmpty(patterns)) {
+            return;
+        }
+        for (String pattern : patterns) {
+            if (StringUtils.isBlank(pattern)) {
+                continue;
+            }
+            allPatterns.add(pattern);
+            if (StringUtils.endsWith(pattern, PREFIX_WILDCARD) && !antMatcher.isPattern(StringUtils.removeEnd(pattern, PREFIX_WILDCARD))) {
+                String prefix = StringUtils.removeEnd(pattern, PREFIX_WILDCARD);
+                if (prefix.isEmpty()) {
+                    matchAll = true;
+                } else {
+                    prefixPaths.add(prefix);
+                }
+            } else if (antMatcher.isPattern(pattern)) {
+                antPatterns.add(pattern);
+            } else {
+                literalPaths.add(pattern);
+            }
+        }
+    }
+
+    /**
+     * Returns whether this matcher has no patterns
+     */
+    public boolean isEmpty() {
+        return allPatterns.isEmpty();
+    }
+
+    /**
+     * Returns whether the servlet path of the given request is excluded
+     * <p>
+     * The result is cached as the {@link #EXCLUDED_ATTRIBUTE} attribute of the request
+     */
+    public boolean isExcluded(@Nonnull HttpServletRequest request) {
+        if (isEmpty()) {
+            return false;
+        }
+        if (request.getAttribute(EXCLUDED_ATTRIBUTE) instanceof Boolean cached) {
+            return cached;
+        }
+        boolean result = matches(UriUtilsWraps.getServletPath(request));
+        request.setAttribute(EXCLUDED_ATTRIBUTE, result);
+        return result;
+    }
+
+    /**
+     * Returns whether the given path is excluded
+     */
+    public boolean matches(@Nullable String path) {
+        if (path == null) {
+            return false;
+        }
+        if (path.contains(DOUBLE_SLASH)) {
+            // Ant matcher collapses empty path segments, which the literal and prefix lookups do not
+            return allPatterns.stream().anyMatch(pattern -> antMatcher.match(pattern, path));
+        }
+        if ((matchAll && !path.isEmpty() && path.charAt(0) == '/') || literalPaths.contains(path)) {
+            return true;
+        }
+        for (String prefix : prefixPaths) {
+            if (path.startsWith(prefix) && (path.length() == prefix.length() || path.charAt(prefix.length()) == '/')) {
+                return true;
+            }
+        }
+        for (String pattern : antPatterns) {
+            if (antMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -17,7 +17,9 @@
 package com.yookue.springstarter.injectiondefender.support;
 
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import jakarta.annotation.Nonnull;
@@ -28,14 +30,23 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jsoup.Jsoup;
 import org.jsoup.safety.Safelist;
+import org.springframework.util.LinkedCaseInsensitiveMap;
 import org.springframework.web.util.ContentCachingRequestWrapper;
+import com.yookue.commonplexus.javaseutil.enumeration.JsoupWhitelistType;
 import com.yookue.commonplexus.javaseutil.util.MapPlainWraps;
+import com.yookue.springstarter.injectiondefender.metrics.DefenderMetrics;
+import com.yookue.springstarter.injectiondefender.sanitizer.HtmlSanitizer;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 
 /**
  * {@link org.springframework.web.util.ContentCachingRequestWrapper} for injection defender
+ * <p>
+ * Cleaned parameters, headers and cookies are memoized per request, so that repeated access costs no extra parsing
+ * <br>
+ * A single parameter is cleaned alone, so reading it never parses or cleans the whole parameter map
  *
  * @author David Hsing
  */
@@ -45,6 +56,26 @@ import lombok.Setter;
 public class InjectionDefenderRequestWrapper extends ContentCachingRequestWrapper {
     private boolean xssClean = true;
     private Safelist xssWhitelist;
+    private JsoupWhitelistType xssWhitelistType;
+    private HtmlSanitizer htmlSanitizer;
+    private DefenderMetrics metrics = DefenderMetrics.NOOP;
+    private ScanBudget scanBudget;
+
+    @Getter(value = AccessLevel.NONE)
+    @Setter(value = AccessLevel.NONE)
+    private Map<String, String[]> cleanParameters;
+
+    @Getter(value = AccessLevel.NONE)
+    @Setter(value = AccessLevel.NONE)
+    private Map<String, String[]> cleanParameterValues;
+
+    @Getter(value = AccessLevel.NONE)
+    @Setter(value = AccessLevel.NONE)
+    private Map<String, String> cleanHeaders;
+
+    @Getter(value = AccessLevel.NONE)
+    @Setter(value = AccessLevel.NONE)
+    private Cookie[] cleanCookies;
 
     public InjectionDefenderRequestWrapper(@Nonnull HttpServletRequest request) {
         super(request);
@@ -60,59 +91,116 @@ public class InjectionDefenderRequestWrapper extends ContentCachingRequestWrappe
         this.xssWhitelist = xssWhitelist;
     }
 
+    public InjectionDefenderRequestWrapper(@Nonnull HttpServletRequest request, boolean xssClean, @Nullable JsoupWhitelistType xssWhitelistType, @Nullable HtmlSanitizer htmlSanitizer) {
+        super(request);
+        this.xssClean = xssClean;
+        this.xssWhitelistType = xssWhitelistType;
+        this.htmlSanitizer = htmlSanitizer;
+    }
+
+    public void setXssClean(boolean xssClean) {
+        this.xssClean = xssClean;
+        resetCleanCaches();
+    }
+
+    public void setXssWhitelist(@Nullable Safelist xssWhitelist) {
+        this.xssWhitelist = xssWhitelist;
+        resetCleanCaches();
+    }
+
+    public void setXssWhitelistType(@Nullable JsoupWhitelistType xssWhitelistType) {
+        this.xssWhitelistType = xssWhitelistType;
+        resetCleanCaches();
+    }
+
+    public void setHtmlSanitizer(@Nullable HtmlSanitizer htmlSanitizer) {
+        this.htmlSanitizer = htmlSanitizer;
+        resetCleanCaches();
+    }
+
+    public void setMetrics(@Nullable DefenderMetrics metrics) {
+        this.metrics = (metrics == null) ? DefenderMetrics.NOOP : metrics;
+    }
+
     @Override
     @SuppressWarnings({"NullableProblems", "DataFlowIssue"})
     public String getParameter(@Nullable String name) {
         if (StringUtils.isBlank(name)) {
             return null;
         }
-        String result = super.getParameter(name);
-        return (StringUtils.isBlank(result) || !xssClean || xssWhitelist == null) ? result : Jsoup.clean(result, xssWhitelist);
+        if (!isCleanable()) {
+            return super.getParameter(name);
+        }
+        String[] values = getCleanParameterValues(name);
+        return ArrayUtils.isEmpty(values) ? null : values[0];
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cleaned map is built on the first access, and then reused for the rest of the request
+     * <br>
+     * The map is read-only, and holds copies of the memoized values, so changing its arrays never changes the other accessors
+     */
     @Override
     @SuppressWarnings("NullableProblems")
     public Map<String, String[]> getParameterMap() {
+        if (!isCleanable()) {
+            return super.getParameterMap();
+        }
+        if (cleanParameters != null) {
+            return cleanParameters;
+        }
         Map<String, String[]> origin = super.getParameterMap();
-        if (MapPlainWraps.isEmpty(origin) || !xssClean || xssWhitelist == null) {
+        if (MapPlainWraps.isEmpty(origin)) {
             return origin;
         }
+        if (cleanParameterValues == null) {
+            cleanParameterValues = new LinkedHashMap<>(origin.size());
+        }
         Map<String, String[]> result = new LinkedHashMap<>(origin.size());
         for (Map.Entry<String, String[]> entry : origin.entrySet()) {
             String[] values;
-            if (ArrayUtils.isEmpty(entry.getValue()) || !xssClean || xssWhitelist == null) {
-                values = entry.getValue();
+            if (cleanParameterValues.containsKey(entry.getKey())) {
+                values = cleanParameterValues.get(entry.getKey());
             } else {
-                values = Arrays.stream(entry.getValue()).map(element -> StringUtils.isBlank(element) ? element : Jsoup.clean(element, xssWhitelist)).toArray(String[]::new);
+                values = cleanValues(entry.getValue());
+                cleanParameterValues.put(entry.getKey(), values);
             }
-            result.put(entry.getKey(), values);
+            result.put(entry.getKey(), ArrayUtils.clone(values));
         }
-        return result;
+        cleanParameters = Collections.unmodifiableMap(result);
+        return cleanParameters;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cleaned values are memoized, and each call returns a copy of them
+     */
     @Override
     @SuppressWarnings({"NullableProblems", "DataFlowIssue"})
     public String[] getParameterValues(@Nullable String name) {
         if (StringUtils.isBlank(name)) {
             return null;
         }
-        String[] result = super.getParameterValues(name);
-        if (ArrayUtils.isEmpty(result) || !xssClean || xssWhitelist == null) {
-            return result;
+        if (!isCleanable()) {
+            return super.getParameterValues(name);
         }
-        return Arrays.stream(result).map(element -> StringUtils.isBlank(element) ? element : Jsoup.clean(element, xssWhitelist)).toArray(String[]::new);
+        return ArrayUtils.clone(getCleanParameterValues(name));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cleaned cookies are memoized, and each call returns a copy of the array
+     */
     @Override
     public Cookie[] getCookies() {
-        Cookie[] result = super.getCookies();
-        if (ArrayUtils.isNotEmpty(result)) {
-            for (Cookie cookie : result) {
-                String value = (StringUtils.isBlank(cookie.getValue()) || !xssClean || xssWhitelist == null) ? cookie.getValue() : Jsoup.clean(cookie.getValue(), xssWhitelist);
-                cookie.setValue(value);
-            }
+        if (!isCleanable()) {
+            return super.getCookies();
         }
-        return result;
+        return ArrayUtils.clone(getCleanCookies());
     }
 
     @Override
@@ -120,8 +208,17 @@ public class InjectionDefenderRequestWrapper extends ContentCachingRequestWrappe
         if (StringUtils.isBlank(name)) {
             return null;
         }
-        String result = super.getHeader(name);
-        return (StringUtils.isBlank(result) || !xssClean || xssWhitelist == null) ? result : Jsoup.clean(result, xssWhitelist);
+        if (!isCleanable()) {
+            return super.getHeader(name);
+        }
+        if (cleanHeaders == null) {
+            cleanHeaders = new LinkedCaseInsensitiveMap<>();
+        } else if (cleanHeaders.containsKey(name)) {
+            return cleanHeaders.get(name);
+        }
+        String result = cleanValue(super.getHeader(name));
+        cleanHeaders.put(name, result);
+        return result;
     }
 
     public String getRawParameter(@Nullable String name) {
@@ -143,4 +240,82 @@ public class InjectionDefenderRequestWrapper extends ContentCachingRequestWrappe
     public String getRawHeader(@Nullable String name) {
         return StringUtils.isBlank(name) ? null : super.getHeader(name);
     }
+
+    private String[] getCleanParameterValues(@Nonnull String name) {
+        if (cleanParameterValues == null) {
+            cleanParameterValues = new LinkedHashMap<>();
+        } else if (cleanParameterValues.containsKey(name)) {
+            return cleanParameterValues.get(name);
+        }
+        String[] result = cleanValues(super.getParameterValues(name));
+        cleanParameterValues.put(name, result);
+        return result;
+    }
+
+    private Cookie[] getCleanCookies() {
+        if (cleanCookies != null) {
+            return cleanCookies;
+        }
+        Cookie[] origin = super.getCookies();
+        if (ArrayUtils.isEmpty(origin)) {
+            return origin;
+        }
+        Cookie[] result = new Cookie[origin.length];
+        for (int i = 0; i < origin.length; i++) {
+            String value = cleanValue(origin[i].getValue());
+            if (StringUtils.equals(value, origin[i].getValue())) {
+                result[i] = origin[i];
+            } else {
+                result[i] = (Cookie) origin[i].clone();
+                result[i].setValue(value);
+            }
+        }
+        cleanCookies = result;
+        return cleanCookies;
+    }
+
+    private boolean isCleanable() {
+        return xssClean && ((htmlSanitizer != null && xssWhitelistType != null) || xssWhitelist != null);
+    }
+
+    private String cleanValue(@Nullable String value) {
+        if (StringUtils.isBlank(value)) {
+            return value;
+        }
+        long start = metrics.tick();
+        String result;
+        if (scanBudget == null) {
+            result = sanitize(value);
+        } else {
+            try {
+                result = scanBudget.clean(null, value, this::sanitize);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        metrics.recordClean(DefenderMetrics.SOURCE_FILTER, start);
+        return result;
+    }
+
+    private String sanitize(@Nullable String value) {
+        return (htmlSanitizer != null && xssWhitelistType != null) ? htmlSanitizer.sanitize(value, xssWhitelistType) : Jsoup.clean(value, xssWhitelist);
+    }
+
+    private String[] cleanValues(@Nullable String[] values) {
+        if (ArrayUtils.isEmpty(values)) {
+            return values;
+        }
+        String[] result = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = cleanValue(values[i]);
+        }
+        return result;
+    }
+
+    private void resetCleanCaches() {
+        cleanParameters = null;
+        cleanParameterValues = null;
+        cleanHeaders = null;
+        cleanCookies = null;
+    }
 }
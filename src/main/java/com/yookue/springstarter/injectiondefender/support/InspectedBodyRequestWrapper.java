@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.apache.commons.lang3.StringUtils;
+import com.yookue.springstarter.injectiondefender.scanner.ScanSession;
+
+
+/**
+ * {@link jakarta.servlet.http.HttpServletRequestWrapper} that replays a body which has been partly or fully inspected
+ * <p>
+ * The buffered head is replayed first, then the remaining bytes are read from the original stream, and fed to the scanning session as they pass
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.scanner.ScanSession
+ */
+@SuppressWarnings("unused")
+public class InspectedBodyRequestWrapper extends HttpServletRequestWrapper {
+    private final InspectedInputStream inputStream;
+    private BufferedReader reader;
+
+    /**
+     * Constructs a new wrapper
+     *
+     * @param request the request to wrap
+     * @param head the buffered head of the body
+     * @param tail the stream of the remaining body, or {@code null} if the head is the whole body
+     * @param session the session to inspect the remaining body, or {@code null} if not needed
+     */
+    public InspectedBodyRequestWrapper(@Nonnull HttpServletRequest request, @Nonnull InputStream head, @Nullable ServletInputStream tail, @Nullable ScanSession session) {
+        super(request);
+        this.inputStream = new InspectedInputStream(head, tail, session);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        if (reader == null) {
+            String encoding = super.getCharacterEncoding();
+            reader = new BufferedReader(new InputStreamReader(inputStream, StringUtils.isBlank(encoding) ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+        return reader;
+    }
+
+
+    private static class InspectedInputStream extends ServletInputStream {
+        private final InputStream head;
+        private final ServletInputStream tail;
+        private final ScanSession session;
+        private final byte[] single = new byte[1];
+        private boolean headFinished;
+        private boolean tailFinished;
+
+        private InspectedInputStream(@Nonnull InputStream head, @Nullable ServletInputStream tail, @Nullable ScanSession session) {
+            this.head = head;
+            this.tail = tail;
+            this.session = session;
+            this.tailFinished = tail == null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!headFinished) {
+                int result = head.read();
+                if (result != -1) {
+                    return result;
+                }
+                headFinished = true;
+            }
+            return (read(single, 0, 1) == -1) ? -1 : (single[0] & 0xFF);
+        }
+
+        @Override
+        public int read(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!headFinished) {
+                int count = head.read(bytes, offset, length);
+                if (count != -1) {
+                    return count;
+                }
+                headFinished = true;
+            }
+            if (tailFinished) {
+                return -1;
+            }
+            int count = tail.read(bytes, offset, length);
+            if (count == -1) {
+                tailFinished = true;
+                if (session != null) {
+                    session.endOfInput();
+                }
+            } else if (session != null) {
+                session.feed(bytes, offset, count);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return headFinished && tailFinished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return !headFinished || tail == null || tail.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            if (tail != null) {
+                tail.setReadListener(listener);
+            }
+        }
+    }
+}
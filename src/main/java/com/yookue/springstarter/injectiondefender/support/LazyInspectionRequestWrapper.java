@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+
+/**
+ * {@link jakarta.servlet.http.HttpServletRequestWrapper} that inspects each parameter when it is first read
+ * <p>
+ * The outcome of each parameter is memoized, a rejected parameter throws the same exception on every read, and the others are never scanned again
+ * <br>
+ * Parameters with blank names are inspected as well, as clients may send them, such as {@code ?=value}
+ * <br>
+ * Checked exceptions of the inspector are thrown as {@link java.io.UncheckedIOException}, as the parameter methods declare none
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class LazyInspectionRequestWrapper extends HttpServletRequestWrapper {
+    private static final Object PASSED = new Object();
+
+    private final ParameterInspector inspector;
+    private final Map<String, Object> outcomes = new HashMap<>();
+    private boolean fullyInspected;
+
+    public LazyInspectionRequestWrapper(@Nonnull HttpServletRequest request, @Nonnull ParameterInspector inspector) {
+        super(request);
+        this.inspector = inspector;
+    }
+
+    @Override
+    public String getParameter(@Nullable String name) {
+        if (name == null) {
+            return super.getParameter(name);
+        }
+        inspectParameter(name, super.getParameterValues(name));
+        return super.getParameter(name);
+    }
+
+    @Override
+    public String[] getParameterValues(@Nullable String name) {
+        if (name == null) {
+            return super.getParameterValues(name);
+        }
+        String[] result = super.getParameterValues(name);
+        inspectParameter(name, result);
+        return result;
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        Map<String, String[]> result = super.getParameterMap();
+        if (!fullyInspected && result != null) {
+            for (Map.Entry<String, String[]> entry : result.entrySet()) {
+                inspectParameter(entry.getKey(), entry.getValue());
+            }
+            fullyInspected = true;
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether the given parameter has been inspected or not
+     */
+    public boolean isInspected(@Nullable String name) {
+        return name != null && outcomes.containsKey(name);
+    }
+
+    private void inspectParameter(@Nonnull String name, @Nullable String[] values) {
+        Object outcome = outcomes.get(name);
+        if (outcome == null) {
+            try {
+                inspector.inspect(name, values);
+                outcome = PASSED;
+            } catch (IOException ex) {
+                outcome = new UncheckedIOException(ex);
+            } catch (RuntimeException ex) {
+                outcome = ex;
+            }
+            outcomes.put(name, outcome);
+        }
+        if (outcome instanceof RuntimeException ex) {
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+
+/**
+ * Listener of the items that skipped by {@link com.yookue.springstarter.injectiondefender.support.ScanBudget}
+ *
+ * @author David Hsing
+ */
+@FunctionalInterface
+public interface LimitListener {
+    /**
+     * Invoked when an item is skipped as it exceeds a limit
+     *
+     * @param limit the name of the exceeded limit
+     * @param name the parameter name
+     * @param value the leading chars of the parameter value, up to the max value length of the event publisher
+     */
+    void onLimit(@Nonnull String limit, @Nullable String name, @Nullable String value) throws IOException;
+}
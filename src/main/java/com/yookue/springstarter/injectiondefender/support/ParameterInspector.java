@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+
+
+/**
+ * Inspector of a request parameter, for {@link com.yookue.springstarter.injectiondefender.support.LazyInspectionRequestWrapper} and {@link com.yookue.springstarter.injectiondefender.interceptor.HandlerInspectionInterceptor}
+ *
+ * @author David Hsing
+ */
+@FunctionalInterface
+public interface ParameterInspector {
+    /**
+     * The request attribute that holds the inspector, for {@link com.yookue.springstarter.injectiondefender.filter.InspectionMode#HANDLER}
+     * <p>
+     * The inspector of the attribute reads the values from the request before cleaning, whatever values are given, as the handler may see the cleaned ones
+     */
+    String INSPECTOR_ATTRIBUTE = ParameterInspector.class.getName();
+
+    /**
+     * Inspects the values of the given parameter, and throws if the parameter should be rejected
+     *
+     * @param name the parameter name
+     * @param values the parameter values
+     */
+    default void inspect(@Nonnull String name, @Nullable String[] values) throws IOException {
+        inspect(name, values, InjectionScanner.ALL_INJECTIONS);
+    }
+
+    /**
+     * Inspects the values of the given parameter for the given injection flags, and throws if the parameter should be rejected
+     *
+     * @param name the parameter name
+     * @param values the parameter values
+     * @param mask the injection flags to detect, within the flags of the policy
+     */
+    void inspect(@Nonnull String name, @Nullable String[] values, int mask) throws IOException;
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.function.UnaryOperator;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.springframework.web.util.HtmlUtils;
+import com.yookue.springstarter.injectiondefender.exception.ScanLimitException;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicy;
+import com.yookue.springstarter.injectiondefender.policy.LimitPolicy;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import com.yookue.springstarter.injectiondefender.scanner.RuleMatcher;
+import com.yookue.springstarter.injectiondefender.scanner.ScanSession;
+
+
+/**
+ * Scan limits of injection defender for a request
+ * <p>
+ * Bounds the chars scanned per value, the values scanned per request, the total scanning time per request, and the chars cleaned per value, each limit is handled by its own {@link com.yookue.springstarter.injectiondefender.policy.LimitPolicy}
+ * <br>
+ * Once the values or the time are exhausted, the remaining values of the request are not scanned
+ * <br>
+ * A streamed value, such as a multipart field, counts as one value, and its max value length is measured in bytes
+ * <br>
+ * The budget of a servlet request is kept as the {@link #BUDGET_ATTRIBUTE} attribute, so the filter, the request wrapper and the jackson deserializer share the same limits
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class ScanBudget {
+    public static final String BUDGET_ATTRIBUTE = ScanBudget.class.getName();    // $NON-NLS-1$
+    public static final String VALUE_LENGTH = "value-length";    // $NON-NLS-1$
+    public static final String VALUES = "values";    // $NON-NLS-1$
+    public static final String TIME_BUDGET = "time-budget";    // $NON-NLS-1$
+    public static final String CLEAN_LENGTH = "clean-length";    // $NON-NLS-1$
+
+    private final DefenderPolicy policy;
+    private final RuleMatcher rules;
+    private final LimitListener listener;
+    private final boolean unlimited;
+    private int scannedValues;
+    private long spentNanos;
+    private boolean exhausted;
+
+    public ScanBudget(@Nonnull DefenderPolicy policy, @Nullable LimitListener listener) {
+        this(policy, null, listener);
+    }
+
+    public ScanBudget(@Nonnull DefenderPolicy policy, @Nullable RuleMatcher rules, @Nullable LimitListener listener) {
+        this.policy = policy;
+        this.rules = rules;
+        this.listener = listener;
+        this.unlimited = policy.getMaxValueLength() <= 0 && policy.getMaxValues() <= 0 && policy.getTimeBudgetNanos() <= 0L;
+    }
+
+    /**
+     * Returns the injection flags of the given values, within the limits
+     *
+     * @param name the parameter name
+     * @param values the parameter values
+     * @param mask the injection flags to detect
+     *
+     * @return the injection flags of the given values, within the limits
+     */
+    public int scan(@Nullable String name, @Nullable String[] values, int mask) throws IOException {
+        if (unlimited || values == null) {
+            return InjectionScanner.scan(values, mask, rules);
+        }
+        int result = InjectionScanner.NONE;
+        for (String value : values) {
+            result |= scan(name, value, mask & ~result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the injection flags of the given value, within the limits
+     *
+     * @param name the parameter name
+     * @param value the parameter value, or a range of the chars of it
+     * @param mask the injection flags to detect
+     *
+     * @return the injection flags of the given value, within the limits
+     */
+    public int scan(@Nullable String name, @Nullable CharSequence value, int mask) throws IOException {
+        if (unlimited) {
+            return InjectionScanner.scan(value, mask, rules);
+        }
+        if (exhausted || value == null || mask == InjectionScanner.NONE) {
+            return InjectionScanner.NONE;
+        }
+        int maxValues = policy.getMaxValues();
+        if (maxValues > 0 && ++scannedValues > maxValues) {
+            exhausted = true;
+            exceed(VALUES, policy.getValuesPolicy(), name, value);
+            return InjectionScanner.NONE;
+        }
+        long timeBudget = policy.getTimeBudgetNanos();
+        if (timeBudget > 0L && spentNanos >= timeBudget) {
+            exhausted = true;
+            exceed(TIME_BUDGET, policy.getTimeBudgetPolicy(), name, value);
+            return InjectionScanner.NONE;
+        }
+        CharSequence target = value;
+        int maxLength = policy.getMaxValueLength();
+        if (maxLength > 0 && value.length() > maxLength) {
+            if (policy.getValueLengthPolicy() != LimitPolicy.PREFIX) {
+                exceed(VALUE_LENGTH, policy.getValueLengthPolicy(), name, value);
+                return InjectionScanner.NONE;
+            }
+            target = CharBuffer.wrap(value, 0, maxLength);
+        }
+        if (timeBudget <= 0L) {
+            return InjectionScanner.scan(target, mask, rules);
+        }
+        long start = System.nanoTime();
+        int result = InjectionScanner.scan(target, mask, rules);
+        spentNanos += System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Returns the session that scans a streamed value within the limits, or {@code null} if the value should not be scanned
+     * <p>
+     * The bytes fed beyond the max value length, or after the time budget is spent, are not scanned
+     *
+     * @param name the parameter name
+     * @param session the session to scan the value
+     *
+     * @return the session that scans a streamed value within the limits, or {@code null} if the value should not be scanned
+     */
+    @Nullable
+    public ScanSession stream(@Nullable String name, @Nonnull ScanSession session) throws IOException {
+        if (unlimited) {
+            return session;
+        }
+        if (exhausted) {
+            return null;
+        }
+        int maxValues = policy.getMaxValues();
+        if (maxValues > 0 && ++scannedValues > maxValues) {
+            exhausted = true;
+            exceed(VALUES, policy.getValuesPolicy(), name, null);
+            return null;
+        }
+        if (policy.getTimeBudgetNanos() > 0L && spentNanos >= policy.getTimeBudgetNanos()) {
+            exhausted = true;
+            exceed(TIME_BUDGET, policy.getTimeBudgetPolicy(), name, null);
+            return null;
+        }
+        return new BudgetSession(name, session);
+    }
+
+    /**
+     * Returns the value that cleaned by the given cleaner, within the clean length
+     * <p>
+     * The leading chars are cleaned alone for {@code PREFIX}, and the rest of the value is dropped, and the whole value is html escaped for {@code SKIP}, which takes linear time, both publish a limit event
+     *
+     * @param name the parameter name
+     * @param value the value to clean
+     * @param cleaner the cleaner of the value
+     *
+     * @return the value that cleaned by the given cleaner, within the clean length
+     */
+    public String clean(@Nullable String name, @Nullable String value, @Nonnull UnaryOperator<String> cleaner) throws IOException {
+        int maxLength = policy.getMaxCleanLength();
+        if (value == null || maxLength <= 0 || value.length() <= maxLength) {
+            return cleaner.apply(value);
+        }
+        LimitPolicy limitPolicy = policy.getCleanLengthPolicy();
+        if (limitPolicy == LimitPolicy.PREFIX) {
+            notify(CLEAN_LENGTH, name, value);
+            return cleaner.apply(value.substring(0, maxLength));
+        }
+        exceed(CLEAN_LENGTH, limitPolicy, name, value);
+        return HtmlUtils.htmlEscape(value);
+    }
+
+    /**
+     * Returns whether no limit is configured, so the values can be scanned in any order, on any thread
+     */
+    public boolean isUnlimited() {
+        return unlimited;
+    }
+
+    /**
+     * Returns whether the remaining values are not scanned any more
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    private void exceed(@Nonnull String limit, @Nullable LimitPolicy limitPolicy, @Nullable String name, @Nullable CharSequence value) throws IOException {
+        if (limitPolicy == LimitPolicy.REJECT) {
+            throw new ScanLimitException("Request exceeds the scan limit of " + limit, name, limit);    // $NON-NLS-1$
+        }
+        if (limitPolicy == LimitPolicy.SKIP) {
+            notify(limit, name, value);
+        }
+    }
+
+    /**
+     * Notifies the listener with the leading chars of the value only, up to the event value length, so a huge value is never copied
+     */
+    private void notify(@Nonnull String limit, @Nullable String name, @Nullable CharSequence value) throws IOException {
+        if (listener != null) {
+            listener.onLimit(limit, name, (value == null) ? null : value.subSequence(0, Math.min(value.length(), Math.max(policy.getEventValueLength(), 0))).toString());
+        }
+    }
+
+
+    private class BudgetSession implements ScanSession {
+        private final String name;
+        private final ScanSession delegate;
+        private long fedBytes;
+        private boolean stopped;
+
+        BudgetSession(@Nullable String name, @Nonnull ScanSession delegate) {
+            this.name = name;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void feed(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            int allowed = allow(length);
+            if (allowed > 0) {
+                long start = System.nanoTime();
+                delegate.feed(bytes, offset, allowed);
+                charge(start);
+            }
+        }
+
+        @Override
+        public void feed(@Nonnull ByteBuffer buffer) throws IOException {
+            int allowed = allow(buffer.remaining());
+            if (allowed > 0) {
+                long start = System.nanoTime();
+                delegate.feed((allowed < buffer.remaining()) ? buffer.duplicate().limit(buffer.position() + allowed) : buffer);
+                charge(start);
+            }
+        }
+
+        @Override
+        public void endOfInput() throws IOException {
+            delegate.endOfInput();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return stopped || delegate.isFinished();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        private int allow(int length) throws IOException {
+            if (stopped) {
+                return 0;
+            }
+            int maxLength = policy.getMaxValueLength();
+            if (maxLength <= 0 || fedBytes + length <= maxLength) {
+                fedBytes += length;
+                return length;
+            }
+            stopped = true;
+            LimitPolicy limitPolicy = policy.getValueLengthPolicy();
+            if (limitPolicy != LimitPolicy.PREFIX) {
+                exceed(VALUE_LENGTH, limitPolicy, name, null);
+                return 0;
+            }
+            int result = (int) (maxLength - fedBytes);
+            fedBytes = maxLength;
+            return result;
+        }
+
+        private void charge(long start) throws IOException {
+            long timeBudget = policy.getTimeBudgetNanos();
+            if (timeBudget <= 0L) {
+                return;
+            }
+            spentNanos += System.nanoTime() - start;
+            if (spentNanos >= timeBudget && !stopped) {
+                stopped = true;
+                exhausted = true;
+                exceed(TIME_BUDGET, policy.getTimeBudgetPolicy(), name, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.tracker;
+
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.lang3.StringUtils;
+import lombok.Getter;
+
+
+/**
+ * In-memory tracker of the clients that send malicious requests repeatedly
+ * <p>
+ * Offenses are counted in a sliding window, approximated by weighting the count of the previous window with its remaining overlap, and a client is blocked for the block duration once the count reaches the threshold
+ * <br>
+ * Clients are sharded by the hash of their keys, each shard is an access ordered map behind its own lock, bounded by the max clients and purged of the idle clients on writes
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class OffenderTracker {
+    private static final int SHARD_COUNT = 16;
+
+    @Getter
+    private final int threshold;
+
+    private final long windowNanos;
+    private final long blockNanos;
+
+    @Getter
+    private final int maxClients;
+
+    @Getter
+    private final String clientHeader;
+
+    @Getter
+    private final int blockStatus;
+
+    private final LongSupplier clock;
+    private final Shard[] shards;
+
+    /**
+     * The latest expiry of all the blocks, no client is blocked after it, so the lookups are skipped
+     */
+    private volatile long blockedUntil;
+
+    public OffenderTracker(int threshold, @Nonnull Duration window, @Nonnull Duration blockDuration, int maxClients) {
+        this(threshold, window, blockDuration, maxClients, null, 429);
+    }
+
+    public OffenderTracker(int threshold, @Nonnull Duration window, @Nonnull Duration blockDuration, int maxClients, @Nullable String clientHeader, int blockStatus) {
+        this(threshold, window, blockDuration, maxClients, clientHeader, blockStatus, System::nanoTime);
+    }
+
+    OffenderTracker(int threshold, @Nonnull Duration window, @Nonnull Duration blockDuration, int maxClients, @Nullable String clientHeader, int blockStatus, @Nonnull LongSupplier clock) {
+        this.threshold = Math.max(threshold, 1);
+        this.windowNanos = Math.max(window.toNanos(), 1L);
+        this.blockNanos = Math.max(blockDuration.toNanos(), 0L);
+        this.maxClients = Math.max(maxClients, SHARD_COUNT);
+        this.clientHeader = StringUtils.trimToNull(clientHeader);
+        this.blockStatus = blockStatus;
+        this.clock = clock;
+        this.blockedUntil = clock.getAsLong();
+        this.shards = new Shard[SHARD_COUNT];
+        int shardCapacity = (this.maxClients + SHARD_COUNT - 1) / SHARD_COUNT;
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new Shard(shardCapacity);
+        }
+    }
+
+    /**
+     * Returns the key of the client that sent the given request
+     * <p>
+     * The value of the client header if configured and present, otherwise the remote address
+     */
+    @Nullable
+    public String resolveClient(@Nonnull HttpServletRequest request) {
+        if (clientHeader != null) {
+            String value = request.getHeader(clientHeader);
+            if (StringUtils.isNotBlank(value)) {
+                return value;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    /**
+     * Returns the duration that a client is blocked for
+     */
+    @Nonnull
+    public Duration getBlockDuration() {
+        return Duration.ofNanos(blockNanos);
+    }
+
+    /**
+     * Returns whether the given client is blocked or not
+     */
+    public boolean isBlocked(@Nullable String client) {
+        if (client == null) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        if (now - blockedUntil >= 0L) {
+            return false;
+        }
+        Shard shard = shardOf(client);
+        synchronized (shard) {
+            Offender offender = shard.offenders.get(client);
+            return offender != null && offender.blocked && now - offender.blockedUntil < 0L;
+        }
+    }
+
+    /**
+     * Records an offense of the given client
+     *
+     * @param client the key of the client
+     *
+     * @return whether the client is blocked after this offense or not
+     */
+    public boolean recordOffense(@Nullable String client) {
+        if (client == null) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        Shard shard = shardOf(client);
+        synchronized (shard) {
+            shard.purge(now);
+            Offender offender = shard.offenders.computeIfAbsent(client, key -> new Offender(now));
+            offender.lastSeen = now;
+            if (offender.blocked && now - offender.blockedUntil < 0L) {
+                return true;
+            }
+            offender.blocked = false;
+            long elapsed = now - offender.windowStart;
+            if (elapsed >= windowNanos) {
+                offender.previous = (elapsed >= (windowNanos << 1)) ? 0 : offender.current;
+                offender.current = 0;
+                offender.windowStart = (elapsed >= (windowNanos << 1)) ? now : offender.windowStart + windowNanos;
+                elapsed = now - offender.windowStart;
+            }
+            offender.current++;
+            double estimate = offender.previous * (1.0D - (double) elapsed / windowNanos) + offender.current;
+            if (estimate < threshold) {
+                return false;
+            }
+            offender.blocked = true;
+            offender.blockedUntil = now + blockNanos;
+        }
+        block(now + blockNanos);
+        return true;
+    }
+
+    /**
+     * Removes the given client from the tracker
+     */
+    public void forgive(@Nullable String client) {
+        if (client == null) {
+            return;
+        }
+        Shard shard = shardOf(client);
+        synchronized (shard) {
+            shard.offenders.remove(client);
+        }
+    }
+
+    /**
+     * Returns the count of the tracked clients
+     */
+    public int size() {
+        int result = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                result += shard.offenders.size();
+            }
+        }
+        return result;
+    }
+
+    private synchronized void block(long until) {
+        if (until - blockedUntil > 0L) {
+            blockedUntil = until;
+        }
+    }
+
+    @Nonnull
+    private Shard shardOf(@Nonnull String client) {
+        int hash = client.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & (SHARD_COUNT - 1)];
+    }
+
+
+    private final class Shard {
+        private final Map<String, Offender> offenders;
+
+        Shard(int capacity) {
+            this.offenders = new LinkedHashMap<>(16, 0.75F, true) {
+                @Override
+                protected boolean removeEldestEntry(@Nonnull Map.Entry<String, Offender> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        /**
+         * Removes the clients that idle for two windows and are not blocked, from the least recently used
+         */
+        void purge(long now) {
+            Iterator<Offender> iterator = offenders.values().iterator();
+            while (iterator.hasNext()) {
+                Offender offender = iterator.next();
+                if (now - offender.lastSeen < (windowNanos << 1) || (offender.blocked && now - offender.blockedUntil < 0L)) {
+                    return;
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+
+    private static final class Offender {
+        private long windowStart;
+        private long lastSeen;
+        private int previous;
+        private int current;
+        private boolean blocked;
+        private long blockedUntil;
+
+        Offender(long now) {
+            this.windowStart = now;
+            this.lastSeen = now;
+        }
+    }
+}
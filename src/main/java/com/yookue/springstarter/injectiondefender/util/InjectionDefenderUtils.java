@@ -18,26 +18,24 @@ package com.yookue.springstarter.injectiondefender.util;
 
 
 import java.util.Collection;
-import java.util.regex.Pattern;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.util.CollectionUtils;
 import com.yookue.commonplexus.javaseutil.util.ArrayUtilsWraps;
-import com.yookue.commonplexus.javaseutil.util.RegexUtilsWraps;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import com.yookue.springstarter.injectiondefender.scanner.ParallelScanner;
 
 
 /**
  * Utilities for injection defender
  *
  * @author David Hsing
+ * @see com.yookue.springstarter.injectiondefender.scanner.InjectionScanner
  */
 @SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
 public abstract class InjectionDefenderUtils {
-    private static final Pattern SQL_QUOTE = Pattern.compile("^\\s*\\S*(['\"])+\\)*\\s*(and\\b|or\\b|union\\b|select\\b|insert\\b|update\\b|delete\\b|create\\b|drop\\b|truncate\\b|grant\\b|alter\\b|execute\\b|exec\\b|declare\\b|order\\b|show\\b|#|--|}\\)|/\\*)+", Pattern.CASE_INSENSITIVE);    // $NON-NLS-1$
-    private static final Pattern XSS_BRACKET = Pattern.compile("<(iframe|script)\\b", Pattern.CASE_INSENSITIVE);    // $NON-NLS-1$
-
     public static boolean maybeSqlInjection(@Nullable CharSequence sequence) {
-        return StringUtils.isNotBlank(sequence) && RegexUtilsWraps.find(sequence, SQL_QUOTE);
+        return StringUtils.isNotBlank(sequence) && InjectionScanner.hasSqlInjection(InjectionScanner.scan(sequence, InjectionScanner.SQL_INJECTION));
     }
 
     public static boolean maybeSqlInjection(@Nullable CharSequence... sequences) {
@@ -48,8 +46,18 @@ public abstract class InjectionDefenderUtils {
         return !CollectionUtils.isEmpty(sequences) && sequences.stream().anyMatch(InjectionDefenderUtils::maybeSqlInjection);
     }
 
+    /**
+     * Returns whether any of the given sequences may be a sql injection, scanned by the given scanner when there are many of them
+     */
+    public static boolean maybeSqlInjection(@Nullable Collection<? extends CharSequence> sequences, @Nullable ParallelScanner scanner) {
+        if (scanner == null) {
+            return maybeSqlInjection(sequences);
+        }
+        return InjectionScanner.hasSqlInjection(scanner.scan(sequences, InjectionScanner.SQL_INJECTION));
+    }
+
     public static boolean maybeXssInjection(@Nullable CharSequence sequence) {
-        return StringUtils.isNotBlank(sequence) && RegexUtilsWraps.find(sequence, XSS_BRACKET);
+        return StringUtils.isNotBlank(sequence) && InjectionScanner.hasXssInjection(InjectionScanner.scan(sequence, InjectionScanner.XSS_INJECTION));
     }
 
     public static boolean maybeXssInjection(@Nullable CharSequence... sequences) {
@@ -59,4 +67,14 @@ public abstract class InjectionDefenderUtils {
     public static boolean maybeXssInjection(@Nullable Collection<? extends CharSequence> sequences) {
         return !CollectionUtils.isEmpty(sequences) && sequences.stream().anyMatch(InjectionDefenderUtils::maybeXssInjection);
     }
+
+    /**
+     * Returns whether any of the given sequences may be a xss injection, scanned by the given scanner when there are many of them
+     */
+    public static boolean maybeXssInjection(@Nullable Collection<? extends CharSequence> sequences, @Nullable ParallelScanner scanner) {
+        if (scanner == null) {
+            return maybeXssInjection(sequences);
+        }
+        return InjectionScanner.hasXssInjection(scanner.scan(sequences, InjectionScanner.XSS_INJECTION));
+    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.config;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.boot.web.servlet.context.AnnotationConfigServletWebApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import com.yookue.springstarter.injectiondefender.event.MaliciousRuleEvent;
+import com.yookue.springstarter.injectiondefender.exception.MaliciousRuleException;
+import com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRule;
+import com.yookue.springstarter.injectiondefender.rule.RuleCategory;
+import com.yookue.springstarter.injectiondefender.rule.RuleProvider;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.config.InjectionDefenderAutoConfiguration}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class InjectionDefenderAutoConfigurationTest {
+    @Test
+    void blockOffender() throws Exception {
+        try (AnnotationConfigServletWebApplicationContext context = new AnnotationConfigServletWebApplicationContext()) {
+            context.setServletContext(new MockServletContext());
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(    // $NON-NLS-1$
+                InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".sql-protection.throws-exception", "false",    // $NON-NLS-1$ // $NON-NLS-2$
+                InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".offender-tracking.enabled", "true",    // $NON-NLS-1$ // $NON-NLS-2$
+                InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".offender-tracking.threshold", "2")));    // $NON-NLS-1$ // $NON-NLS-2$
+            context.register(InjectionDefenderAutoConfiguration.class);
+            context.refresh();
+            InjectionDefenderFilter filter = (InjectionDefenderFilter) context.getBean(FilterRegistrationBean.class).getFilter();
+            // Two malicious parameters in one request are one offense, so the threshold of two is not reached yet
+            Assertions.assertTrue(doFilter(filter, true).getStatus() < HttpStatus.BAD_REQUEST.value());
+            Assertions.assertTrue(doFilter(filter, false).getStatus() < HttpStatus.BAD_REQUEST.value());
+            doFilter(filter, true);
+            MockHttpServletResponse response = doFilter(filter, false);
+            log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), response.getStatus());
+            Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+            Assertions.assertNotNull(response.getHeader("Retry-After"));    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void rejectRuleWithoutSql() throws Exception {
+        try (AnnotationConfigServletWebApplicationContext context = new AnnotationConfigServletWebApplicationContext()) {
+            context.setServletContext(new MockServletContext());
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(    // $NON-NLS-1$
+                InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".sql-protection.enabled", "false",    // $NON-NLS-1$ // $NON-NLS-2$
+                InjectionDefenderAutoConfiguration.PROPERTIES_PREFIX + ".custom-rules.enabled", "true")));    // $NON-NLS-1$ // $NON-NLS-2$
+            List<RuleCategory> categories = new ArrayList<>();
+            context.registerBean(RuleProvider.class, () -> () -> List.of(DetectionRule.regex("shell", RuleCategory.COMMAND, "[;|&]\\s*(?:cat|curl)\\b")));    // $NON-NLS-1$ // $NON-NLS-2$
+            context.addApplicationListener((ApplicationListener<MaliciousRuleEvent>) event -> categories.add(event.getCategory()));
+            context.register(InjectionDefenderAutoConfiguration.class);
+            context.refresh();
+            InjectionDefenderFilter filter = (InjectionDefenderFilter) context.getBean(FilterRegistrationBean.class).getFilter();
+            // The sql injections are not detected, but the command injections still are
+            Assertions.assertTrue(doFilter(filter, true).getStatus() < HttpStatus.BAD_REQUEST.value());
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/search");    // $NON-NLS-1$ // $NON-NLS-2$
+            request.addParameter("file", "a.txt; cat /etc/passwd");    // $NON-NLS-1$ // $NON-NLS-2$
+            MaliciousRuleException ex = Assertions.assertThrows(MaliciousRuleException.class, () -> filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain()));
+            log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), ex.getCategory());
+            Assertions.assertEquals(RuleCategory.COMMAND, ex.getCategory());
+            Assertions.assertEquals(List.of(RuleCategory.COMMAND), categories);
+        }
+    }
+
+    @Nonnull
+    private MockHttpServletResponse doFilter(@Nonnull InjectionDefenderFilter filter, boolean malicious) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/search");    // $NON-NLS-1$ // $NON-NLS-2$
+        request.addParameter("q", malicious ? "1' or '1'='1" : "hello");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        request.addParameter("sort", malicious ? "name' or 1=1" : "name");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
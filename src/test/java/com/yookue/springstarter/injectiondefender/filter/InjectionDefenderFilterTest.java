@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.filter;
+
+
+import java.nio.charset.StandardCharsets;
+import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartHttpServletRequest;
+import org.springframework.mock.web.MockPart;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import com.yookue.springstarter.injectiondefender.exception.MaliciousSqlException;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.filter.InjectionDefenderFilter}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class InjectionDefenderFilterTest {
+    @Test
+    void inspectBinaryFormField() {
+        InjectionDefenderProperties properties = new InjectionDefenderProperties();
+        properties.getMultipartInspection().setEnabled(true);
+        InjectionDefenderFilter filter = new InjectionDefenderFilter(properties);
+        MockMultipartHttpServletRequest request = newRequest("' or 1=1 --", MediaType.APPLICATION_OCTET_STREAM_VALUE);    // $NON-NLS-1$
+        MaliciousSqlException ex = Assertions.assertThrows(MaliciousSqlException.class, () -> filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain()));
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), ex.getParamName());
+        Assertions.assertEquals("sort", ex.getParamName());    // $NON-NLS-1$
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Assertions.assertDoesNotThrow(() -> filter.doFilter(newRequest("name", MediaType.APPLICATION_OCTET_STREAM_VALUE), response, new MockFilterChain()));    // $NON-NLS-1$
+    }
+
+    @Test
+    void inspectHandlerModeWithoutInterceptor() {
+        InjectionDefenderProperties properties = new InjectionDefenderProperties();
+        properties.getDefenderFilter().setInspectionMode(InspectionMode.HANDLER);
+        InjectionDefenderFilter filter = new InjectionDefenderFilter(properties);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/search");    // $NON-NLS-1$ // $NON-NLS-2$
+        request.addParameter("q", "1' or '1'='1");    // $NON-NLS-1$ // $NON-NLS-2$
+        MaliciousSqlException ex = Assertions.assertThrows(MaliciousSqlException.class, () -> filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain()));
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), ex.getParamName());
+        Assertions.assertEquals("q", ex.getParamName());    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    private MockMultipartHttpServletRequest newRequest(@Nonnull String value, @Nonnull String contentType) {
+        MockMultipartHttpServletRequest request = new MockMultipartHttpServletRequest();
+        request.setRequestURI("/upload");    // $NON-NLS-1$
+        request.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE);
+        MockPart part = new MockPart("sort", value.getBytes(StandardCharsets.UTF_8));    // $NON-NLS-1$
+        part.getHeaders().set(HttpHeaders.CONTENT_TYPE, contentType);
+        request.addPart(part);
+        request.addParameter("sort", value);    // $NON-NLS-1$
+        return request;
+    }
+}
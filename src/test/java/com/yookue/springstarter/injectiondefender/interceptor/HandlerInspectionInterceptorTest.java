@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.interceptor;
+
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.method.HandlerMethod;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import com.yookue.springstarter.injectiondefender.annotation.AllowHtml;
+import com.yookue.springstarter.injectiondefender.annotation.SkipInjectionCheck;
+import com.yookue.springstarter.injectiondefender.annotation.SqlCheckOnly;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.interceptor.HandlerInspectionInterceptor}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class HandlerInspectionInterceptorTest {
+    private final HandlerInspectionInterceptor interceptor = new HandlerInspectionInterceptor();
+
+    @Test
+    void compileRequestParams() {
+        HandlerInspectionPlan plan = planOf(new PlainController(), "search");    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), plan);
+        Assertions.assertEquals(Map.of("q", InjectionScanner.ALL_INJECTIONS, "content", InjectionScanner.NON_XSS_INJECTIONS), plan.getMasks());    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(plan.isIterating());
+        Assertions.assertEquals(InjectionScanner.NONE, plan.maskOf("token"));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.NONE, plan.maskOf("id"));    // $NON-NLS-1$
+        Assertions.assertEquals(Map.of("q", InjectionScanner.ALL_INJECTIONS), planOf(new PlainController(), "post").getMasks());    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void compileModelAttributeRoots() {
+        HandlerInspectionPlan plan = planOf(new PlainController(), "save");    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), plan);
+        Assertions.assertTrue(plan.isRooted());
+        Assertions.assertTrue(plan.isIterating());
+        Assertions.assertEquals(InjectionScanner.ALL_INJECTIONS, plan.maskOf("address.city"));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.ALL_INJECTIONS, plan.maskOf("tags[0]"));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.NON_XSS_INJECTIONS, plan.maskOf("bio"));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.NONE, plan.maskOf("password"));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.NONE, plan.maskOf("unbound"));    // $NON-NLS-1$
+        HandlerInspectionPlan record = planOf(new PlainController(), "update");    // $NON-NLS-1$
+        Assertions.assertEquals(Map.of("title", InjectionScanner.ALL_INJECTIONS, "body", InjectionScanner.NON_XSS_INJECTIONS), record.getMasks());    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void compileBinderPrefixes() {
+        HandlerInspectionPlan plan = planOf(new PlainController(), "save");    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), plan.maskOf("!address.city"));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.ALL_INJECTIONS, plan.maskOf("!address.city"));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.ALL_INJECTIONS, plan.maskOf("_tags"));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.NON_XSS_INJECTIONS, plan.maskOf("!bio"));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.NONE, plan.maskOf("!password"));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.NONE, plan.maskOf("!"));    // $NON-NLS-1$
+        HandlerInspectionPlan record = planOf(new PlainController(), "update");    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.ALL_INJECTIONS, record.maskOf("!title"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void compileAnnotationPrecedence() {
+        HandlerInspectionPlan typed = planOf(new SqlOnlyController(), "list");    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), typed);
+        Assertions.assertEquals(Map.of("a", InjectionScanner.NON_XSS_INJECTIONS), typed.getMasks());    // $NON-NLS-1$
+        HandlerInspectionPlan skipped = planOf(new SqlOnlyController(), "skip");    // $NON-NLS-1$
+        Assertions.assertEquals(Map.of("b", InjectionScanner.NON_XSS_INJECTIONS), skipped.getMasks());    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.NONE, skipped.maskOf("a"));    // $NON-NLS-1$
+        Assertions.assertTrue(planOf(new SqlOnlyController(), "none").isEmpty());    // $NON-NLS-1$
+    }
+
+    @Test
+    void compileFallbacks() {
+        for (String name : new String[]{"params", "raw"}) {    // $NON-NLS-1$ // $NON-NLS-2$
+            HandlerInspectionPlan plan = planOf(new PlainController(), name);
+            log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), plan);
+            Assertions.assertTrue(plan.isIterating());
+            Assertions.assertEquals(InjectionScanner.ALL_INJECTIONS, plan.maskOf("any"));    // $NON-NLS-1$
+        }
+        Assertions.assertEquals(InjectionScanner.NON_XSS_INJECTIONS, planOf(new SqlOnlyController(), "params").maskOf("any"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertSame(planOf(new PlainController(), "raw"), planOf(new PlainController(), "raw"));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Nonnull
+    private HandlerInspectionPlan planOf(@Nonnull Object controller, @Nonnull String name) {
+        Method method = Arrays.stream(controller.getClass().getDeclaredMethods()).filter(candidate -> candidate.getName().equals(name)).findFirst().orElseThrow();
+        return interceptor.planOf(new HandlerMethod(controller, method));
+    }
+
+
+    @SuppressWarnings("unused")
+    private static class PlainController {
+        public void search(@RequestParam(name = "q") String query, @RequestParam(name = "content") @AllowHtml String content, @RequestParam(name = "token") @SkipInjectionCheck String token, @PathVariable(name = "id") String id) {
+        }
+
+        public void post(@RequestBody SearchForm form, @RequestParam(name = "q") String query) {
+        }
+
+        public void save(SearchForm form) {
+        }
+
+        public void update(ArticleForm form) {
+        }
+
+        public void params(@RequestParam Map<String, String> parameters) {
+        }
+
+        public void raw(HttpServletRequest request) {
+        }
+    }
+
+
+    @SqlCheckOnly
+    @SuppressWarnings("unused")
+    private static class SqlOnlyController {
+        public void list(@RequestParam(name = "a") String a) {
+        }
+
+        @SkipInjectionCheck
+        public void skip(@RequestParam(name = "a") String a, @RequestParam(name = "b") @AllowHtml String b) {
+        }
+
+        public void none(@RequestParam(name = "a") @SkipInjectionCheck String a) {
+        }
+
+        public void params(@RequestParam Map<String, String> parameters) {
+        }
+    }
+
+
+    @Getter
+    @Setter
+    @SuppressWarnings("unused")
+    public static class SearchForm {
+        private Address address;
+        private String[] tags;
+
+        @AllowHtml
+        private String bio;
+
+        @SkipInjectionCheck
+        private String password;
+    }
+
+
+    @Getter
+    @Setter
+    @SuppressWarnings("unused")
+    public static class Address {
+        private String city;
+    }
+
+
+    @SuppressWarnings("unused")
+    public record ArticleForm(String title, @AllowHtml String body) {
+    }
+}
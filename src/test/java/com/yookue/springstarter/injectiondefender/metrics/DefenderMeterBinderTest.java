@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.metrics;
+
+
+import java.io.IOException;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRule;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRuleManager;
+import com.yookue.springstarter.injectiondefender.rule.RuleCategory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.metrics.DefenderMeterBinder}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class DefenderMeterBinderTest {
+    @Test
+    void bindRuleReloads() throws IOException {
+        DetectionRuleManager manager = new DetectionRuleManager(List.of(() -> List.of(DetectionRule.keyword("dot", RuleCategory.PATH_TRAVERSAL, "../"))), null);    // $NON-NLS-1$ // $NON-NLS-2$
+        manager.afterPropertiesSet();
+        try {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            new DefenderMeterBinder(null, null, manager).bindTo(registry);
+            log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), registry.getMetersAsString());
+            Assertions.assertEquals(1.0D, registry.get(DefenderMeterBinder.RULE_GAUGE).gauge().value());
+            Assertions.assertEquals(1.0D, registry.get(DefenderMeterBinder.RULE_RELOAD_COUNTER).tag("result", "reloaded").functionCounter().count());    // $NON-NLS-1$ // $NON-NLS-2$
+            Assertions.assertEquals(0.0D, registry.get(DefenderMeterBinder.RULE_RELOAD_COUNTER).tag("result", "failed").functionCounter().count());    // $NON-NLS-1$ // $NON-NLS-2$
+        } finally {
+            manager.destroy();
+        }
+    }
+}
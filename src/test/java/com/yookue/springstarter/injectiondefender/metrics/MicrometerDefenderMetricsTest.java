@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.metrics;
+
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.metrics.MicrometerDefenderMetrics}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class MicrometerDefenderMetricsTest {
+    @Test
+    void recordHitByRoute() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerDefenderMetrics metrics = new MicrometerDefenderMetrics(registry);
+        metrics.recordHit(DefenderMetrics.TYPE_SQL, "/api/users/{id}");    // $NON-NLS-1$
+        metrics.recordHit(DefenderMetrics.TYPE_SQL, "/api/users/{id}");    // $NON-NLS-1$
+        metrics.recordHit(DefenderMetrics.TYPE_SQL, null);
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), registry.getMetersAsString());
+        Assertions.assertEquals(2.0D, registry.get(MicrometerDefenderMetrics.HIT_COUNTER).tag(MicrometerDefenderMetrics.ROUTE_TAG, "/api/users/{id}").counter().count());    // $NON-NLS-1$
+        Assertions.assertEquals(1.0D, registry.get(MicrometerDefenderMetrics.HIT_COUNTER).tag(MicrometerDefenderMetrics.ROUTE_TAG, "other").counter().count());    // $NON-NLS-1$
+        Assertions.assertTrue(registry.find(MicrometerDefenderMetrics.HIT_COUNTER).tagKeys(MicrometerDefenderMetrics.PATH_TAG).meters().isEmpty());
+    }
+
+    @Test
+    void startWithoutObservation() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerDefenderMetrics metrics = new MicrometerDefenderMetrics(registry);
+        metrics.start("filter", "/api/users/1").close();    // $NON-NLS-1$ // $NON-NLS-2$
+        metrics.start("filter", "/api/users/2").close();    // $NON-NLS-1$ // $NON-NLS-2$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), registry.getMetersAsString());
+        Assertions.assertEquals(2L, registry.get(MicrometerDefenderMetrics.OBSERVATION_NAME).tag(MicrometerDefenderMetrics.SOURCE_TAG, "filter").timer().count());    // $NON-NLS-1$
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.policy;
+
+
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.enumeration.JsoupWhitelistType;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.policy.DefenderPolicy}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class DefenderPolicyTest {
+    @Test
+    void routeOfLongestPrefix() {
+        InjectionDefenderProperties.Route api = new InjectionDefenderProperties.Route();
+        api.setPathPrefix("/api/**");    // $NON-NLS-1$
+        api.setXssClean(false);
+        InjectionDefenderProperties.Route admin = new InjectionDefenderProperties.Route();
+        admin.setPathPrefix("/api/admin");    // $NON-NLS-1$
+        admin.setXssEnabled(false);
+        admin.setWhitelistType(JsoupWhitelistType.BASIC);
+        InjectionDefenderProperties properties = new InjectionDefenderProperties();
+        properties.setRoutes(List.of(api, admin));
+        DefenderPolicy policy = DefenderPolicy.of(properties);
+        DefenderPolicy route = policy.routeOf("/api//admin/users");    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), route);
+        Assertions.assertFalse(route.isXssEnabled());
+        Assertions.assertTrue(route.isSqlEnabled());
+        Assertions.assertEquals(JsoupWhitelistType.BASIC, route.getWhitelistType());
+        Assertions.assertEquals("/api/admin", route.getRoutePrefix());    // $NON-NLS-1$
+        Assertions.assertNull(policy.getRoutePrefix());
+        Assertions.assertFalse(policy.routeOf("/api/orders").isXssClean());    // $NON-NLS-1$
+        Assertions.assertTrue(policy.routeOf("/api/orders").isXssEnabled());    // $NON-NLS-1$
+        Assertions.assertSame(policy, policy.routeOf("/apis/admin"));    // $NON-NLS-1$
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.publisher;
+
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import com.yookue.springstarter.injectiondefender.event.MaliciousAccessSnapshot;
+import com.yookue.springstarter.injectiondefender.event.MaliciousRuleEvent;
+import com.yookue.springstarter.injectiondefender.event.MaliciousSqlEvent;
+import com.yookue.springstarter.injectiondefender.event.MaliciousXssEvent;
+import com.yookue.springstarter.injectiondefender.rule.RuleCategory;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.publisher.AsyncEventPublisher}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class AsyncEventPublisherTest {
+    @Test
+    void coalesceAndFlushOnStop() {
+        List<Object> events = new CopyOnWriteArrayList<>();
+        AsyncEventPublisher publisher = new AsyncEventPublisher(events::add, 64, 64, Duration.ofSeconds(10), OverflowPolicy.DROP, 1);
+        for (int i = 0; i < 5; i++) {
+            publisher.publishEvent(new MaliciousSqlEvent(snapshotOf("10.0.0.1")));    // $NON-NLS-1$
+        }
+        publisher.publishEvent(new MaliciousSqlEvent(snapshotOf("10.0.0.2")));    // $NON-NLS-1$
+        publisher.publishEvent(new MaliciousXssEvent(snapshotOf("10.0.0.1")));    // $NON-NLS-1$
+        publisher.start();
+        publisher.stop();
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), events.size());
+        Assertions.assertEquals(3, events.size());
+        Assertions.assertEquals(3L, publisher.getDeliveredCount());
+        Assertions.assertEquals(4L, publisher.getCoalescedCount());
+        Assertions.assertEquals(0, publisher.getPendingCount());
+    }
+
+    @Test
+    void coalesceRuleEventsByCategory() {
+        List<Object> events = new CopyOnWriteArrayList<>();
+        AsyncEventPublisher publisher = new AsyncEventPublisher(events::add, 64, 64, Duration.ofSeconds(10), OverflowPolicy.DROP, 1);
+        for (int i = 0; i < 3; i++) {
+            publisher.publishEvent(new MaliciousRuleEvent(snapshotOf("10.0.0.1"), RuleCategory.PATH_TRAVERSAL));    // $NON-NLS-1$
+            publisher.publishEvent(new MaliciousRuleEvent(snapshotOf("10.0.0.1"), RuleCategory.COMMAND));    // $NON-NLS-1$
+        }
+        publisher.start();
+        publisher.stop();
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), events.size());
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals(4L, publisher.getCoalescedCount());
+    }
+
+    @Test
+    void overflowPolicies() {
+        AsyncEventPublisher dropping = new AsyncEventPublisher(event -> {
+        }, 8, 8, null, OverflowPolicy.DROP, 1);
+        AsyncEventPublisher sampling = new AsyncEventPublisher(event -> {
+        }, 8, 8, null, OverflowPolicy.SAMPLE, Integer.MAX_VALUE);
+        for (int i = 0; i < 20; i++) {
+            dropping.publishEvent(new MaliciousSqlEvent(snapshotOf("10.0.0." + i)));    // $NON-NLS-1$
+            sampling.publishEvent(new MaliciousSqlEvent(snapshotOf("10.0.0." + i)));    // $NON-NLS-1$
+        }
+        log.info("{} = {}, {}", StackTraceWraps.getExecutingMethodName(), dropping.getDroppedCount(), sampling.getDroppedCount());
+        Assertions.assertEquals(12L, dropping.getDroppedCount());
+        Assertions.assertEquals(8, dropping.getPendingCount());
+        // Sampling starts at three quarters of the capacity, before the buffer is full
+        Assertions.assertEquals(14L, sampling.getDroppedCount());
+        Assertions.assertEquals(6, sampling.getPendingCount());
+    }
+
+    @Test
+    void countListenerFailures() {
+        AsyncEventPublisher publisher = new AsyncEventPublisher(event -> {
+            throw new IllegalStateException("listener failure");    // $NON-NLS-1$
+        }, 8, 8, Duration.ofMillis(10), OverflowPolicy.DROP, 1);
+        publisher.start();
+        publisher.publishEvent(new MaliciousSqlEvent(snapshotOf("10.0.0.1")));    // $NON-NLS-1$
+        publisher.stop();
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), publisher.getFailedCount());
+        Assertions.assertEquals(1L, publisher.getFailedCount());
+        Assertions.assertFalse(publisher.isRunning());
+    }
+
+    private static MaliciousAccessSnapshot snapshotOf(String remoteAddress) {
+        return MaliciousAccessSnapshot.of("GET", "/events", remoteAddress, "keyword", "1' or '1'='1", 64);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.publisher;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.publisher.BoundedRingBuffer}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class BoundedRingBufferTest {
+    @Test
+    void offerUntilFull() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(3);
+        for (int i = 0; i < buffer.capacity(); i++) {
+            Assertions.assertTrue(buffer.offer(i));
+        }
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), buffer.size());
+        Assertions.assertEquals(4, buffer.capacity());
+        Assertions.assertFalse(buffer.offer(4));
+        Assertions.assertEquals(0, buffer.poll());
+        Assertions.assertTrue(buffer.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            Assertions.assertEquals(i, buffer.poll());
+        }
+        Assertions.assertNull(buffer.poll());
+        Assertions.assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void offerPollConcurrently() throws InterruptedException {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(64);
+        int producers = 4, perProducer = 20_000;
+        AtomicInteger accepted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    if (buffer.offer(base + i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        boolean[] seen = new boolean[producers * perProducer];
+        int polled = 0;
+        while (threads.stream().anyMatch(Thread::isAlive) || !buffer.isEmpty()) {
+            Integer element = buffer.poll();
+            if (element != null) {
+                Assertions.assertFalse(seen[element], "Polled twice: " + element);    // $NON-NLS-1$
+                seen[element] = true;
+                polled++;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), polled);
+        Assertions.assertEquals(accepted.get(), polled);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.sanitizer;
+
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.enumeration.JsoupWhitelistType;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.sanitizer.StreamingHtmlSanitizer}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class StreamingHtmlSanitizerTest {
+    private final StreamingHtmlSanitizer sanitizer = new StreamingHtmlSanitizer();
+
+    @Test
+    void keepSafeSpans() {
+        String html = "<p>Fish &amp; chips <b>only</b> &#8364;5</p>";    // $NON-NLS-1$
+        String result = sanitizer.sanitize(html, JsoupWhitelistType.RELAXED);
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), result);
+        Assertions.assertSame(html, result);
+    }
+
+    @Test
+    void rewriteDangerousRegions() {
+        String result = sanitizer.sanitize("<p onclick=\"x()\">Hi<script>alert(1)</script> <a href=\"javascript:alert(1)\">go</a><img src=x onerror=alert(1)>", JsoupWhitelistType.RELAXED);    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), result);
+        Assertions.assertEquals("<p>Hi <a>go</a><img></p>", result);    // $NON-NLS-1$
+        Assertions.assertEquals("<a href=\"https://yookue.com\" rel=\"nofollow\">home</a>", sanitizer.sanitize("<a href='https://yookue.com'>home", JsoupWhitelistType.BASIC));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void dropRepeatedAttributes() {
+        String result = sanitizer.sanitize("<a href=\"https://ok\" HREF=\"javascript:alert(1)\" title=a title=b>go</a>", JsoupWhitelistType.RELAXED);    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), result);
+        Assertions.assertEquals("<a href=\"https://ok\" title=\"a\">go</a>", result);    // $NON-NLS-1$
+        Assertions.assertEquals(new JsoupHtmlSanitizer().sanitize("<a href=\"https://ok\" href=\"https://no\">go</a>", JsoupWhitelistType.RELAXED), sanitizer.sanitize("<a href=\"https://ok\" href=\"https://no\">go</a>", JsoupWhitelistType.RELAXED));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+}
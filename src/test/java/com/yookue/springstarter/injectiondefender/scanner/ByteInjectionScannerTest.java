@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.scanner.ByteInjectionScanner}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class ByteInjectionScannerTest {
+    private static final String[] FRAGMENTS = {"'", "\"", ")", " ", "\t", "a", "1", "_", "-", "#", "/*", "})", "<", ">", "=", "+", "%", "or", "OR", "order", "exec", "execute", "union", "script", "iframe", "scripts", "Script", "\u00e9", "\u2014"};    // $NON-NLS-1$
+
+    @Test
+    void classifyEncodedForms() {
+        String[] forms = {"a=%3Cscript%3E", "a=%26lt%3BScRiPt", "a=%26%23x3C%3Biframe", "a=%26%2360script", "a=%26ltscript", "a=%27+or+1%3D1", "a=%26%2339%3B--", "a=%26quot%3B+union"};    // $NON-NLS-1$
+        for (String form : forms) {
+            int result = ByteInjectionScanner.scan(ByteBuffer.wrap(form.getBytes(StandardCharsets.US_ASCII)), InjectionScanner.ALL_INJECTIONS, ByteInjectionScanner.Mode.FORM);
+            log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), result);
+            Assertions.assertNotEquals(InjectionScanner.NONE, result, form);
+        }
+    }
+
+    @Test
+    void classifyBenignForms() {
+        String[] forms = {"a=%3Cscripts%3E", "a=&lt;script&gt;", "lt=1&%3Cscript=2", "a=O%27Reilly", "a=%2527+or+1"};    // $NON-NLS-1$
+        for (String form : forms) {
+            int result = ByteInjectionScanner.scan(ByteBuffer.wrap(form.getBytes(StandardCharsets.US_ASCII)), InjectionScanner.ALL_INJECTIONS, ByteInjectionScanner.Mode.FORM);
+            Assertions.assertEquals(InjectionScanner.NONE, result, form);
+        }
+    }
+
+    @Test
+    void reportFieldName() throws IOException {
+        byte[] form = "id=1&comment=%3Ciframe+src%3Dx%3E".getBytes(StandardCharsets.US_ASCII);    // $NON-NLS-1$
+        String[] names = new String[1];
+        ByteInjectionScanner.Session session = ByteInjectionScanner.newSession(InjectionScanner.ALL_INJECTIONS, ByteInjectionScanner.Mode.FORM, (flags, name, value) -> names[0] = name);
+        session.feed(form, 0, form.length);
+        session.endOfInput();
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), names[0]);
+        Assertions.assertEquals(InjectionScanner.XSS_INJECTION, session.getDetected());
+        Assertions.assertEquals("comment", names[0]);
+    }
+
+    @Test
+    void matchStringScanner() throws IOException {
+        Random random = new Random(20221017L);
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int fragments = random.nextInt(8);
+            for (int j = 0; j < fragments; j++) {
+                builder.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String value = builder.toString();
+            int expected = InjectionScanner.scan(value);
+            byte[] form = ("k=" + URLEncoder.encode(value, StandardCharsets.UTF_8)).getBytes(StandardCharsets.US_ASCII);
+            Assertions.assertEquals(expected, ByteInjectionScanner.scan(form, 0, form.length, InjectionScanner.ALL_INJECTIONS, ByteInjectionScanner.Mode.FORM), value);
+            ByteInjectionScanner.Session session = ByteInjectionScanner.newSession(InjectionScanner.ALL_INJECTIONS, ByteInjectionScanner.Mode.FORM, null);
+            for (int j = 0; j < form.length; j++) {
+                session.feed(form, j, 1);
+            }
+            session.endOfInput();
+            Assertions.assertEquals(expected, session.getDetected(), value);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.util.Random;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.scanner.InjectionScanner}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class InjectionScannerTest {
+    private static final Pattern LEGACY_SQL = Pattern.compile("^\\s*\\S*(['\"])+\\)*\\s*(and\\b|or\\b|union\\b|select\\b|insert\\b|update\\b|delete\\b|create\\b|drop\\b|truncate\\b|grant\\b|alter\\b|execute\\b|exec\\b|declare\\b|order\\b|show\\b|#|--|}\\)|/\\*)+", Pattern.CASE_INSENSITIVE);    // $NON-NLS-1$
+    private static final Pattern LEGACY_XSS = Pattern.compile("<(iframe|script)\\b", Pattern.CASE_INSENSITIVE);    // $NON-NLS-1$
+    private static final String[] FRAGMENTS = {"'", "\"", ")", " ", "\t", "\n", "a", "1", "_", "-", "#", "/*", "})", "<", ">", "or", "OR", "order", "exec", "execute", "union", "select", "script", "iframe", "scripts", "Script", "<script", "<iframe"};    // $NON-NLS-1$
+
+    @Test
+    void classifyBoth() {
+        String injection = "1' or 1=1 <script>alert(1)</script>";
+        int result = InjectionScanner.scan(injection);
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), result);
+        Assertions.assertEquals(InjectionScanner.BUILTIN_INJECTIONS, result);
+    }
+
+    @Test
+    void classifyWithMask() {
+        String injection = "1' or 1=1 <iframe src=x>";
+        int result = InjectionScanner.scan(injection, InjectionScanner.XSS_INJECTION);
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), result);
+        Assertions.assertEquals(InjectionScanner.XSS_INJECTION, result);
+    }
+
+    @Test
+    void classifyBenign() {
+        String[] values = {"42", "john.doe@example.com", "O'Reilly", "don't order pizza", "1 < 2", "<b>bold</b>", "<scripts/>"};
+        int result = InjectionScanner.scan(values, InjectionScanner.ALL_INJECTIONS);
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), result);
+        Assertions.assertEquals(InjectionScanner.NONE, result);
+    }
+
+    @Test
+    void skipByPrefilter() {
+        long skipped = InjectionScanner.getPrefilterSkippedCount();
+        int result = InjectionScanner.scan(new StringBuilder("550e8400-e29b-41d4-a716-446655440000"));
+        Assertions.assertEquals(InjectionScanner.NONE, result);
+        Assertions.assertFalse(InjectionScanner.mayContainInjection("1 < 2", InjectionScanner.SQL_INJECTION));
+        Assertions.assertTrue(InjectionScanner.mayContainInjection("1 < 2", InjectionScanner.XSS_INJECTION));
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), InjectionScanner.getPrefilterSkippedCount() - skipped);
+        Assertions.assertTrue(InjectionScanner.getPrefilterSkippedCount() > skipped);
+    }
+
+    @Test
+    void matchLegacyPatterns() {
+        Random random = new Random(20221017L);
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int fragments = random.nextInt(8);
+            for (int j = 0; j < fragments; j++) {
+                builder.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            String value = builder.toString();
+            int result = InjectionScanner.scan(value);
+            Assertions.assertEquals(LEGACY_SQL.matcher(value).find(), InjectionScanner.hasSqlInjection(result), value);
+            Assertions.assertEquals(LEGACY_XSS.matcher(value).find(), InjectionScanner.hasXssInjection(result), value);
+        }
+    }
+}
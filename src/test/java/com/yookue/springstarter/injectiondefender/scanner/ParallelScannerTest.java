@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.scanner.ParallelScanner}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class ParallelScannerTest {
+    @Test
+    void scanClean() {
+        ParallelScanner scanner = new ParallelScanner(100, 4, 16);
+        try {
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                values.add("value-" + i);
+            }
+            int flags = scanner.scan(values, InjectionScanner.ALL_INJECTIONS);
+            log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), flags);
+            Assertions.assertEquals(InjectionScanner.NONE, flags);
+        } finally {
+            scanner.destroy();
+        }
+    }
+
+    @Test
+    void scanHit() {
+        ParallelScanner scanner = new ParallelScanner(100, 4, 16);
+        try {
+            List<String[]> groups = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                groups.add(new String[]{"value-" + i, (i == 7777) ? "1' or '1'='1" : "other-" + i});
+            }
+            int flags = scanner.scanGroups(groups, InjectionScanner.ALL_INJECTIONS);
+            log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), flags);
+            Assertions.assertTrue(InjectionScanner.hasSqlInjection(flags));
+            Assertions.assertTrue(InjectionScanner.hasXssInjection(scanner.scan(List.of("a", "<script>alert(1)</script>"), InjectionScanner.ALL_INJECTIONS)));
+        } finally {
+            scanner.destroy();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.scanner;
+
+
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import com.yookue.springstarter.injectiondefender.rule.DetectionRule;
+import com.yookue.springstarter.injectiondefender.rule.ResourceRuleProvider;
+import com.yookue.springstarter.injectiondefender.rule.RuleCategory;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.scanner.RuleMatcher}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class RuleMatcherTest {
+    private final RuleMatcher matcher = RuleMatcher.compile(List.of(
+        DetectionRule.keyword("keyword", RuleCategory.PATH_TRAVERSAL, "../"),    // $NON-NLS-1$ // $NON-NLS-2$
+        DetectionRule.keyword("overlap", RuleCategory.XSS, "script:"),    // $NON-NLS-1$ // $NON-NLS-2$
+        ResourceRuleProvider.parseRule("line", "command regex [;|&`]\\s*(?:cat|curl|wget)\\b")    // $NON-NLS-1$ // $NON-NLS-2$
+    ));
+
+    @Test
+    void scanKeywords() {
+        int flags = matcher.scan("..%2f../etc/passwd", InjectionScanner.ALL_INJECTIONS);    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), flags);
+        Assertions.assertEquals(InjectionScanner.PATH_TRAVERSAL, flags);
+        Assertions.assertEquals(InjectionScanner.XSS_INJECTION, matcher.scan("JavaScript:alert(1)", InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.NONE, matcher.scan("javascript:alert(1)", InjectionScanner.SQL_INJECTION));    // $NON-NLS-1$
+    }
+
+    @Test
+    void scanRegexes() {
+        int flags = matcher.scan("name; curl http://evil", InjectionScanner.ALL_INJECTIONS);    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), flags);
+        Assertions.assertEquals(InjectionScanner.COMMAND_INJECTION, flags);
+        Assertions.assertEquals(InjectionScanner.NONE, matcher.scan("catalog; curls", InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ResourceRuleProvider.parseRule("line", "shell regex rm"));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void scanWithBuiltin() {
+        int flags = InjectionScanner.scan("../etc/passwd", InjectionScanner.ALL_INJECTIONS, matcher);    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), flags);
+        Assertions.assertEquals(InjectionScanner.PATH_TRAVERSAL, flags);
+        Assertions.assertEquals(InjectionScanner.NONE, InjectionScanner.scan("../etc/passwd", InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.NONE, InjectionScanner.scan("../etc/passwd", InjectionScanner.BUILTIN_INJECTIONS, matcher));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.XSS_INJECTION | InjectionScanner.PATH_TRAVERSAL, InjectionScanner.scan(new CharSequence[]{"<script>", "../"}, InjectionScanner.ALL_INJECTIONS, matcher));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void rejectBackReferences() {
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class, () -> ResourceRuleProvider.parseRule("line", "sql regex (['\"]).*\\1"));    // $NON-NLS-1$ // $NON-NLS-2$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), ex.getMessage());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RuleMatcher.compile(List.of(DetectionRule.regex("list", RuleCategory.SQL, "(a)\\1"))));    // $NON-NLS-1$ // $NON-NLS-2$
+        RuleMatcher named = RuleMatcher.compile(List.of(
+            ResourceRuleProvider.parseRule("named", "sql regex (?<quote>['\"]).*\\k<quote>"),    // $NON-NLS-1$ // $NON-NLS-2$
+            ResourceRuleProvider.parseRule("quoted", "command regex \\Q\\1\\E|\\\\1")    // $NON-NLS-1$ // $NON-NLS-2$
+        ));
+        Assertions.assertEquals(InjectionScanner.SQL_INJECTION, named.scan("x 'a' y", InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+        Assertions.assertEquals(InjectionScanner.COMMAND_INJECTION, named.scan("run \\1", InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import java.util.Map;
+import org.jsoup.safety.Safelist;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.support.InjectionDefenderRequestWrapper}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class InjectionDefenderRequestWrapperTest {
+    @Test
+    void memoizedValuesAreCopied() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/wrapper");    // $NON-NLS-1$ // $NON-NLS-2$
+        request.addParameter("name", "<b>bold</b><script>alert(1)</script>");    // $NON-NLS-1$ // $NON-NLS-2$
+        InjectionDefenderRequestWrapper wrapper = new InjectionDefenderRequestWrapper(request, true, Safelist.basic());
+        String[] values = wrapper.getParameterValues("name");    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), values);
+        Assertions.assertEquals("<b>bold</b>", values[0]);    // $NON-NLS-1$
+        values[0] = "<script>alert(2)</script>";    // $NON-NLS-1$
+        Assertions.assertEquals("<b>bold</b>", wrapper.getParameter("name"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("<b>bold</b>", wrapper.getParameterValues("name")[0]);    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertNotSame(wrapper.getParameterValues("name"), wrapper.getParameterValues("name"));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void parameterMapIsDetached() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/wrapper");    // $NON-NLS-1$ // $NON-NLS-2$
+        request.addParameter("name", "<b>bold</b><script>alert(1)</script>");    // $NON-NLS-1$ // $NON-NLS-2$
+        InjectionDefenderRequestWrapper wrapper = new InjectionDefenderRequestWrapper(request, true, Safelist.basic());
+        Map<String, String[]> parameters = wrapper.getParameterMap();
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), parameters.get("name"));    // $NON-NLS-1$
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> parameters.put("name", new String[]{"<script>alert(2)</script>"}));    // $NON-NLS-1$ // $NON-NLS-2$
+        parameters.get("name")[0] = "<script>alert(2)</script>";    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("<b>bold</b>", wrapper.getParameter("name"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("<b>bold</b>", wrapper.getParameterValues("name")[0]);    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.support.LazyInspectionRequestWrapper}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class LazyInspectionRequestWrapperTest {
+    @Test
+    void memoizeRejection() {
+        List<String> inspected = new ArrayList<>();
+        LazyInspectionRequestWrapper wrapper = new LazyInspectionRequestWrapper(newRequest(), (name, values, mask) -> {
+            inspected.add(name);
+            if ("q".equals(name)) {    // $NON-NLS-1$
+                throw new IllegalArgumentException(name);
+            }
+        });
+        Assertions.assertEquals("ok", wrapper.getParameter("id"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("ok", wrapper.getParameterValues("id")[0]);    // $NON-NLS-1$ // $NON-NLS-2$
+        RuntimeException first = Assertions.assertThrows(IllegalArgumentException.class, () -> wrapper.getParameter("q"));    // $NON-NLS-1$
+        RuntimeException second = Assertions.assertThrows(IllegalArgumentException.class, () -> wrapper.getParameterValues("q"));    // $NON-NLS-1$
+        Assertions.assertSame(first, second);
+        Assertions.assertSame(first, Assertions.assertThrows(IllegalArgumentException.class, wrapper::getParameterMap));
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), inspected);
+        Assertions.assertEquals(List.of("id", "q"), inspected);    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(wrapper.isInspected("q"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void memoizeCheckedRejection() {
+        LazyInspectionRequestWrapper wrapper = new LazyInspectionRequestWrapper(newRequest(), (name, values, mask) -> {
+            throw new IOException(name);
+        });
+        UncheckedIOException first = Assertions.assertThrows(UncheckedIOException.class, () -> wrapper.getParameter("id"));    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), first.getMessage());
+        Assertions.assertSame(first, Assertions.assertThrows(UncheckedIOException.class, () -> wrapper.getParameter("id")));    // $NON-NLS-1$
+    }
+
+    @Test
+    void inspectBlankName() {
+        List<String> inspected = new ArrayList<>();
+        LazyInspectionRequestWrapper wrapper = new LazyInspectionRequestWrapper(newRequest(), (name, values, mask) -> inspected.add(name));
+        Assertions.assertEquals("1' or '1'='1", wrapper.getParameter(" "));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertNull(wrapper.getParameterValues(""));    // $NON-NLS-1$
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), inspected);
+        Assertions.assertEquals(List.of(" ", ""), inspected);    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(wrapper.isInspected(" "));    // $NON-NLS-1$
+    }
+
+    private MockHttpServletRequest newRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/lazy");    // $NON-NLS-1$ // $NON-NLS-2$
+        request.addParameter("id", "ok");    // $NON-NLS-1$ // $NON-NLS-2$
+        request.addParameter("q", "1' or '1'='1");    // $NON-NLS-1$ // $NON-NLS-2$
+        request.addParameter(" ", "1' or '1'='1");    // $NON-NLS-1$ // $NON-NLS-2$
+        return request;
+    }
+}
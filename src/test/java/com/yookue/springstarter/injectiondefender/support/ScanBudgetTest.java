@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.support;
+
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import com.yookue.springstarter.injectiondefender.exception.ScanLimitException;
+import com.yookue.springstarter.injectiondefender.policy.DefenderPolicy;
+import com.yookue.springstarter.injectiondefender.policy.LimitPolicy;
+import com.yookue.springstarter.injectiondefender.property.InjectionDefenderProperties;
+import com.yookue.springstarter.injectiondefender.scanner.ByteInjectionScanner;
+import com.yookue.springstarter.injectiondefender.scanner.InjectionScanner;
+import com.yookue.springstarter.injectiondefender.scanner.ScanSession;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.support.ScanBudget}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class ScanBudgetTest {
+    private static final String INJECTION = "hello, <script>alert(1)</script>";    // $NON-NLS-1$
+
+    @Test
+    void limitValueLength() throws IOException {
+        for (LimitPolicy limitPolicy : LimitPolicy.values()) {
+            List<String> events = new ArrayList<>();
+            ScanBudget budget = budgetOf(limits -> {
+                limits.setMaxValueLength(8);
+                limits.setValueLengthPolicy(limitPolicy);
+            }, events);
+            Assertions.assertEquals(InjectionScanner.XSS_INJECTION, budget.scan("a", "<script>", InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$ // $NON-NLS-2$
+            if (limitPolicy == LimitPolicy.REJECT) {
+                Assertions.assertThrows(ScanLimitException.class, () -> budget.scan("b", INJECTION, InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+                continue;
+            }
+            Assertions.assertEquals(InjectionScanner.NONE, budget.scan("b", INJECTION, InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+            Assertions.assertEquals((limitPolicy == LimitPolicy.SKIP) ? List.of("value-length:b=hell") : List.of(), events);    // $NON-NLS-1$
+            Assertions.assertFalse(budget.isExhausted());
+        }
+    }
+
+    @Test
+    void limitValues() throws IOException {
+        for (LimitPolicy limitPolicy : LimitPolicy.values()) {
+            List<String> events = new ArrayList<>();
+            ScanBudget budget = budgetOf(limits -> {
+                limits.setMaxValues(1);
+                limits.setValuesPolicy(limitPolicy);
+            }, events);
+            Assertions.assertEquals(InjectionScanner.NONE, budget.scan("a", new String[]{"ok"}, InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$ // $NON-NLS-2$
+            if (limitPolicy == LimitPolicy.REJECT) {
+                Assertions.assertThrows(ScanLimitException.class, () -> budget.scan("b", INJECTION, InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+                continue;
+            }
+            Assertions.assertEquals(InjectionScanner.NONE, budget.scan("b", INJECTION, InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+            Assertions.assertEquals(InjectionScanner.NONE, budget.scan("c", INJECTION, InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+            Assertions.assertTrue(budget.isExhausted());
+            Assertions.assertEquals((limitPolicy == LimitPolicy.SKIP) ? List.of("values:b=hell") : List.of(), events);    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void limitTimeBudget() throws IOException {
+        for (LimitPolicy limitPolicy : LimitPolicy.values()) {
+            List<String> events = new ArrayList<>();
+            ScanBudget budget = budgetOf(limits -> {
+                limits.setTimeBudget(Duration.ofNanos(1L));
+                limits.setTimeBudgetPolicy(limitPolicy);
+            }, events);
+            Assertions.assertEquals(InjectionScanner.XSS_INJECTION, budget.scan("a", INJECTION, InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+            if (limitPolicy == LimitPolicy.REJECT) {
+                Assertions.assertThrows(ScanLimitException.class, () -> budget.scan("b", INJECTION, InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+                continue;
+            }
+            Assertions.assertEquals(InjectionScanner.NONE, budget.scan("b", INJECTION, InjectionScanner.ALL_INJECTIONS));    // $NON-NLS-1$
+            Assertions.assertTrue(budget.isExhausted());
+            Assertions.assertEquals((limitPolicy == LimitPolicy.SKIP) ? List.of("time-budget:b=hell") : List.of(), events);    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void limitCleanLength() throws IOException {
+        for (LimitPolicy limitPolicy : LimitPolicy.values()) {
+            List<String> events = new ArrayList<>();
+            ScanBudget budget = budgetOf(limits -> {
+                limits.setMaxCleanLength(8);
+                limits.setCleanLengthPolicy(limitPolicy);
+            }, events);
+            Assertions.assertEquals("[<b>o</b>]", budget.clean("a", "<b>o</b>", value -> '[' + value + ']'));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+            if (limitPolicy == LimitPolicy.REJECT) {
+                Assertions.assertThrows(ScanLimitException.class, () -> budget.clean("b", INJECTION, value -> value));    // $NON-NLS-1$
+                continue;
+            }
+            String result = budget.clean("b", INJECTION, value -> '[' + value + ']');    // $NON-NLS-1$
+            log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), result);
+            Assertions.assertEquals((limitPolicy == LimitPolicy.PREFIX) ? "[hello, <]" : "hello, &lt;script&gt;alert(1)&lt;/script&gt;", result);    // $NON-NLS-1$ // $NON-NLS-2$
+            Assertions.assertEquals(List.of("clean-length:b=hell"), events);    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void limitStream() throws IOException {
+        byte[] bytes = INJECTION.getBytes(StandardCharsets.UTF_8);
+        for (LimitPolicy limitPolicy : LimitPolicy.values()) {
+            List<String> events = new ArrayList<>();
+            ScanBudget budget = budgetOf(limits -> {
+                limits.setMaxValueLength(8);
+                limits.setValueLengthPolicy(limitPolicy);
+                limits.setMaxValues(1);
+            }, events);
+            ByteInjectionScanner.Session session = ByteInjectionScanner.newSession(InjectionScanner.ALL_INJECTIONS, ByteInjectionScanner.Mode.TEXT, null);
+            ScanSession budgeted = budget.stream("a", session);    // $NON-NLS-1$
+            Assertions.assertNotNull(budgeted);
+            if (limitPolicy == LimitPolicy.REJECT) {
+                Assertions.assertThrows(ScanLimitException.class, () -> budgeted.feed(bytes, 0, bytes.length));
+                continue;
+            }
+            budgeted.feed(bytes, 0, bytes.length);
+            budgeted.endOfInput();
+            Assertions.assertTrue(budgeted.isFinished());
+            Assertions.assertEquals(InjectionScanner.NONE, session.getDetected());
+            Assertions.assertEquals((limitPolicy == LimitPolicy.SKIP) ? List.of("value-length:a=null") : List.of(), events);    // $NON-NLS-1$
+            Assertions.assertNull(budget.stream("b", ByteInjectionScanner.newSession(InjectionScanner.ALL_INJECTIONS, ByteInjectionScanner.Mode.TEXT, null)));    // $NON-NLS-1$
+            Assertions.assertTrue(budget.isExhausted());
+        }
+    }
+
+    @Nonnull
+    private ScanBudget budgetOf(@Nonnull Consumer<InjectionDefenderProperties.ScanLimits> customizer, @Nonnull List<String> events) {
+        InjectionDefenderProperties properties = new InjectionDefenderProperties();
+        properties.getEventPublisher().setMaxValueLength(4);
+        customizer.accept(properties.getScanLimits());
+        return new ScanBudget(DefenderPolicy.of(properties), (limit, name, value) -> events.add(limit + ':' + name + '=' + value));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2022 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.injectiondefender.tracker;
+
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.commonplexus.javaseutil.util.StackTraceWraps;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Tests for {@link com.yookue.springstarter.injectiondefender.tracker.OffenderTracker}
+ *
+ * @author David Hsing
+ */
+@Slf4j
+class OffenderTrackerTest {
+    private static final long SECOND = Duration.ofSeconds(1).toNanos();
+
+    @Test
+    void blockAtThreshold() {
+        AtomicLong clock = new AtomicLong(SECOND);
+        OffenderTracker tracker = new OffenderTracker(3, Duration.ofSeconds(60), Duration.ofSeconds(600), 100, null, 429, clock::get);
+        Assertions.assertFalse(tracker.recordOffense("10.0.0.1"));
+        Assertions.assertFalse(tracker.recordOffense("10.0.0.1"));
+        Assertions.assertFalse(tracker.isBlocked("10.0.0.1"));
+        Assertions.assertTrue(tracker.recordOffense("10.0.0.1"));
+        Assertions.assertTrue(tracker.isBlocked("10.0.0.1"));
+        Assertions.assertFalse(tracker.isBlocked("10.0.0.2"));
+        clock.addAndGet(601 * SECOND);
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), tracker.isBlocked("10.0.0.1"));
+        Assertions.assertFalse(tracker.isBlocked("10.0.0.1"));
+    }
+
+    @Test
+    void slideWindow() {
+        AtomicLong clock = new AtomicLong(SECOND);
+        OffenderTracker tracker = new OffenderTracker(4, Duration.ofSeconds(60), Duration.ofSeconds(600), 100, null, 429, clock::get);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertFalse(tracker.recordOffense("10.0.0.1"));
+        }
+        // Three quarters of the previous window have passed, so the previous three offenses weigh less than one
+        clock.addAndGet(105 * SECOND);
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertFalse(tracker.recordOffense("10.0.0.1"));
+        }
+        Assertions.assertTrue(tracker.recordOffense("10.0.0.1"));
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), tracker.isBlocked("10.0.0.1"));
+    }
+
+    @Test
+    void boundClients() {
+        AtomicLong clock = new AtomicLong(SECOND);
+        OffenderTracker tracker = new OffenderTracker(5, Duration.ofSeconds(60), Duration.ofSeconds(600), 64, null, 429, clock::get);
+        for (int i = 0; i < 10_000; i++) {
+            tracker.recordOffense("10.0." + (i >> 8) + '.' + (i & 255));
+        }
+        Assertions.assertTrue(tracker.size() <= 64);
+        clock.addAndGet(121 * SECOND);
+        tracker.recordOffense("10.1.0.1");
+        log.info("{} = {}", StackTraceWraps.getExecutingMethodName(), tracker.size());
+        Assertions.assertTrue(tracker.size() <= 64);
+    }
+}